@@ -18,9 +18,21 @@ package org.jclouds.googlecomputeengine;
 
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.AGGREGATED_LIST;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CONSOLIDATED_FIREWALLS;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GCE_PROVIDER_NAME;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.INSTANCE_INSERT_RATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.LIST_ZONES_CONCURRENCY;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.LIST_ZONE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MUTATE_REQUEST_RATE;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_MAX_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_POLL_BATCH_SIZE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_THREADS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.READ_REQUEST_RATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_BUDGET;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_MAX_DELAY;
 import static org.jclouds.oauth.v2.config.OAuthProperties.AUDIENCE;
 import static org.jclouds.oauth.v2.config.OAuthProperties.SIGNATURE_OR_MAC_ALGORITHM;
 import static org.jclouds.reflect.Reflection2.typeToken;
@@ -69,6 +81,18 @@ public class GoogleComputeEngineApiMetadata extends BaseHttpApiMetadata<GoogleCo
               "loginUser=jclouds");
       properties.put(OPERATION_COMPLETE_INTERVAL, 500);
       properties.put(OPERATION_COMPLETE_TIMEOUT, 600000);
+      properties.put(OPERATION_COMPLETE_MAX_INTERVAL, 5000);
+      properties.put(OPERATION_POLL_BATCH_SIZE, 50);
+      properties.put(OPERATION_THREADS, 20);
+      properties.put(LIST_ZONES_CONCURRENCY, 10);
+      properties.put(LIST_ZONE_TIMEOUT, 120000);
+      properties.put(AGGREGATED_LIST, true);
+      properties.put(CONSOLIDATED_FIREWALLS, false);
+      properties.put(INSTANCE_INSERT_RATE, 10);
+      properties.put(READ_REQUEST_RATE, 0);
+      properties.put(MUTATE_REQUEST_RATE, 0);
+      properties.put(RETRY_MAX_DELAY, 32000);
+      properties.put(RETRY_BUDGET, 10);
       return properties;
    }
 
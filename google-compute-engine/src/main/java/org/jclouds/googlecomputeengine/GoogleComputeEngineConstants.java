@@ -59,6 +59,96 @@ public interface GoogleComputeEngineConstants {
    @Beta
    public static final String OPERATION_COMPLETE_INTERVAL = "jclouds.google-compute-engine.operation-complete-interval";
 
+   /**
+    * The maximum interval, in msecs, between calls to check whether an operation has completed. The interval starts
+    * at {@link #OPERATION_COMPLETE_INTERVAL} and backs off exponentially up to this value.
+    */
+   @Beta
+   public static final String OPERATION_COMPLETE_MAX_INTERVAL =
+           "jclouds.google-compute-engine.operation-complete-max-interval";
+
+   /**
+    * The maximum number of operations in the same zone, region or globally whose status is checked with a single
+    * filtered list request. Set to 1 to check each operation with its own request.
+    */
+   @Beta
+   public static final String OPERATION_POLL_BATCH_SIZE = "jclouds.google-compute-engine.operation-poll-batch-size";
+
+   /**
+    * The number of threads that poll operations and issue the requests awaited together. They are kept apart from
+    * the user threads, so that callers blocked on user threads waiting for operations never hold up the requests and
+    * polls they are waiting for.
+    */
+   @Beta
+   public static final String OPERATION_THREADS = "jclouds.google-compute-engine.operation-threads";
+
+   /**
+    * The maximum number of zones whose resources are listed concurrently when listing across all zones.
+    */
+   @Beta
+   public static final String LIST_ZONES_CONCURRENCY = "jclouds.google-compute-engine.list-zones-concurrency";
+
+   /**
+    * The time, in msecs, to wait for the resources of a single zone to be listed.
+    */
+   @Beta
+   public static final String LIST_ZONE_TIMEOUT = "jclouds.google-compute-engine.list-zone-timeout";
+
+   /**
+    * Whether nodes and hardware profiles are listed with a single aggregated list request across all zones, instead
+    * of one list request per zone.
+    */
+   @Beta
+   public static final String AGGREGATED_LIST = "jclouds.google-compute-engine.aggregated-list";
+
+   /**
+    * Whether the inbound ports of a group's nodes are opened by consolidated firewalls carrying whole port ranges,
+    * instead of one firewall per port. Each firewall and its tag are named after the exact port ranges they open, so
+    * nodes with the same inbound ports share their firewalls, which are only created when missing, and every node is
+    * reachable on its own inbound ports only.
+    */
+   @Beta
+   public static final String CONSOLIDATED_FIREWALLS = "jclouds.google-compute-engine.consolidated-firewalls";
+
+   /**
+    * The maximum number of instance inserts issued per second. Nodes created together have their inserts issued
+    * back-to-back, so this keeps large groups within the API rate quota. Set to 0 to leave inserts unlimited.
+    * <p/>
+    * Inserts are also mutations, so when {@link #MUTATE_REQUEST_RATE} is set an insert is issued at its turn under
+    * this rate and then also waits for a permit of the mutation rate, which it shares with every other mutation.
+    * Inserts then go out at the lower of the two rates, or slower while other mutations are being issued.
+    */
+   @Beta
+   public static final String INSTANCE_INSERT_RATE = "jclouds.google-compute-engine.instance-insert-rate";
+
+   /**
+    * The maximum number of requests per second that read resources. Defaults to 0, which leaves reads unlimited and
+    * lets the api's own quota apply; set it below the project's quota to keep large fan-out operations within it.
+    */
+   @Beta
+   public static final String READ_REQUEST_RATE = "jclouds.google-compute-engine.read-request-rate";
+
+   /**
+    * The maximum number of requests per second that create, modify or delete resources. Defaults to 0, which leaves
+    * them unlimited and lets the api's own quota apply; set it below the project's quota to keep large fan-out
+    * operations within it.
+    */
+   @Beta
+   public static final String MUTATE_REQUEST_RATE = "jclouds.google-compute-engine.mutate-request-rate";
+
+   /**
+    * The maximum delay, in msecs, before retrying a request that failed for a transient reason. The delay starts at
+    * {@link org.jclouds.Constants#PROPERTY_RETRY_DELAY_START} and backs off exponentially up to this value.
+    */
+   @Beta
+   public static final String RETRY_MAX_DELAY = "jclouds.google-compute-engine.retry-max-delay";
+
+   /**
+    * The maximum number of retries per second, across all requests. Set to 0 to leave retries unlimited.
+    */
+   @Beta
+   public static final String RETRY_BUDGET = "jclouds.google-compute-engine.retry-budget";
+
    public static final Location GOOGLE_PROVIDER_LOCATION = new LocationBuilder().scope(LocationScope.PROVIDER).id
            (GCE_PROVIDER_NAME).description(GCE_PROVIDER_NAME).build();
 
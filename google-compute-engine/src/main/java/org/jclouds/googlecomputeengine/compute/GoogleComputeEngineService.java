@@ -17,17 +17,20 @@
 package org.jclouds.googlecomputeengine.compute;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static com.google.common.base.Predicates.not;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_RUNNING;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_TERMINATED;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
-import static org.jclouds.util.Predicates2.retry;
+import static org.jclouds.compute.predicates.NodePredicates.TERMINATED;
+import static org.jclouds.compute.predicates.NodePredicates.all;
 
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -66,16 +69,24 @@ import org.jclouds.googlecomputeengine.domain.Firewall;
 import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.features.NetworkApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.scriptbuilder.functions.InitAdminAccess;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
-import com.google.common.collect.Sets;
-import com.google.common.util.concurrent.Atomics;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * @author David Alves
@@ -86,9 +97,10 @@ public class GoogleComputeEngineService extends BaseComputeService {
    private final GroupNamingConvention.Factory namingConvention;
    private final GoogleComputeEngineApi api;
    private final Supplier<String> project;
-   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
-   private final long operationCompleteCheckInterval;
-   private final long operationCompleteCheckTimeout;
+   private final OperationWaiter operationWaiter;
+   private final GoogleComputeEngineServiceAdapter computeServiceAdapter;
+   private final Map<String, Credentials> credentialStore;
+   private final Striped<Lock> groupLocks = Striped.lazyWeakLock(64);
 
    @Inject
    protected GoogleComputeEngineService(ComputeServiceContext context,
@@ -124,9 +136,8 @@ public class GoogleComputeEngineService extends BaseComputeService {
                                         GroupNamingConvention.Factory namingConvention,
                                         GoogleComputeEngineApi api,
                                         @UserProject Supplier<String> project,
-                                        @Named("global") Predicate<AtomicReference<Operation>> operationDonePredicate,
-                                        @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-                                        @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+                                        OperationWaiter operationWaiter,
+                                        GoogleComputeEngineServiceAdapter computeServiceAdapter) {
 
       super(context, credentialStore, images, hardwareProfiles, locations, listNodesStrategy, getImageStrategy,
               getNodeMetadataStrategy, runNodesAndAddToSetStrategy, rebootNodeStrategy, destroyNodeStrategy,
@@ -137,62 +148,130 @@ public class GoogleComputeEngineService extends BaseComputeService {
       this.namingConvention = checkNotNull(namingConvention, "naming convention factory");
       this.api = checkNotNull(api, "google compute api");
       this.project = checkNotNull(project, "user project name");
-      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operation completed predicate");
-      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
-              "operation completed check interval");
-      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
-              "operation completed check timeout");
+      this.operationWaiter = checkNotNull(operationWaiter, "operation waiter");
+      this.computeServiceAdapter = checkNotNull(computeServiceAdapter, "compute service adapter");
+      this.credentialStore = checkNotNull(credentialStore, "credential store");
    }
 
+   /**
+    * Destroys the matching nodes together instead of one by one: all instance deletes are issued before waiting on
+    * any, and the networks and firewalls of the groups left empty are then cleaned up once per group.
+    */
+   @Override
+   public Set<? extends NodeMetadata> destroyNodesMatching(Predicate<NodeMetadata> filter) {
+      logger.debug(">> destroying nodes matching(%s)", filter);
+      Set<NodeMetadata> allNodes = ImmutableSet.copyOf(listNodesDetailsMatching(all()));
+      Map<String, NodeMetadata> nodes = Maps.uniqueIndex(Iterables.filter(allNodes,
+              Predicates.and(filter, not(TERMINATED))), new Function<NodeMetadata, String>() {
+                 @Override
+                 public String apply(NodeMetadata input) {
+                    return input.getId();
+                 }
+              });
+
+      Set<String> destroyedIds = computeServiceAdapter.destroyNodes(nodes.keySet());
+      ImmutableSet.Builder<NodeMetadata> destroyed = ImmutableSet.builder();
+      for (String id : destroyedIds) {
+         credentialStore.remove("node#" + id);
+         destroyed.add(nodes.get(id));
+      }
+      Set<NodeMetadata> set = destroyed.build();
+      logger.debug("<< destroyed(%d)", set.size());
+
+      cleanUpIncidentalResourcesOfDeadNodes(set);
+      return set;
+   }
+
+   /**
+    * Cleans up the orphaned groups together: the firewalls of all of them are deleted concurrently, and then their
+    * networks. Each group is only cleaned up by one caller at a time.
+    */
    @Override
-   protected synchronized void cleanUpIncidentalResourcesOfDeadNodes(Set<? extends NodeMetadata> deadNodes) {
+   protected void cleanUpIncidentalResourcesOfDeadNodes(Set<? extends NodeMetadata> deadNodes) {
       Set<String> orphanedGroups = findOrphanedGroups.apply(deadNodes);
-      for (String orphanedGroup : orphanedGroups) {
-         cleanUpNetworksAndFirewallsForGroup(orphanedGroup);
+      if (orphanedGroups.isEmpty()) {
+         return;
+      }
+      // bulkGet returns the locks in a consistent order, so callers cleaning up overlapping groups cannot deadlock
+      List<Lock> locks = ImmutableList.copyOf(groupLocks.bulkGet(orphanedGroups));
+      for (Lock lock : locks) {
+         lock.lock();
+      }
+      try {
+         cleanUpNetworksAndFirewallsForGroups(orphanedGroups);
+      } catch (RuntimeException e) {
+         logger.warn(e, "could not clean up the resources of orphaned groups %s", orphanedGroups);
+      } finally {
+         for (Lock lock : Lists.reverse(locks)) {
+            lock.unlock();
+         }
       }
    }
 
+   protected void cleanUpNetworksAndFirewallsForGroup(String groupName) {
+      cleanUpNetworksAndFirewallsForGroups(ImmutableSet.of(groupName));
+   }
 
-   protected void cleanUpNetworksAndFirewallsForGroup(final String groupName) {
-      String resourceName = namingConvention.create().sharedNameForGroup(groupName);
-      final Network network = api.getNetworkApiForProject(project.get()).get(resourceName);
-      FirewallApi firewallApi = api.getFirewallApiForProject(project.get());
-      Predicate<Firewall> firewallBelongsToNetwork = new Predicate<Firewall>() {
-         @Override
-         public boolean apply(Firewall input) {
-            return input != null && input.getNetwork().equals(network.getSelfLink());
+   /**
+    * Deletes the networks of the given groups and their firewalls, with a single firewall listing. The firewall
+    * deletes of all the groups are awaited together, since a network can only be deleted once its firewalls are
+    * gone, and then the network deletes.
+    */
+   protected void cleanUpNetworksAndFirewallsForGroups(Set<String> groupNames) {
+      final NetworkApi networkApi = api.getNetworkApiForProject(project.get());
+      Map<URI, String> networks = Maps.newHashMap();
+      for (String groupName : groupNames) {
+         String resourceName = namingConvention.create().sharedNameForGroup(groupName);
+         Network network = networkApi.get(resourceName);
+         // a network that is gone was already cleaned up by someone else
+         if (network != null) {
+            networks.put(network.getSelfLink(), resourceName);
          }
-      };
-
-      Set<AtomicReference<Operation>> operations = Sets.newHashSet();
-      for (Firewall firewall : firewallApi.list().concat().filter(firewallBelongsToNetwork)) {
-         operations.add(new AtomicReference<Operation>(firewallApi.delete(firewall.getName())));
+      }
+      if (networks.isEmpty()) {
+         return;
       }
 
-      for (AtomicReference<Operation> operation : operations) {
-         retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
+      final FirewallApi firewallApi = api.getFirewallApiForProject(project.get());
+      List<Callable<Operation>> firewallDeletes = Lists.newArrayList();
+      for (final Firewall firewall : firewallApi.list().concat()) {
+         if (networks.containsKey(firewall.getNetwork())) {
+            firewallDeletes.add(new Callable<Operation>() {
+               @Override
+               public Operation call() {
+                  return firewallApi.delete(firewall.getName());
+               }
+            });
+         }
+      }
 
-         if (operation.get().getHttpError().isPresent()) {
-            HttpResponse response = operation.get().getHttpError().get();
+      for (Operation operation : operationWaiter.awaitAll(firewallDeletes, Scope.GLOBAL)) {
+         if (operation != null && operation.getHttpError().isPresent()) {
+            HttpResponse response = operation.getHttpError().get();
             logger.warn("delete orphaned firewall %s failed. Http Error Code: %d HttpError: %s",
-                    operation.get().getTargetId(), response.getStatusCode(), response.getMessage());
+                    operation.getTargetId(), response.getStatusCode(), response.getMessage());
          }
       }
 
-      AtomicReference<Operation> operation = Atomics.newReference(api.getNetworkApiForProject(project.get()).delete(resourceName));
-
-      retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-              MILLISECONDS).apply(operation);
+      List<Callable<Operation>> networkDeletes = Lists.newArrayList();
+      for (final String resourceName : networks.values()) {
+         networkDeletes.add(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               return networkApi.delete(resourceName);
+            }
+         });
+      }
 
-      if (operation.get().getHttpError().isPresent()) {
-         HttpResponse response = operation.get().getHttpError().get();
-         logger.warn("delete orphaned network failed. Http Error Code: " + response.getStatusCode() +
-                 " HttpError: " + response.getMessage());
+      for (Operation operation : operationWaiter.awaitAll(networkDeletes, Scope.GLOBAL)) {
+         if (operation != null && operation.getHttpError().isPresent()) {
+            HttpResponse response = operation.getHttpError().get();
+            logger.warn("delete orphaned network %s failed. Http Error Code: %d HttpError: %s",
+                    operation.getTargetId(), response.getStatusCode(), response.getMessage());
+         }
       }
    }
 
-
    /**
     * returns template options, except of type {@link org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions}.
     */
@@ -18,15 +18,23 @@ package org.jclouds.googlecomputeengine.compute;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.tryFind;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.AGGREGATED_LIST;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CENTOS_PROJECT;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.DEBIAN_PROJECT;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GCE_BOOT_DISK_SUFFIX;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GCE_DELETE_BOOT_DISK_METADATA_KEY;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GCE_IMAGE_METADATA_KEY;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.INSTANCE_INSERT_RATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.LIST_ZONES_CONCURRENCY;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.LIST_ZONE_TIMEOUT;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
 import static org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig.Type;
@@ -34,14 +42,21 @@ import static org.jclouds.googlecomputeengine.predicates.InstancePredicates.isBo
 import static org.jclouds.util.Predicates2.retry;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Resource;
 import javax.inject.Named;
+import javax.inject.Singleton;
 
 import org.jclouds.collect.Memoized;
 import org.jclouds.compute.ComputeServiceAdapter;
@@ -55,7 +70,6 @@ import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.compute.functions.FirewallTagNamingConvention;
 import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
 import org.jclouds.googlecomputeengine.config.UserProject;
-import org.jclouds.googlecomputeengine.domain.Disk;
 import org.jclouds.googlecomputeengine.domain.Image;
 import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.Instance.AttachedDisk;
@@ -63,35 +77,61 @@ import org.jclouds.googlecomputeengine.domain.Instance.PersistentAttachedDisk;
 import org.jclouds.googlecomputeengine.domain.InstanceInZone;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate.PersistentDisk;
-import org.jclouds.googlecomputeengine.domain.InstanceTemplate.PersistentDisk.Mode;
 import org.jclouds.googlecomputeengine.domain.MachineType;
 import org.jclouds.googlecomputeengine.domain.MachineTypeInZone;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.SlashEncodedIds;
 import org.jclouds.googlecomputeengine.domain.Zone;
+import org.jclouds.googlecomputeengine.features.DiskApi;
 import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
+import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.logging.Logger;
 
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.primitives.Ints;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Atomics;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 import com.google.inject.Inject;
 
 /**
  * @author David Alves
  */
+@Singleton
 public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<InstanceInZone, MachineTypeInZone, Image, Zone> {
 
+   /**
+    * Zones with at most this many requested ids get each instance directly instead of listing with a filter.
+    */
+   static final int MAX_GETS_PER_ZONE = 10;
+
+   /**
+    * Upper bound on the instance names in a single list filter, which keeps the request url short.
+    */
+   static final int MAX_NAMES_PER_FILTER = 50;
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -100,21 +140,36 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
    private final Supplier<String> userProject;
    private final Supplier<Map<URI, ? extends Location>> zones;
    private final Function<TemplateOptions, ImmutableMap.Builder<String, String>> metatadaFromTemplateOptions;
-   private final Predicate<AtomicReference<Operation>> retryOperationDonePredicate;
+   private final OperationWaiter operationWaiter;
    private final long operationCompleteCheckInterval;
    private final long operationCompleteCheckTimeout;
    private final FirewallTagNamingConvention.Factory firewallTagNamingConvention;
+   private final ListeningExecutorService userExecutor;
+   private final ListeningScheduledExecutorService scheduler;
+   private final int listZonesConcurrency;
+   private final long listZoneTimeout;
+   private final boolean aggregatedList;
+   private final long insertIntervalNanos;
+   private final Object insertSlotLock = new Object();
+   private long nextInsertAt = System.nanoTime();
+   private final ConcurrentMap<String, SubmittedInsert> submittedInserts = Maps.newConcurrentMap();
 
    @Inject
    public GoogleComputeEngineServiceAdapter(GoogleComputeEngineApi api,
                                             @UserProject Supplier<String> userProject,
                                             Function<TemplateOptions,
                                                     ImmutableMap.Builder<String, String>> metatadaFromTemplateOptions,
-                                            @Named("zone") Predicate<AtomicReference<Operation>> operationDonePredicate,
+                                            OperationWaiter operationWaiter,
                                             @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
                                             @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
                                             @Memoized Supplier<Map<URI, ? extends Location>> zones,
-                                            FirewallTagNamingConvention.Factory firewallTagNamingConvention) {
+                                            FirewallTagNamingConvention.Factory firewallTagNamingConvention,
+                                            @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                                            @Named(PROPERTY_SCHEDULER_THREADS) ListeningScheduledExecutorService scheduler,
+                                            @Named(LIST_ZONES_CONCURRENCY) Integer listZonesConcurrency,
+                                            @Named(LIST_ZONE_TIMEOUT) Long listZoneTimeout,
+                                            @Named(AGGREGATED_LIST) Boolean aggregatedList,
+                                            @Named(INSTANCE_INSERT_RATE) Double instanceInsertRate) {
       this.api = checkNotNull(api, "google compute api");
       this.userProject = checkNotNull(userProject, "user project name");
       this.metatadaFromTemplateOptions = checkNotNull(metatadaFromTemplateOptions,
@@ -123,10 +178,19 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
               "operation completed check interval");
       this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
                                                         "operation completed check timeout");
-      this.retryOperationDonePredicate = retry(operationDonePredicate, operationCompleteCheckTimeout,
-                                               operationCompleteCheckInterval, TimeUnit.MILLISECONDS);
+      this.operationWaiter = checkNotNull(operationWaiter, "operationWaiter");
       this.zones = checkNotNull(zones, "zones");
       this.firewallTagNamingConvention = checkNotNull(firewallTagNamingConvention, "firewallTagNamingConvention");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.listZonesConcurrency = checkNotNull(listZonesConcurrency, "list zones concurrency");
+      checkState(this.listZonesConcurrency > 0, "list zones concurrency must be positive");
+      this.listZoneTimeout = checkNotNull(listZoneTimeout, "list zone timeout");
+      this.aggregatedList = checkNotNull(aggregatedList, "aggregated list");
+      checkNotNull(instanceInsertRate, "instance insert rate");
+      checkState(instanceInsertRate >= 0, "instance insert rate must not be negative");
+      this.insertIntervalNanos = instanceInsertRate == 0 ? 0
+              : (long) (TimeUnit.SECONDS.toNanos(1) / instanceInsertRate);
    }
 
    @Override
@@ -135,6 +199,148 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
 
       checkNotNull(template, "template");
 
+      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      final String zone = template.getLocation().getId();
+
+      AtomicReference<Instance> instance = Atomics.newReference();
+      LoginCredentials credentials;
+      SubmittedInsert submitted = submittedInserts.remove(SlashEncodedIds.fromTwoIds(zone, name).slashEncode());
+      if (submitted != null) {
+         // the insert was issued by submitNodeInsert, which also waited for its operation
+         checkOperationSucceeded(getUnchecked(submitted.operation));
+         credentials = submitted.credentials;
+         instance.set(instanceApi.getInZone(zone, name));
+      } else {
+         PreparedInsert insert = prepareInsert(group, name, template);
+         credentials = insert.credentials;
+         awaitInsertSlot();
+         Operation operation = instanceApi.createInZone(name, zone, insert.instanceTemplate);
+
+         if (insert.blockUntilRunning) {
+            // once the insert is DONE the instance is always returned
+            waitOperationDone(operation);
+            instance.set(instanceApi.getInZone(zone, name));
+         } else {
+            // some times the newly created instances are not immediately returned
+            retry(new Predicate<AtomicReference<Instance>>() {
+               @Override
+               public boolean apply(AtomicReference<Instance> input) {
+                  input.set(instanceApi.getInZone(zone, name));
+                  return input.get() != null;
+               }
+            }, operationCompleteCheckTimeout, operationCompleteCheckInterval, MILLISECONDS).apply(instance);
+         }
+      }
+      checkState(instance.get() != null, "instance %s was not found in zone %s", name, zone);
+
+      InstanceInZone instanceInZone = new InstanceInZone(instance.get(), zone);
+
+      return new NodeAndInitialCredentials<InstanceInZone>(instanceInZone, instanceInZone.slashEncode(), credentials);
+   }
+
+   /**
+    * Issues the insert for a node without waiting for it, so that many nodes can be inserted back-to-back.
+    * <p>
+    * The insert runs on the user executor once its turn under the {@link
+    * org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#INSTANCE_INSERT_RATE insert rate} comes; until
+    * then it waits on the scheduler without holding a thread. The returned future completes once its operation is
+    * done. A later call to {@link
+    * #createNodeWithGroupEncodedIntoName} with the same name and zone then only fetches the new instance.
+    */
+   public ListenableFuture<Operation> submitNodeInsert(String group, final String name, Template template) {
+      checkNotNull(template, "template");
+
+      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      final String zone = template.getLocation().getId();
+      final String key = SlashEncodedIds.fromTwoIds(zone, name).slashEncode();
+      final PreparedInsert insert = prepareInsert(group, name, template);
+
+      // the node is reserved before its insert is issued, so that it is never inserted twice
+      final SettableFuture<Operation> operation = SettableFuture.create();
+      final SubmittedInsert submitted = new SubmittedInsert(insert.credentials, operation);
+      checkState(submittedInserts.putIfAbsent(key, submitted) == null, "node %s was already submitted", key);
+
+      final ListenableFuture<Operation> issued;
+      try {
+         issued = Futures.dereference(submitAfter(reserveInsertSlot(),
+                 new Callable<ListenableFuture<Operation>>() {
+                    @Override
+                    public ListenableFuture<Operation> call() {
+                       return operationWaiter.waitFor(instanceApi.createInZone(name, zone, insert.instanceTemplate),
+                               Scope.ZONE);
+                    }
+                 }));
+      } catch (RuntimeException e) {
+         submittedInserts.remove(key, submitted);
+         throw e;
+      }
+      Futures.addCallback(issued, new FutureCallback<Operation>() {
+         @Override
+         public void onSuccess(Operation result) {
+            operation.set(result);
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            // nobody will come for a node whose insert failed
+            submittedInserts.remove(key, submitted);
+            operation.setException(t);
+         }
+      });
+      operation.addListener(new Runnable() {
+         @Override
+         public void run() {
+            if (operation.isCancelled()) {
+               issued.cancel(false);
+            }
+         }
+      }, sameThreadExecutor());
+      return operation;
+   }
+
+   /**
+    * Reserves the next free slot for an instance insert, so that inserts are spaced according to the insert rate.
+    *
+    * @return how long to wait for the reserved slot, in nanoseconds
+    */
+   private long reserveInsertSlot() {
+      synchronized (insertSlotLock) {
+         long now = System.nanoTime();
+         long slot = nextInsertAt - now > 0 ? nextInsertAt : now;
+         nextInsertAt = slot + insertIntervalNanos;
+         return slot - now;
+      }
+   }
+
+   /**
+    * Waits on the calling thread for the next free slot for an instance insert. The wait is given up if the thread is
+    * interrupted.
+    */
+   private void awaitInsertSlot() {
+      try {
+         NANOSECONDS.sleep(reserveInsertSlot());
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * Submits the task to the user executor after the given delay, which is spent on the scheduler.
+    */
+   private <T> ListenableFuture<T> submitAfter(long delayNanos, final Callable<T> task) {
+      if (delayNanos <= 0) {
+         return userExecutor.submit(task);
+      }
+      return Futures.dereference(scheduler.schedule(new Callable<ListenableFuture<T>>() {
+         @Override
+         public ListenableFuture<T> call() {
+            return userExecutor.submit(task);
+         }
+      }, delayNanos, NANOSECONDS));
+   }
+
+   private PreparedInsert prepareInsert(String group, String name, Template template) {
       GoogleComputeEngineTemplateOptions options = GoogleComputeEngineTemplateOptions.class.cast(template.getOptions()).clone();
       checkState(options.getNetwork().isPresent(), "network was not present in template options");
       Hardware hardware = checkNotNull(template.getHardware(), "hardware must be set");
@@ -145,14 +351,11 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
       // Note that the ordering is significant here - the first disk must be the boot disk.
       List<PersistentDisk> disks = Lists.newArrayList();
 
-      if (!tryFind(options.getDisks(), isBootDisk()).isPresent()) {
-         Disk bootDisk = createBootDisk(template, name);
-
-         disks.add(new PersistentDisk(Mode.READ_WRITE,
-                                      bootDisk.getSelfLink(),
-                                      null,
-                                      true,
-                                      true));
+      boolean createBootDisk = !tryFind(options.getDisks(), isBootDisk()).isPresent();
+      if (createBootDisk) {
+         // the boot disk is created by the instance insert itself, so there is no disk to create and wait for first
+         disks.add(PersistentDisk.newBootDisk(new PersistentDisk.InitializeParams(name + "-" + GCE_BOOT_DISK_SUFFIX,
+                 template.getImage().getUri(), options.getBootDiskSize().or(10l)), !options.shouldKeepBootDisk()));
       }
 
       disks.addAll(options.getDisks());
@@ -174,89 +377,81 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
 
       metadataBuilder.put(GCE_IMAGE_METADATA_KEY, template.getImage().getUri().toString());
 
-      if (!options.shouldKeepBootDisk()) {
+      // a boot disk created with the instance is deleted with it; one attached from the options is deleted by us
+      if (!createBootDisk && !options.shouldKeepBootDisk()) {
          metadataBuilder.put(GCE_DELETE_BOOT_DISK_METADATA_KEY, Boolean.TRUE.toString());
       }
 
       instanceTemplate.metadata(metadataBuilder.build());
       instanceTemplate.serviceAccounts(options.getServiceAccounts());
 
-      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
-      final String zone = template.getLocation().getId();
-      Operation operation = instanceApi.createInZone(name, zone, instanceTemplate);
-
-      if (options.shouldBlockUntilRunning()) {
-         waitOperationDone(operation);
-      }
-
-      // some times the newly created instances are not immediately returned
-      AtomicReference<Instance> instance = Atomics.newReference();
-
-      retry(new Predicate<AtomicReference<Instance>>() {
-         @Override
-         public boolean apply(AtomicReference<Instance> input) {
-            input.set(instanceApi.getInZone(zone, name));
-            return input.get() != null;
-         }
-      }, operationCompleteCheckTimeout, operationCompleteCheckInterval, MILLISECONDS).apply(instance);
-
-      if (!options.getTags().isEmpty()) {
-         Operation tagsOperation = instanceApi.setTagsInZone(zone,
-                 name, options.getTags(), instance.get().getTags().getFingerprint());
+      // the user tags and the tags for security groups are sent with the insert instead of set afterwards
+      instanceTemplate.tags(ImmutableSet.<String>builder()
+              .addAll(options.getTags())
+              .addAll(firewallTagNamingConvention.get(group).tags(options.getInboundPorts()))
+              .build());
 
-         waitOperationDone(tagsOperation);
+      return new PreparedInsert(instanceTemplate, credentials, options.shouldBlockUntilRunning());
+   }
 
-         retry(new Predicate<AtomicReference<Instance>>() {
-            @Override
-            public boolean apply(AtomicReference<Instance> input) {
-               input.set(instanceApi.getInZone(zone, name));
-               return input.get() != null;
-            }
-         }, operationCompleteCheckTimeout, operationCompleteCheckInterval, MILLISECONDS).apply(instance);
+   /**
+    * The instance to insert for a node, along with the credentials to log into it.
+    */
+   private static final class PreparedInsert {
+      private final InstanceTemplate instanceTemplate;
+      private final LoginCredentials credentials;
+      private final boolean blockUntilRunning;
+
+      private PreparedInsert(InstanceTemplate instanceTemplate, LoginCredentials credentials,
+                             boolean blockUntilRunning) {
+         this.instanceTemplate = instanceTemplate;
+         this.credentials = credentials;
+         this.blockUntilRunning = blockUntilRunning;
       }
-
-      // Add tags for security groups
-      final FirewallTagNamingConvention naming = firewallTagNamingConvention.get(group);
-      Set<String> tags = FluentIterable.from(Ints.asList(options.getInboundPorts()))
-              .transform(new Function<Integer, String>(){
-                       @Override
-                       public String apply(Integer input) {
-                          return input != null
-                                  ? naming.name(input)
-                                  : null;
-                       }
-                    })
-              .toSet();
-      instanceApi.setTagsInZone(zone, instance.get().getName(), tags, instance.get().getTags().getFingerprint());
-
-      InstanceInZone instanceInZone = new InstanceInZone(instance.get(), zone);
-
-      return new NodeAndInitialCredentials<InstanceInZone>(instanceInZone, instanceInZone.slashEncode(), credentials);
    }
 
-   private Disk createBootDisk(Template template, String instanceName) {
-      URI imageUri = template.getImage().getUri();
-
-      GoogleComputeEngineTemplateOptions options = GoogleComputeEngineTemplateOptions.class.cast(template.getOptions()).clone();
-
-      int diskSize = options.getBootDiskSize().or(10l).intValue();
-
-      String diskName = instanceName + "-" + GCE_BOOT_DISK_SUFFIX;
-
-      Operation diskOperation = api.getDiskApiForProject(userProject.get())
-                                   .createFromImageWithSizeInZone(imageUri.toString(),
-                                                                  diskName,
-                                                                  diskSize,
-                                                                  template.getLocation().getId());
-
-      waitOperationDone(diskOperation);
-
-      return api.getDiskApiForProject(userProject.get()).getInZone(template.getLocation().getId(),
-                                                                   diskName);
+   /**
+    * An insert issued by {@link #submitNodeInsert}, waiting to be picked up by
+    * {@link #createNodeWithGroupEncodedIntoName}.
+    */
+   private static final class SubmittedInsert {
+      private final LoginCredentials credentials;
+      private final ListenableFuture<Operation> operation;
+
+      private SubmittedInsert(LoginCredentials credentials, ListenableFuture<Operation> operation) {
+         this.credentials = credentials;
+         this.operation = operation;
+      }
    }
 
    @Override
    public Iterable<MachineTypeInZone> listHardwareProfiles() {
+      if (aggregatedList) {
+         final Set<String> zoneIds = FluentIterable.from(zones.get().values())
+                 .transform(new Function<Location, String>() {
+                    @Override
+                    public String apply(Location input) {
+                       return input.getId();
+                    }
+                 }).toSet();
+         return api.getMachineTypeApiForProject(userProject.get())
+                 .aggregatedList()
+                 .concat()
+                 .filter(new Predicate<MachineType>() {
+                    @Override
+                    public boolean apply(MachineType input) {
+                       return zoneIds.contains(input.getZone());
+                    }
+                 })
+                 .transform(new Function<MachineType, MachineTypeInZone>() {
+
+                    @Override
+                    public MachineTypeInZone apply(MachineType arg0) {
+                       return new MachineTypeInZone(arg0, arg0.getZone());
+                    }
+                 }).toSet();
+      }
+
       ImmutableSet.Builder<MachineTypeInZone> builder = ImmutableSet.builder();
 
       for (final Location zone : zones.get().values()) {
@@ -309,28 +504,156 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
 
    @Override
    public Iterable<InstanceInZone> listNodes() {
-      return FluentIterable.from(zones.get().values()).transformAndConcat(new Function<Location, ImmutableSet<InstanceInZone>>() {
+      if (aggregatedList) {
+         final Map<URI, ? extends Location> zonesByUri = zones.get();
+         return api.getInstanceApiForProject(userProject.get())
+                 .aggregatedList()
+                 .concat()
+                 .filter(new Predicate<Instance>() {
+                    @Override
+                    public boolean apply(Instance input) {
+                       return zonesByUri.containsKey(input.getZone());
+                    }
+                 })
+                 .transform(new Function<Instance, InstanceInZone>() {
+
+                    @Override
+                    public InstanceInZone apply(Instance arg0) {
+                       return new InstanceInZone(arg0, zonesByUri.get(arg0.getZone()).getId());
+                    }
+                 }).toSet();
+      }
+
+      return listInAllZones(new Function<String, ImmutableSet<InstanceInZone>>() {
          @Override
-         public ImmutableSet<InstanceInZone> apply(final Location input) {
-            return api.getInstanceApiForProject(userProject.get()).listInZone(input.getId()).concat()
+         public ImmutableSet<InstanceInZone> apply(final String zone) {
+            return api.getInstanceApiForProject(userProject.get()).listInZone(zone).concat()
                     .transform(new Function<Instance, InstanceInZone>() {
 
                        @Override
                        public InstanceInZone apply(Instance arg0) {
-                          return new InstanceInZone(arg0, input.getId());
+                          return new InstanceInZone(arg0, zone);
                        }
                     }).toSet();
          }
-      }).toSet();
+      });
    }
 
+   /**
+    * Lists every zone on the user executor, with at most {@code listZonesConcurrency} listings in flight, and
+    * merges the results of each zone as it completes.
+    */
+   private <T> Set<T> listInAllZones(final Function<String, ? extends Iterable<T>> listZone) {
+      Map<String, Callable<Iterable<T>>> listings = Maps.newLinkedHashMap();
+      for (final Location zone : zones.get().values()) {
+         listings.put("zone " + zone.getId(), new Callable<Iterable<T>>() {
+            @Override
+            public Iterable<T> call() {
+               return listZone.apply(zone.getId());
+            }
+         });
+      }
+      return inParallel(listings);
+   }
+
+   /**
+    * Runs the given listings on the user executor, with at most {@code listZonesConcurrency} listings in flight,
+    * and merges their results. Listings are keyed by a description used when one of them times out.
+    */
+   private <T> Set<T> inParallel(Map<String, Callable<Iterable<T>>> listings) {
+      final Semaphore permits = new Semaphore(listZonesConcurrency);
+      Map<String, ListenableFuture<Iterable<T>>> futures = Maps.newLinkedHashMap();
+      try {
+         for (Map.Entry<String, Callable<Iterable<T>>> listing : listings.entrySet()) {
+            permits.acquireUninterruptibly();
+            ListenableFuture<Iterable<T>> future = userExecutor.submit(listing.getValue());
+            future.addListener(new Runnable() {
+               @Override
+               public void run() {
+                  permits.release();
+               }
+            }, sameThreadExecutor());
+            futures.put(listing.getKey(), future);
+         }
+
+         ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+         for (Map.Entry<String, ListenableFuture<Iterable<T>>> future : futures.entrySet()) {
+            try {
+               builder.addAll(future.getValue().get(listZoneTimeout, MILLISECONDS));
+            } catch (TimeoutException e) {
+               throw new UncheckedTimeoutException("listing " + future.getKey() + " did not complete within "
+                       + listZoneTimeout + "ms", e);
+            } catch (ExecutionException e) {
+               throw Throwables.propagate(e.getCause());
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw Throwables.propagate(e);
+            }
+         }
+         return builder.build();
+      } finally {
+         for (ListenableFuture<Iterable<T>> future : futures.values()) {
+            future.cancel(true);
+         }
+      }
+   }
+
+   /**
+    * Only fetches the requested instances. The ids are grouped by zone: zones with a few ids get each instance
+    * directly, while zones with many ids are listed with a filter on the instance names.
+    */
    @Override
    public Iterable<InstanceInZone> listNodesByIds(final Iterable<String> ids) {
-      return filter(listNodes(), new Predicate<InstanceInZone>() {
+      final Set<String> requestedIds = ImmutableSet.copyOf(ids);
+      SetMultimap<String, String> namesByZone = LinkedHashMultimap.create();
+      for (String id : requestedIds) {
+         SlashEncodedIds slashEncodedIds = SlashEncodedIds.fromSlashEncoded(id);
+         namesByZone.put(slashEncodedIds.getFirstId(), slashEncodedIds.getSecondId());
+      }
+
+      Map<String, Callable<Iterable<InstanceInZone>>> listings = Maps.newLinkedHashMap();
+      for (Map.Entry<String, Collection<String>> zoneNames : namesByZone.asMap().entrySet()) {
+         final String zone = zoneNames.getKey();
+         if (zoneNames.getValue().size() <= MAX_GETS_PER_ZONE) {
+            for (final String name : zoneNames.getValue()) {
+               listings.put("node " + zone + "/" + name, new Callable<Iterable<InstanceInZone>>() {
+                  @Override
+                  public Iterable<InstanceInZone> call() {
+                     InstanceInZone node = getNode(SlashEncodedIds.fromTwoIds(zone, name).slashEncode());
+                     return node == null ? ImmutableSet.<InstanceInZone>of() : ImmutableSet.of(node);
+                  }
+               });
+            }
+         } else {
+            List<List<String>> batches = Lists.partition(ImmutableList.copyOf(zoneNames.getValue()),
+                    MAX_NAMES_PER_FILTER);
+            for (int i = 0; i < batches.size(); i++) {
+               final ListOptions options = new ListOptions.Builder()
+                       .filter("name eq (" + Joiner.on('|').join(batches.get(i)) + ")");
+               listings.put("zone " + zone + " by name (" + (i + 1) + "/" + batches.size() + ")",
+                       new Callable<Iterable<InstanceInZone>>() {
+                          @Override
+                          public Iterable<InstanceInZone> call() {
+                             return api.getInstanceApiForProject(userProject.get()).listInZone(zone, options)
+                                     .concat()
+                                     .transform(new Function<Instance, InstanceInZone>() {
+
+                                        @Override
+                                        public InstanceInZone apply(Instance arg0) {
+                                           return new InstanceInZone(arg0, zone);
+                                        }
+                                     });
+                          }
+                       });
+            }
+         }
+      }
+
+      return filter(inParallel(listings), new Predicate<InstanceInZone>() {
 
          @Override
          public boolean apply(InstanceInZone instanceInZone) {
-            return contains(ids, instanceInZone.getInstance().getName());
+            return requestedIds.contains(instanceInZone.slashEncode());
          }
       });
    }
@@ -338,33 +661,121 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
    @Override
    public void destroyNode(final String name) {
       SlashEncodedIds slashEncodedIds = SlashEncodedIds.fromSlashEncoded(name);
-      String diskName = null;
+      Optional<String> diskName = Optional.absent();
       try {
          Instance instance = api.getInstanceApiForProject(userProject.get()).getInZone(slashEncodedIds.getFirstId(),
                                                                               slashEncodedIds.getSecondId());
-         if (instance.getMetadata().getItems().get(GCE_DELETE_BOOT_DISK_METADATA_KEY).equals("true")) {
-            Optional<AttachedDisk> disk = tryFind(instance.getDisks(), new Predicate<AttachedDisk>() {
-               @Override
-               public boolean apply(AttachedDisk input) {
-                  return PersistentAttachedDisk.class.isInstance(input) &&
-                         PersistentAttachedDisk.class.cast(input).isBoot();
-               }
-            });
-            if (disk.isPresent()) {
-               diskName = PersistentAttachedDisk.class.cast(disk.get()).getSourceDiskName();
-            }
-         }
+         diskName = bootDiskToDelete(instance);
       } catch (Exception e) {
          // TODO: what exception actually gets thrown here if the instance doesn't really exist?
       }
       waitOperationDone(api.getInstanceApiForProject(userProject.get()).deleteInZone(slashEncodedIds.getFirstId(),
               slashEncodedIds.getSecondId()));
 
-      if (diskName != null) {
+      if (diskName.isPresent()) {
          waitOperationDone(api.getDiskApiForProject(userProject.get()).deleteInZone(slashEncodedIds.getFirstId(),
-                                                                                    diskName));
+                                                                                    diskName.get()));
+      }
+
+   }
+
+   /**
+    * Destroys many nodes at once: all the instance deletes are issued before waiting on any, and the boot disks of
+    * the deleted instances are then deleted together in the same way.
+    *
+    * @return the ids of the nodes that no longer exist, which includes those that were already gone
+    */
+   public Set<String> destroyNodes(Iterable<String> ids) {
+      Set<String> requestedIds = ImmutableSet.copyOf(ids);
+      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      final DiskApi diskApi = api.getDiskApiForProject(userProject.get());
+
+      Set<String> destroyed = Sets.newLinkedHashSet(requestedIds);
+      Map<InstanceInZone, ListenableFuture<Operation>> instanceDeletes = Maps.newLinkedHashMap();
+      for (final InstanceInZone instance : listNodesByIds(requestedIds)) {
+         instanceDeletes.put(instance, submitZoneOperation(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               return instanceApi.deleteInZone(instance.getFirstId(), instance.getSecondId());
+            }
+         }));
+      }
+
+      Map<String, ListenableFuture<Operation>> diskDeletes = Maps.newLinkedHashMap();
+      for (Map.Entry<InstanceInZone, ListenableFuture<Operation>> delete : instanceDeletes.entrySet()) {
+         final InstanceInZone instance = delete.getKey();
+         if (!isSuccessful(delete.getValue(), "delete instance " + instance.slashEncode())) {
+            destroyed.remove(instance.slashEncode());
+            continue;
+         }
+         final Optional<String> diskName = bootDiskToDelete(instance.getInstance());
+         if (diskName.isPresent()) {
+            diskDeletes.put(SlashEncodedIds.fromTwoIds(instance.getFirstId(), diskName.get()).slashEncode(),
+                    submitZoneOperation(new Callable<Operation>() {
+                       @Override
+                       public Operation call() {
+                          return diskApi.deleteInZone(instance.getFirstId(), diskName.get());
+                       }
+                    }));
+         }
+      }
+
+      for (Map.Entry<String, ListenableFuture<Operation>> delete : diskDeletes.entrySet()) {
+         // the node itself is gone, so a disk left behind does not make its destruction fail
+         isSuccessful(delete.getValue(), "delete boot disk " + delete.getKey());
+      }
+      return destroyed;
+   }
+
+   /**
+    * Issues a request for a zone operation on the user executor.
+    *
+    * @return a future of the DONE operation, or of null if the request found nothing to operate on
+    */
+   private ListenableFuture<Operation> submitZoneOperation(final Callable<Operation> request) {
+      return Futures.dereference(userExecutor.submit(new Callable<ListenableFuture<Operation>>() {
+         @Override
+         public ListenableFuture<Operation> call() throws Exception {
+            Operation operation = request.call();
+            return operation == null ? Futures.<Operation>immediateFuture(null)
+                    : operationWaiter.waitFor(operation, Scope.ZONE);
+         }
+      }));
+   }
+
+   private boolean isSuccessful(ListenableFuture<Operation> pending, String description) {
+      try {
+         Operation operation = operationWaiter.await(pending);
+         if (operation != null && operation.getHttpError().isPresent()) {
+            HttpResponse response = operation.getHttpError().get();
+            logger.warn("%s failed. Http Error Code: %d HttpError: %s", description, response.getStatusCode(),
+                    response.getMessage());
+            return false;
+         }
+         return true;
+      } catch (RuntimeException e) {
+         logger.warn(e, "%s failed", description);
+         return false;
       }
+   }
 
+   /**
+    * @return the boot disk that jclouds attached to the instance and has to delete along with it.
+    */
+   private static Optional<String> bootDiskToDelete(Instance instance) {
+      if ("true".equals(instance.getMetadata().getItems().get(GCE_DELETE_BOOT_DISK_METADATA_KEY))) {
+         Optional<AttachedDisk> disk = tryFind(instance.getDisks(), new Predicate<AttachedDisk>() {
+            @Override
+            public boolean apply(AttachedDisk input) {
+               return PersistentAttachedDisk.class.isInstance(input) &&
+                      PersistentAttachedDisk.class.cast(input).isBoot();
+            }
+         });
+         if (disk.isPresent()) {
+            return Optional.of(PersistentAttachedDisk.class.cast(disk.get()).getSourceDiskName());
+         }
+      }
+      return Optional.absent();
    }
 
    @Override
@@ -419,16 +830,13 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
    }
 
    private void waitOperationDone(Operation operation) {
-      AtomicReference<Operation> operationRef = Atomics.newReference(operation);
-
       // wait for the operation to complete
-      if (!retryOperationDonePredicate.apply(operationRef)) {
-         throw new UncheckedTimeoutException("operation did not reach DONE state" + operationRef.get());
-      }
+      checkOperationSucceeded(operationWaiter.await(operation, Scope.ZONE));
+   }
 
-      // check if the operation failed
-      if (operationRef.get().getHttpError().isPresent()) {
-         HttpResponse response = operationRef.get().getHttpError().get();
+   private void checkOperationSucceeded(Operation done) {
+      if (done.getHttpError().isPresent()) {
+         HttpResponse response = done.getHttpError().get();
          throw new IllegalStateException("operation failed. Http Error Code: " + response.getStatusCode() +
                  " HttpError: " + response.getMessage());
       }
@@ -53,6 +53,7 @@ import org.jclouds.googlecomputeengine.compute.functions.GoogleComputeEngineImag
 import org.jclouds.googlecomputeengine.compute.functions.InstanceInZoneToNodeMetadata;
 import org.jclouds.googlecomputeengine.compute.functions.MachineTypeInZoneToHardware;
 import org.jclouds.googlecomputeengine.compute.functions.NetworkToSecurityGroup;
+import org.jclouds.googlecomputeengine.compute.functions.NetworksToSecurityGroups;
 import org.jclouds.googlecomputeengine.compute.functions.OrphanedGroupsFromDeadNodes;
 import org.jclouds.googlecomputeengine.compute.functions.RegionToLocation;
 import org.jclouds.googlecomputeengine.compute.functions.ZoneToLocation;
@@ -127,6 +128,9 @@ public class GoogleComputeEngineServiceContextModule
       bind(new TypeLiteral<Function<Network, SecurityGroup>>() {})
               .to(NetworkToSecurityGroup.class);
 
+      bind(new TypeLiteral<Function<Iterable<Network>, Set<SecurityGroup>>>() {})
+              .to(NetworksToSecurityGroups.class);
+
       bind(new TypeLiteral<Function<TemplateOptions, ImmutableMap.Builder<String, String>>>() {})
               .to(BuildInstanceMetadata.class);
 
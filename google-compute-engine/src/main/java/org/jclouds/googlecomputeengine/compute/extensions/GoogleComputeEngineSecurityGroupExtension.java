@@ -18,19 +18,18 @@ package org.jclouds.googlecomputeengine.compute.extensions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
 import static org.jclouds.googlecomputeengine.compute.strategy.CreateNodesWithGroupEncodedIntoNameThenAddToSet.DEFAULT_INTERNAL_NETWORK_RANGE;
 import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.equalsIpPermission;
 import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.providesIpPermission;
-import static org.jclouds.util.Predicates2.retry;
 
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import org.jclouds.compute.domain.SecurityGroup;
 import org.jclouds.compute.extensions.SecurityGroupExtension;
@@ -45,9 +44,13 @@ import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.SlashEncodedIds;
 import org.jclouds.googlecomputeengine.domain.internal.NetworkAndAddressRange;
+import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
 import org.jclouds.googlecomputeengine.options.FirewallOptions;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.googlecomputeengine.options.ListOptions.Builder;
+import org.jclouds.googlecomputeengine.predicates.FirewallRuleIndex;
 import org.jclouds.net.domain.IpPermission;
 import org.jclouds.net.domain.IpProtocol;
 
@@ -56,11 +59,13 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.util.concurrent.Atomics;
+import com.google.common.collect.Sets;
 
 /**
  * An extension to compute service to allow for the manipulation of {@link org.jclouds.compute.domain.SecurityGroup}s. Implementation
@@ -74,10 +79,9 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
    protected final GroupNamingConvention.Factory namingConvention;
    protected final LoadingCache<NetworkAndAddressRange, Network> networkCreator;
    protected final Function<Network, SecurityGroup> groupConverter;
+   protected final Function<Iterable<Network>, Set<SecurityGroup>> groupsConverter;
    protected final GoogleComputeEngineApi api;
-   protected final Predicate<AtomicReference<Operation>> operationDonePredicate;
-   protected final long operationCompleteCheckInterval;
-   protected final long operationCompleteCheckTimeout;
+   protected final OperationWaiter operationWaiter;
 
    @Inject
    public GoogleComputeEngineSecurityGroupExtension(GoogleComputeEngineApi api,
@@ -85,24 +89,20 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
                                                     GroupNamingConvention.Factory namingConvention,
                                                     LoadingCache<NetworkAndAddressRange, Network> networkCreator,
                                                     Function<Network, SecurityGroup> groupConverter,
-                                                    @Named("global") Predicate<AtomicReference<Operation>> operationDonePredicate,
-                                                    @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-                                                    @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+                                                    Function<Iterable<Network>, Set<SecurityGroup>> groupsConverter,
+                                                    OperationWaiter operationWaiter) {
       this.api = checkNotNull(api, "api");
       this.userProject = checkNotNull(userProject, "userProject");
       this.namingConvention = checkNotNull(namingConvention, "namingConvention");
       this.networkCreator = checkNotNull(networkCreator, "networkCreator");
       this.groupConverter = checkNotNull(groupConverter, "groupConverter");
-      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
-              "operation completed check interval");
-      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
-              "operation completed check timeout");
-      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operationDonePredicate");
+      this.groupsConverter = checkNotNull(groupsConverter, "groupsConverter");
+      this.operationWaiter = checkNotNull(operationWaiter, "operationWaiter");
    }
 
    @Override
    public Set<SecurityGroup> listSecurityGroups() {
-      return api.getNetworkApiForProject(userProject.get()).list().concat().transform(groupConverter).toSet();
+      return groupsConverter.apply(api.getNetworkApiForProject(userProject.get()).list().concat());
    }
 
    @Override
@@ -173,25 +173,22 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
 
       ListOptions options = new ListOptions.Builder().filter("network eq .*/" + id);
 
-      FluentIterable<Firewall> fws = api.getFirewallApiForProject(userProject.get()).list(options).concat();
-
-      for (Firewall fw : fws) {
-         AtomicReference<Operation> operation = Atomics.newReference(api.getFirewallApiForProject(userProject.get())
-                 .delete(fw.getName()));
-
-         retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
-
-         checkState(!operation.get().getHttpError().isPresent(), "Could not delete firewall, operation failed" + operation);
+      FirewallApi firewallApi = api.getFirewallApiForProject(userProject.get());
+      List<Callable<Operation>> deletes = Lists.newArrayList();
+      for (Firewall fw : firewallApi.list(options).concat()) {
+         deletes.add(deleteFirewall(firewallApi, fw.getName()));
       }
 
-      AtomicReference<Operation> operation = Atomics.newReference(
-              api.getNetworkApiForProject(userProject.get()).delete(id));
+      // the network can only be deleted once none of its firewalls are left
+      for (Operation operation : operationWaiter.awaitAll(deletes, Scope.GLOBAL)) {
+         checkState(operation == null || !operation.getHttpError().isPresent(),
+                 "Could not delete firewall, operation failed" + operation);
+      }
 
-      retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
+      Operation operation = operationWaiter.await(api.getNetworkApiForProject(userProject.get()).delete(id),
+              Scope.GLOBAL);
 
-      checkState(!operation.get().getHttpError().isPresent(), "Could not create network, operation failed" + operation);
+      checkState(!operation.getHttpError().isPresent(), "Could not create network, operation failed" + operation);
 
       return true;
    }
@@ -227,16 +224,13 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
       }
       fwOptions.addAllowedRule(ruleBuilder.build());
 
-      AtomicReference<Operation> operation = Atomics.newReference(api.getFirewallApiForProject(userProject
+      Operation operation = operationWaiter.await(api.getFirewallApiForProject(userProject
               .get()).createInNetwork(
               uniqueFwName,
               group.getUri(),
-              fwOptions));
-
-      retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-              MILLISECONDS).apply(operation);
+              fwOptions), Scope.GLOBAL);
 
-      checkState(!operation.get().getHttpError().isPresent(), "Could not create firewall, operation failed" + operation);
+      checkState(!operation.getHttpError().isPresent(), "Could not create firewall, operation failed" + operation);
 
       return getSecurityGroupById(group.getId());
    }
@@ -257,6 +251,76 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
 
    }
 
+   /**
+    * Adds all the given permissions to the group, listing its firewalls once and creating only the firewalls needed
+    * for the permissions not already provided.
+    * <p/>
+    * Missing permissions sharing the same source tags and source ranges are merged into a single firewall, with one
+    * rule per protocol. The firewalls are created concurrently and the group is refreshed once they are all done.
+    * <p/>
+    * Note that {@link #removeIpPermission(IpPermission, SecurityGroup)} only deletes firewalls granting exactly the
+    * given permission, so a permission merged with others by this method is not removed by it.
+    *
+    * @param ipPermissions the permissions to add to the group.
+    * @param group         the group to add the permissions to.
+    * @return the group as it is once all the permissions are provided.
+    */
+   public SecurityGroup addIpPermissions(Iterable<IpPermission> ipPermissions, SecurityGroup group) {
+      checkNotNull(group, "group");
+      checkNotNull(ipPermissions, "ipPermissions");
+
+      Network network = api.getNetworkApiForProject(userProject.get()).get(group.getId());
+      checkNotNull(network, "network for group %s", group.getId());
+
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/" + group.getName());
+
+      final FirewallApi firewallApi = api.getFirewallApiForProject(userProject.get());
+      FirewallRuleIndex existing = new FirewallRuleIndex(firewallApi.list(options).concat());
+
+      Multimap<Map.Entry<Set<String>, Set<String>>, IpPermission> missingBySources = LinkedHashMultimap.create();
+      for (IpPermission ipPermission : ipPermissions) {
+         if (!existing.provides(checkNotNull(ipPermission, "ipPermission"))) {
+            missingBySources.put(Maps.<Set<String>, Set<String>>immutableEntry(ipPermission.getGroupIds(),
+                    ipPermission.getCidrBlocks()), ipPermission);
+         }
+      }
+
+      if (missingBySources.isEmpty()) {
+         // All the permissions already exist.
+         return group;
+      }
+
+      List<Callable<Operation>> creates = Lists.newArrayList();
+      for (Map.Entry<Set<String>, Collection<IpPermission>> sources : missingBySources.asMap().entrySet()) {
+         final String uniqueFwName = namingConvention.createWithoutPrefix().uniqueNameForGroup(group.getName());
+         final URI networkUri = group.getUri();
+         final FirewallOptions fwOptions = new FirewallOptions();
+         fwOptions.name(uniqueFwName);
+         fwOptions.network(networkUri);
+         if (!sources.getKey().getKey().isEmpty()) {
+            fwOptions.sourceTags(sources.getKey().getKey());
+         }
+         if (!sources.getKey().getValue().isEmpty()) {
+            fwOptions.sourceRanges(sources.getKey().getValue());
+         }
+         fwOptions.allowedRules(rulesFor(sources.getValue()));
+
+         creates.add(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               return firewallApi.createInNetwork(uniqueFwName, networkUri, fwOptions);
+            }
+         });
+      }
+
+      for (Operation operation : operationWaiter.awaitAll(creates, Scope.GLOBAL)) {
+         checkState(operation == null || !operation.getHttpError().isPresent(),
+                 "Could not create firewall, operation failed" + operation);
+      }
+
+      return groupConverter.apply(network);
+   }
+
    @Override
    public SecurityGroup removeIpPermission(IpPermission ipPermission, SecurityGroup group) {
       checkNotNull(group, "group");
@@ -266,18 +330,15 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
 
       ListOptions options = new ListOptions.Builder().filter("network eq .*/" + group.getName());
 
-      FluentIterable<Firewall> fws = api.getFirewallApiForProject(userProject.get()).list(options).concat();
-
-      for (Firewall fw : fws) {
-         if (equalsIpPermission(ipPermission).apply(fw)) {
-            AtomicReference<Operation> operation = Atomics.newReference(api.getFirewallApiForProject(userProject.get())
-                    .delete(fw.getName()));
-
-            retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                    MILLISECONDS).apply(operation);
+      FirewallApi firewallApi = api.getFirewallApiForProject(userProject.get());
+      List<Callable<Operation>> deletes = Lists.newArrayList();
+      for (Firewall fw : firewallApi.list(options).concat().filter(equalsIpPermission(ipPermission))) {
+         deletes.add(deleteFirewall(firewallApi, fw.getName()));
+      }
 
-            checkState(!operation.get().getHttpError().isPresent(), "Could not delete firewall, operation failed" + operation);
-         }
+      for (Operation operation : operationWaiter.awaitAll(deletes, Scope.GLOBAL)) {
+         checkState(operation == null || !operation.getHttpError().isPresent(),
+                 "Could not delete firewall, operation failed" + operation);
       }
 
       return getSecurityGroupById(group.getId());
@@ -319,6 +380,47 @@ public class GoogleComputeEngineSecurityGroupExtension implements SecurityGroupE
       return true;
    }
 
+   /**
+    * Builds one rule per protocol, allowing all the ports of the permissions for that protocol, or any port if one of
+    * them does not restrict the ports.
+    */
+   private static Set<Firewall.Rule> rulesFor(Iterable<IpPermission> ipPermissions) {
+      Map<IpProtocol, Firewall.Rule.Builder> rules = Maps.newLinkedHashMap();
+      Set<IpProtocol> anyPort = Sets.newHashSet();
+      for (IpPermission ipPermission : ipPermissions) {
+         IpProtocol protocol = ipPermission.getIpProtocol();
+         if (!rules.containsKey(protocol)) {
+            rules.put(protocol, Firewall.Rule.builder().IpProtocol(protocol));
+         }
+         if (ipPermission.getToPort() <= 0) {
+            anyPort.add(protocol);
+         } else if (ipPermission.getFromPort() == ipPermission.getToPort()) {
+            rules.get(protocol).addPort(ipPermission.getToPort());
+         } else {
+            rules.get(protocol).addPortRange(ipPermission.getFromPort(), ipPermission.getToPort());
+         }
+      }
+
+      ImmutableSet.Builder<Firewall.Rule> builder = ImmutableSet.builder();
+      for (Map.Entry<IpProtocol, Firewall.Rule.Builder> rule : rules.entrySet()) {
+         if (anyPort.contains(rule.getKey())) {
+            builder.add(Firewall.Rule.builder().IpProtocol(rule.getKey()).build());
+         } else {
+            builder.add(rule.getValue().build());
+         }
+      }
+      return builder.build();
+   }
+
+   private static Callable<Operation> deleteFirewall(final FirewallApi firewallApi, final String name) {
+      return new Callable<Operation>() {
+         @Override
+         public Operation call() {
+            return firewallApi.delete(name);
+         }
+      };
+   }
+
    private SecurityGroup groupForTagsInNetwork(Network nw, final Set <String> tags) {
       ListOptions opts = new Builder().filter("network eq .*/" + nw.getName());
       Set<Firewall> fws = api.getFirewallApiForProject(userProject.get()).list(opts).concat()
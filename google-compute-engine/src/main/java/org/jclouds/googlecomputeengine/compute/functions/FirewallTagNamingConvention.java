@@ -16,10 +16,22 @@
  */
 package org.jclouds.googlecomputeengine.compute.functions;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CONSOLIDATED_FIREWALLS;
+
+import java.util.Map;
+import java.util.Set;
+
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import org.jclouds.compute.functions.GroupNamingConvention;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 /**
  * The convention for naming instance tags that firewall rules recognise.
@@ -28,30 +40,127 @@ import javax.inject.Inject;
  */
 public class FirewallTagNamingConvention {
 
+   /**
+    * The maximum length of a firewall name or an instance tag.
+    */
+   private static final int MAX_NAME_LENGTH = 63;
+
    public static class Factory {
 
       private final GroupNamingConvention.Factory namingConvention;
+      private final boolean consolidatedFirewalls;
 
-      @Inject
       public Factory(GroupNamingConvention.Factory namingConvention) {
+         this(namingConvention, false);
+      }
+
+      @Inject
+      public Factory(GroupNamingConvention.Factory namingConvention,
+                     @Named(CONSOLIDATED_FIREWALLS) boolean consolidatedFirewalls) {
          this.namingConvention = namingConvention;
+         this.consolidatedFirewalls = consolidatedFirewalls;
       }
 
       public FirewallTagNamingConvention get(String groupName) {
-         return new FirewallTagNamingConvention(namingConvention.create().sharedNameForGroup(groupName));
+         return new FirewallTagNamingConvention(namingConvention.create().sharedNameForGroup(groupName),
+                 consolidatedFirewalls);
       }
    }
 
    private final String sharedResourceName;
+   private final boolean consolidatedFirewalls;
 
    public FirewallTagNamingConvention(String sharedResourceName) {
+      this(sharedResourceName, false);
+   }
+
+   public FirewallTagNamingConvention(String sharedResourceName, boolean consolidatedFirewalls) {
       this.sharedResourceName = sharedResourceName;
+      this.consolidatedFirewalls = consolidatedFirewalls;
+   }
+
+   /**
+    * @return whether all the inbound ports of a node are opened by a single firewall
+    * @see org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#CONSOLIDATED_FIREWALLS
+    */
+   public boolean isConsolidated() {
+      return consolidatedFirewalls;
    }
 
    public String name(int port) {
       return String.format("%s-port-%s", sharedResourceName, port);
    }
 
+   /**
+    * @return the name of the firewall opening exactly the given port ranges, which is also its target tag. Each range
+    * is written as its lower port, followed by {@code to} and its upper port unless it is a single port, and the
+    * ranges are joined with dashes in ascending order, so different port sets never share a name.
+    */
+   public String name(Set<Range<Integer>> ranges) {
+      checkArgument(!ranges.isEmpty(), "no ports to name");
+      StringBuilder name = new StringBuilder(sharedResourceName).append("-port");
+      for (Range<Integer> range : ranges) {
+         name.append('-').append(name(range));
+      }
+      return name.toString();
+   }
+
+   private static String name(Range<Integer> range) {
+      return range.lowerEndpoint().equals(range.upperEndpoint()) ? range.lowerEndpoint().toString()
+              : range.lowerEndpoint() + "to" + range.upperEndpoint();
+   }
+
+   /**
+    * Splits the given ports into the consolidated firewalls that open them for a node.
+    * <p>
+    * The ports are merged into {@link #portRanges ranges}, which are named together by as few firewalls as fit in the
+    * maximum name length. Every firewall only opens the ports in its name, so a node tagged with the firewalls of its
+    * own ports is reachable on those ports only, as it is with one firewall per port.
+    *
+    * @return the port ranges opened by each firewall, keyed by the name of the firewall
+    */
+   public Map<String, Set<Range<Integer>>> portSets(int... ports) {
+      int maxLength = MAX_NAME_LENGTH - (sharedResourceName + "-port").length();
+      ImmutableMap.Builder<String, Set<Range<Integer>>> portSets = ImmutableMap.builder();
+      ImmutableSet.Builder<Range<Integer>> portSet = ImmutableSet.builder();
+      int length = 0;
+      for (Range<Integer> range : portRanges(ports)) {
+         int rangeLength = name(range).length() + 1;
+         checkArgument(rangeLength <= maxLength, "%s is too long to name firewalls for port %s", sharedResourceName,
+                 range);
+         if (length + rangeLength > maxLength) {
+            Set<Range<Integer>> full = portSet.build();
+            portSets.put(name(full), full);
+            portSet = ImmutableSet.builder();
+            length = 0;
+         }
+         portSet.add(range);
+         length += rangeLength;
+      }
+      if (length > 0) {
+         Set<Range<Integer>> last = portSet.build();
+         portSets.put(name(last), last);
+      }
+      return portSets.build();
+   }
+
+   /**
+    * @return the tags for a node with the given inbound ports, which are those of the firewalls that open them
+    */
+   public Set<String> tags(int... ports) {
+      if (ports.length == 0) {
+         return ImmutableSet.of();
+      }
+      if (consolidatedFirewalls) {
+         return portSets(ports).keySet();
+      }
+      ImmutableSet.Builder<String> tags = ImmutableSet.builder();
+      for (int port : ports) {
+         tags.add(name(port));
+      }
+      return tags.build();
+   }
+
    public Predicate<? super String> isFirewallTag() {
       return new Predicate<String>() {
          @Override
@@ -61,4 +170,27 @@ public class FirewallTagNamingConvention {
       };
    }
 
+   /**
+    * @return the given ports merged into closed ranges of consecutive ports, in ascending order
+    */
+   public static Set<Range<Integer>> portRanges(int... ports) {
+      ImmutableSet.Builder<Range<Integer>> ranges = ImmutableSet.builder();
+      Integer lower = null;
+      Integer upper = null;
+      for (int port : Sets.newTreeSet(Ints.asList(ports))) {
+         if (upper != null && port == upper + 1) {
+            upper = port;
+            continue;
+         }
+         if (lower != null) {
+            ranges.add(Range.closed(lower, upper));
+         }
+         lower = upper = port;
+      }
+      if (lower != null) {
+         ranges.add(Range.closed(lower, upper));
+      }
+      return ranges.build();
+   }
+
 }
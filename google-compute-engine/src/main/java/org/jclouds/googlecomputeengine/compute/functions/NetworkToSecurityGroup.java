@@ -16,6 +16,10 @@
  */
 package org.jclouds.googlecomputeengine.compute.functions;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -33,7 +37,10 @@ import org.jclouds.net.domain.IpPermission;
 
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
 
 /**
  * A function for transforming a GCE-specific Network into a generic
@@ -61,6 +68,38 @@ public class NetworkToSecurityGroup implements Function<Network, SecurityGroup>
 
    @Override
    public SecurityGroup apply(Network network)  {
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/" + network.getName());
+
+      return toSecurityGroup(network, api.getFirewallApiForProject(project.get()).list(options).concat());
+   }
+
+   /**
+    * Transforms all the given networks at once, listing the firewalls of the project a single time and matching them
+    * to their network by its self link, instead of listing the firewalls of each network separately.
+    */
+   public Set<SecurityGroup> toSecurityGroups(Iterable<Network> networks) {
+      // the networks may be a paged listing, which is only walked once
+      List<Network> copy = ImmutableList.copyOf(networks);
+      if (copy.isEmpty()) {
+         return ImmutableSet.of();
+      }
+
+      ImmutableListMultimap<URI, Firewall> firewallsByNetwork = Multimaps.index(
+              api.getFirewallApiForProject(project.get()).list().concat(), new Function<Firewall, URI>() {
+                 @Override
+                 public URI apply(Firewall firewall) {
+                    return firewall.getNetwork();
+                 }
+              });
+
+      ImmutableSet.Builder<SecurityGroup> groups = ImmutableSet.builder();
+      for (Network network : copy) {
+         groups.add(toSecurityGroup(network, firewallsByNetwork.get(network.getSelfLink())));
+      }
+      return groups.build();
+   }
+
+   private SecurityGroup toSecurityGroup(Network network, Iterable<Firewall> firewalls) {
       SecurityGroupBuilder builder = new SecurityGroupBuilder();
 
       builder.id(network.getName());
@@ -70,9 +109,7 @@ public class NetworkToSecurityGroup implements Function<Network, SecurityGroup>
 
       ImmutableSet.Builder permBuilder = ImmutableSet.builder();
 
-      ListOptions options = new ListOptions.Builder().filter("network eq .*/" + network.getName());
-
-      for (Firewall fw : api.getFirewallApiForProject(project.get()).list(options).concat()) {
+      for (Firewall fw : firewalls) {
          permBuilder.addAll(firewallToPerms.apply(fw));
       }
 
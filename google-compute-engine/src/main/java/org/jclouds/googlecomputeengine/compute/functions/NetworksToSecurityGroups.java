@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.jclouds.compute.domain.SecurityGroup;
+import org.jclouds.googlecomputeengine.domain.Network;
+
+import com.google.common.base.Function;
+
+/**
+ * A function for transforming many GCE-specific Networks into generic SecurityGroup objects at once, with a single
+ * listing of the firewalls of the project.
+ *
+ * @see NetworkToSecurityGroup#toSecurityGroups(Iterable)
+ */
+public class NetworksToSecurityGroups implements Function<Iterable<Network>, Set<SecurityGroup>> {
+
+   private final NetworkToSecurityGroup networkToSecurityGroup;
+
+   @Inject
+   public NetworksToSecurityGroups(NetworkToSecurityGroup networkToSecurityGroup) {
+      this.networkToSecurityGroup = checkNotNull(networkToSecurityGroup, "networkToSecurityGroup");
+   }
+
+   @Override
+   public Set<SecurityGroup> apply(Iterable<Network> networks) {
+      return networkToSecurityGroup.toSecurityGroups(networks);
+   }
+}
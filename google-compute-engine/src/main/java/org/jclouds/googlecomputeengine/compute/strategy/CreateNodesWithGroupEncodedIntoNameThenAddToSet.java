@@ -19,14 +19,12 @@ package org.jclouds.googlecomputeengine.compute.strategy;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableSet.of;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
-import static org.jclouds.util.Predicates2.retry;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,6 +39,7 @@ import org.jclouds.compute.strategy.CreateNodeWithGroupEncodedIntoName;
 import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
 import org.jclouds.compute.strategy.ListNodesStrategy;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.GoogleComputeEngineServiceAdapter;
 import org.jclouds.googlecomputeengine.compute.functions.FirewallTagNamingConvention;
 import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
 import org.jclouds.googlecomputeengine.config.UserProject;
@@ -49,17 +48,23 @@ import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.internal.NetworkAndAddressRange;
 import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
 import org.jclouds.googlecomputeengine.options.FirewallOptions;
+import org.jclouds.net.domain.IpProtocol;
 
-import com.google.common.base.Predicate;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
-import com.google.common.util.concurrent.Atomics;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * @author David Alves
@@ -73,10 +78,10 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
    private final GoogleComputeEngineApi api;
    private final Supplier<String> userProject;
    private final LoadingCache<NetworkAndAddressRange, Network> networkMap;
-   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
-   private final long operationCompleteCheckInterval;
-   private final long operationCompleteCheckTimeout;
+   private final OperationWaiter operationWaiter;
    private final FirewallTagNamingConvention.Factory firewallTagNamingConvention;
+   private final GoogleComputeEngineServiceAdapter computeServiceAdapter;
+   private final Striped<Lock> groupLocks = Striped.lazyWeakLock(64);
 
    @Inject
    protected CreateNodesWithGroupEncodedIntoNameThenAddToSet(
@@ -89,31 +94,27 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
                    customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory,
            GoogleComputeEngineApi api,
            @UserProject Supplier<String> userProject,
-           @Named("global") Predicate<AtomicReference<Operation>> operationDonePredicate,
-           @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-           @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+           OperationWaiter operationWaiter,
            LoadingCache<NetworkAndAddressRange, Network> networkMap,
-           FirewallTagNamingConvention.Factory firewallTagNamingConvention) {
+           FirewallTagNamingConvention.Factory firewallTagNamingConvention,
+           GoogleComputeEngineServiceAdapter computeServiceAdapter) {
       super(addNodeWithGroupStrategy, listNodesStrategy, namingConvention, userExecutor,
               customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory);
 
       this.api = checkNotNull(api, "google compute api");
       this.userProject = checkNotNull(userProject, "user project name");
-      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
-              "operation completed check interval");
-      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
-              "operation completed check timeout");
-      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operationDonePredicate");
+      this.operationWaiter = checkNotNull(operationWaiter, "operationWaiter");
       this.networkMap = checkNotNull(networkMap, "networkMap");
       this.firewallTagNamingConvention = checkNotNull(firewallTagNamingConvention, "firewallTagNamingConvention");
+      this.computeServiceAdapter = checkNotNull(computeServiceAdapter, "computeServiceAdapter");
    }
 
    @Override
-   public synchronized Map<?, ListenableFuture<Void>> execute(String group, int count,
-                                                              Template template,
-                                                              Set<NodeMetadata> goodNodes,
-                                                              Map<NodeMetadata, Exception> badNodes,
-                                                              Multimap<NodeMetadata, CustomizationResponse> customizationResponses) {
+   public Map<?, ListenableFuture<Void>> execute(String group, int count,
+                                                 Template template,
+                                                 Set<NodeMetadata> goodNodes,
+                                                 Map<NodeMetadata, Exception> badNodes,
+                                                 Multimap<NodeMetadata, CustomizationResponse> customizationResponses) {
 
       String sharedResourceName = namingConvention.create().sharedNameForGroup(group);
       Template mutableTemplate = template.clone();
@@ -121,15 +122,49 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
               .getOptions());
       assert template.getOptions().equals(templateOptions) : "options didn't clone properly";
 
-      // get or create the network and create a firewall with the users configuration
-      Network network = getOrCreateNetwork(templateOptions, sharedResourceName);
-      getOrCreateFirewalls(templateOptions, network, firewallTagNamingConvention.get(group));
-      templateOptions.network(network.getSelfLink());
+      // only nodes of the same group share the network and firewalls, so other groups can be created concurrently
+      Lock groupLock = groupLocks.get(group);
+      groupLock.lock();
+      try {
+         // get or create the network and create a firewall with the users configuration
+         Network network = getOrCreateNetwork(templateOptions, sharedResourceName);
+         getOrCreateFirewalls(templateOptions, network, firewallTagNamingConvention.get(group));
+         templateOptions.network(network.getSelfLink());
+      } finally {
+         groupLock.unlock();
+      }
       templateOptions.userMetadata(ComputeServiceConstants.NODE_GROUP_KEY, group);
 
       return super.execute(group, count, mutableTemplate, goodNodes, badNodes, customizationResponses);
    }
 
+   /**
+    * Issues the insert for the node right away, and only builds the node once its operation is done.
+    * <p>
+    * As {@link #execute} calls this for every node before waiting on any, all the inserts of a group are in flight
+    * together and their operations are polled together, instead of each node holding a thread for its whole
+    * creation.
+    */
+   @Override
+   protected ListenableFuture<AtomicReference<NodeMetadata>> createNodeInGroupWithNameAndTemplate(final String group,
+           final String name, final Template template) {
+      if (!template.getOptions().shouldBlockUntilRunning()) {
+         return super.createNodeInGroupWithNameAndTemplate(group, name, template);
+      }
+      return Futures.transform(computeServiceAdapter.submitNodeInsert(group, name, template),
+              new AsyncFunction<Operation, AtomicReference<NodeMetadata>>() {
+                 @Override
+                 public ListenableFuture<AtomicReference<NodeMetadata>> apply(Operation input) {
+                    return createInsertedNode(group, name, template);
+                 }
+              });
+   }
+
+   private ListenableFuture<AtomicReference<NodeMetadata>> createInsertedNode(String group, String name,
+           Template template) {
+      return super.createNodeInGroupWithNameAndTemplate(group, name, template);
+   }
+
    /**
     * Try and find a network either previously created by jclouds or user defined.
     */
@@ -150,10 +185,14 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
     */
    private void getOrCreateFirewalls(GoogleComputeEngineTemplateOptions templateOptions, Network network,
                                      FirewallTagNamingConvention naming) {
+      if (naming.isConsolidated()) {
+         getOrCreateConsolidatedFirewalls(templateOptions, network, naming);
+         return;
+      }
 
       String projectName = userProject.get();
       FirewallApi firewallApi = api.getFirewallApiForProject(projectName);
-      Set<AtomicReference<Operation>> operations = Sets.newHashSet();
+      List<ListenableFuture<Operation>> operations = Lists.newArrayList();
 
       for (Integer port : templateOptions.getInboundPorts()) {
          String name = naming.name(port);
@@ -167,19 +206,65 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
                     .sourceTags(templateOptions.getTags())
                     .sourceRanges(of(DEFAULT_INTERNAL_NETWORK_RANGE, EXTERIOR_RANGE))
                     .targetTags(ImmutableSet.of(name));
-            AtomicReference<Operation> operation = Atomics.newReference(firewallApi.createInNetwork(
+            operations.add(operationWaiter.waitFor(firewallApi.createInNetwork(
                     firewallOptions.getName(),
                     network.getSelfLink(),
-                    firewallOptions));
-            operations.add(operation);
+                    firewallOptions), Scope.GLOBAL));
+         }
+      }
+
+      for (ListenableFuture<Operation> pending : operations) {
+         Operation operation = operationWaiter.await(pending);
+         checkState(!operation.getHttpError().isPresent(),"Could not create firewall, operation failed" + operation);
+      }
+   }
+
+   /**
+    * Ensures that the consolidated firewalls for the inbound ports that the instance requests exist.
+    * <p>
+    * The ports are split into {@link FirewallTagNamingConvention#portSets port sets}, each opened by a firewall
+    * named and targeting a tag after exactly its port ranges, for all sources on both TCP and UDP protocols. A firewall
+    * with such a name therefore already opens its ports, and is only created when missing. Nodes are tagged with the
+    * firewalls of their own ports, so they are exposed on the same ports as with one firewall per port.
+    */
+   @VisibleForTesting
+   void getOrCreateConsolidatedFirewalls(GoogleComputeEngineTemplateOptions templateOptions, Network network,
+                                         FirewallTagNamingConvention naming) {
+      FirewallApi firewallApi = api.getFirewallApiForProject(userProject.get());
+      List<ListenableFuture<Operation>> operations = Lists.newArrayList();
+
+      for (Map.Entry<String, Set<Range<Integer>>> portSet : naming.portSets(templateOptions.getInboundPorts())
+              .entrySet()) {
+         String name = portSet.getKey();
+         if (firewallApi.get(name) == null) {
+            Set<Range<Integer>> ports = portSet.getValue();
+            FirewallOptions firewallOptions = new FirewallOptions()
+                    .name(name)
+                    .network(network.getSelfLink())
+                    .allowedRules(ImmutableSet.of(permitRule(IpProtocol.TCP, ports), permitRule(IpProtocol.UDP, ports)))
+                    .sourceTags(templateOptions.getTags())
+                    .sourceRanges(of(DEFAULT_INTERNAL_NETWORK_RANGE, EXTERIOR_RANGE))
+                    .targetTags(ImmutableSet.of(name));
+            operations.add(operationWaiter.waitFor(firewallApi.createInNetwork(name, network.getSelfLink(),
+                    firewallOptions), Scope.GLOBAL));
          }
       }
 
-      for (AtomicReference<Operation> operation : operations) {
-         retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
-         checkState(!operation.get().getHttpError().isPresent(),"Could not create firewall, operation failed" + operation);
+      for (ListenableFuture<Operation> pending : operations) {
+         Operation operation = operationWaiter.await(pending);
+         checkState(!operation.getHttpError().isPresent(), "Could not create firewall, operation failed" + operation);
       }
    }
 
+   private static Firewall.Rule permitRule(IpProtocol protocol, Set<Range<Integer>> ports) {
+      Firewall.Rule.Builder rule = Firewall.Rule.builder().IpProtocol(protocol);
+      for (Range<Integer> range : ports) {
+         if (range.lowerEndpoint().equals(range.upperEndpoint())) {
+            rule.addPort(range.lowerEndpoint());
+         } else {
+            rule.addPortRange(range.lowerEndpoint(), range.upperEndpoint());
+         }
+      }
+      return rule.build();
+   }
 }
@@ -19,8 +19,11 @@ package org.jclouds.googlecomputeengine.config;
 import static com.google.common.base.Suppliers.compose;
 import static com.google.inject.name.Names.named;
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_THREADS;
 
+import java.io.Closeable;
 import java.net.URI;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -33,16 +36,19 @@ import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.Project;
 import org.jclouds.googlecomputeengine.domain.SlashEncodedIds;
 import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineErrorHandler;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineRetryHandler;
 import org.jclouds.googlecomputeengine.predicates.GlobalOperationDonePredicate;
 import org.jclouds.googlecomputeengine.predicates.RegionOperationDonePredicate;
 import org.jclouds.googlecomputeengine.predicates.ZoneOperationDonePredicate;
 import org.jclouds.http.HttpErrorHandler;
+import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.Uris;
 import org.jclouds.http.annotation.ClientError;
 import org.jclouds.http.annotation.Redirection;
 import org.jclouds.http.annotation.ServerError;
 import org.jclouds.json.config.GsonModule.DateAdapter;
 import org.jclouds.json.config.GsonModule.Iso8601DateAdapter;
+import org.jclouds.lifecycle.Closer;
 import org.jclouds.location.Provider;
 import org.jclouds.location.suppliers.ImplicitLocationSupplier;
 import org.jclouds.location.suppliers.implicit.FirstZone;
@@ -56,6 +62,9 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
@@ -90,6 +99,12 @@ public class GoogleComputeEngineHttpApiModule extends HttpApiModule<GoogleComput
       bind(HttpErrorHandler.class).annotatedWith(ServerError.class).to(GoogleComputeEngineErrorHandler.class);
    }
 
+   @Override
+   protected void bindRetryHandlers() {
+      bind(HttpRetryHandler.class).annotatedWith(ClientError.class).to(GoogleComputeEngineRetryHandler.class);
+      bind(HttpRetryHandler.class).annotatedWith(ServerError.class).to(GoogleComputeEngineRetryHandler.class);
+   }
+
    @Provides
    @Singleton
    @UserProject
@@ -176,4 +191,23 @@ public class GoogleComputeEngineHttpApiModule extends HttpApiModule<GoogleComput
          }
       };
    }
+
+   /**
+    * The threads of {@link org.jclouds.googlecomputeengine.functions.OperationWaiter}, shut down with the context.
+    */
+   @Provides
+   @Singleton
+   @Named(OPERATION_THREADS)
+   public ListeningExecutorService provideOperationExecutor(@Named(OPERATION_THREADS) int threads, Closer closer) {
+      final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads,
+              new ThreadFactoryBuilder().setNameFormat("google-compute-engine-operations-%d").setDaemon(true)
+                      .build()));
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            executor.shutdownNow();
+         }
+      });
+      return executor;
+   }
 }
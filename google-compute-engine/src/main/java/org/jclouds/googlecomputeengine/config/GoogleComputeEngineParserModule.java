@@ -19,6 +19,7 @@ package org.jclouds.googlecomputeengine.config;
 import static org.jclouds.googlecomputeengine.domain.Firewall.Rule;
 
 import java.beans.ConstructorProperties;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.Date;
@@ -44,7 +45,9 @@ import org.jclouds.oauth.v2.json.ClaimSetTypeAdapter;
 import org.jclouds.oauth.v2.json.HeaderTypeAdapter;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
@@ -54,6 +57,12 @@ import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 
@@ -72,11 +81,9 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
    public Map<Type, Object> provideCustomAdapterBindings() {
       return new ImmutableMap.Builder<Type, Object>()
               .put(Metadata.class, new MetadataTypeAdapter())
-              .put(Operation.class, new OperationTypeAdapter())
               .put(Header.class, new HeaderTypeAdapter())
               .put(ClaimSet.class, new ClaimSetTypeAdapter())
               .put(Project.class, new ProjectTypeAdapter())
-              .put(Instance.class, new InstanceTypeAdapter())
               .put(InstanceTemplate.class, new InstanceTemplateTypeAdapter())
               .put(FirewallOptions.class, new FirewallOptionsTypeAdapter())
               .put(RouteOptions.class, new RouteOptionsTypeAdapter())
@@ -84,46 +91,130 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
               .build();
    }
 
+   @Provides
+   @Singleton
+   public Set<TypeAdapterFactory> provideCustomAdapterFactories() {
+      return ImmutableSet.<TypeAdapterFactory>of(new SinglePassTypeAdapterFactory());
+   }
+
    /**
-    * Parser for operations that unwraps errors avoiding an extra intermediate object.
+    * Reads operations and instances with {@link OperationTypeAdapter} and {@link InstanceTypeAdapter}, and writes
+    * them with the adapter Gson would have used otherwise.
+    */
+   private static class SinglePassTypeAdapterFactory implements TypeAdapterFactory {
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+         if (type.getRawType() == Operation.class) {
+            return (TypeAdapter<T>) new OperationTypeAdapter(new NestedAdapters(gson),
+                    gson.getDelegateAdapter(this, TypeToken.get(Operation.class)));
+         } else if (type.getRawType() == Instance.class) {
+            return (TypeAdapter<T>) new InstanceTypeAdapter(new NestedAdapters(gson),
+                    gson.getDelegateAdapter(this, TypeToken.get(Instance.class)));
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Parser for operations that unwraps errors avoiding an extra intermediate object, reading the operation in a
+    * single pass.
     *
     * @see <a href="https://developers.google.com/compute/docs/reference/v1/operations"/>
     */
-   @Singleton
-   private static class OperationTypeAdapter implements JsonDeserializer<Operation> {
+   private static class OperationTypeAdapter extends TypeAdapter<Operation> {
+
+      private final NestedAdapters adapters;
+      private final TypeAdapter<Operation> delegate;
+
+      private OperationTypeAdapter(NestedAdapters adapters, TypeAdapter<Operation> delegate) {
+         this.adapters = adapters;
+         this.delegate = delegate;
+      }
 
       @Override
-      public Operation deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
-              JsonParseException {
-         Operation.Builder operationBuilder = ((Operation) context.deserialize(json,
-                 OperationInternal.class)).toBuilder();
-         JsonObject error = json.getAsJsonObject().getAsJsonObject("error");
-         if (error != null) {
-            JsonArray array = error.getAsJsonArray("errors");
-            if (array != null) {
-               for (JsonElement element : array) {
-                  operationBuilder.addError((Operation.Error) context.deserialize(element, Operation.Error.class));
-               }
+      public Operation read(JsonReader in) throws IOException {
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         Operation.Builder builder = Operation.builder().progress(0);
+         in.beginObject();
+         while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+               in.nextNull();
+            } else if (name.equals("id")) {
+               builder.id(in.nextString());
+            } else if (name.equals("creationTimestamp")) {
+               builder.creationTimestamp(adapters.date.read(in));
+            } else if (name.equals("selfLink")) {
+               builder.selfLink(adapters.uri.read(in));
+            } else if (name.equals("name")) {
+               builder.name(in.nextString());
+            } else if (name.equals("description")) {
+               builder.description(in.nextString());
+            } else if (name.equals("targetLink")) {
+               builder.targetLink(adapters.uri.read(in));
+            } else if (name.equals("targetId")) {
+               builder.targetId(in.nextString());
+            } else if (name.equals("clientOperationId")) {
+               builder.clientOperationId(in.nextString());
+            } else if (name.equals("status")) {
+               builder.status(adapters.operationStatus.read(in));
+            } else if (name.equals("statusMessage")) {
+               builder.statusMessage(in.nextString());
+            } else if (name.equals("user")) {
+               builder.user(in.nextString());
+            } else if (name.equals("progress")) {
+               builder.progress(in.nextInt());
+            } else if (name.equals("insertTime")) {
+               builder.insertTime(adapters.date.read(in));
+            } else if (name.equals("startTime")) {
+               builder.startTime(adapters.date.read(in));
+            } else if (name.equals("endTime")) {
+               builder.endTime(adapters.date.read(in));
+            } else if (name.equals("httpErrorStatusCode")) {
+               builder.httpErrorStatusCode(in.nextInt());
+            } else if (name.equals("httpErrorMessage")) {
+               builder.httpErrorMessage(in.nextString());
+            } else if (name.equals("operationType")) {
+               builder.operationType(in.nextString());
+            } else if (name.equals("error")) {
+               readErrors(in, builder, adapters);
+            } else if (name.equals("region")) {
+               builder.region(adapters.uri.read(in));
+            } else if (name.equals("zone")) {
+               builder.zone(adapters.uri.read(in));
+            } else {
+               in.skipValue();
             }
          }
-         return operationBuilder.build();
+         in.endObject();
+         return builder.build();
       }
 
-      private static class OperationInternal extends Operation {
-         @ConstructorProperties({
-                 "id", "creationTimestamp", "selfLink", "name", "description", "targetLink", "targetId",
-                 "clientOperationId", "status", "statusMessage", "user", "progress", "insertTime", "startTime",
-                 "endTime", "httpErrorStatusCode", "httpErrorMessage", "operationType", "region", "zone"
-         })
-         private OperationInternal(String id, Date creationTimestamp, URI selfLink, String name,
-                                   String description, URI targetLink, String targetId, String clientOperationId,
-                                   Status status, String statusMessage, String user, int progress, Date insertTime,
-                                   Date startTime, Date endTime, int httpErrorStatusCode, String httpErrorMessage,
-                                   String operationType, URI region, URI zone) {
-            super(id, creationTimestamp, selfLink, name, description, targetLink, targetId, clientOperationId,
-                    status, statusMessage, user, progress, insertTime, startTime, endTime, httpErrorStatusCode,
-                    httpErrorMessage, operationType, null, region, zone);
+      private static void readErrors(JsonReader in, Operation.Builder builder, NestedAdapters adapters)
+              throws IOException {
+         in.beginObject();
+         while (in.hasNext()) {
+            if (in.nextName().equals("errors") && in.peek() == JsonToken.BEGIN_ARRAY) {
+               in.beginArray();
+               while (in.hasNext()) {
+                  builder.addError(adapters.operationError.read(in));
+               }
+               in.endArray();
+            } else {
+               in.skipValue();
+            }
          }
+         in.endObject();
+      }
+
+      @Override
+      public void write(JsonWriter out, Operation value) throws IOException {
+         delegate.write(out, value);
       }
    }
 
@@ -153,6 +244,13 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
             instance.add("disks", disks);
          }
 
+         // deal with tags
+         if (src.getTags() != null && !src.getTags().isEmpty()) {
+            JsonObject tags = new JsonObject();
+            tags.add("items", context.serialize(src.getTags()));
+            instance.add("tags", tags);
+         }
+
          // deal with metadata
          if (src.getMetadata() != null && !src.getMetadata().isEmpty()) {
             Metadata metadata = Metadata.builder()
@@ -178,46 +276,146 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
       }
    }
 
-   @Singleton
-   private static class InstanceTypeAdapter implements JsonDeserializer<Instance> {
+   /**
+    * Parser for instances that picks the kind of each attached disk as it goes, reading the instance in a single
+    * pass.
+    */
+   private static class InstanceTypeAdapter extends TypeAdapter<Instance> {
+
+      private final NestedAdapters adapters;
+      private final TypeAdapter<Instance> delegate;
+
+      private InstanceTypeAdapter(NestedAdapters adapters, TypeAdapter<Instance> delegate) {
+         this.adapters = adapters;
+         this.delegate = delegate;
+      }
 
       @Override
-      public Instance deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
-              JsonParseException {
-         Instance.Builder instanceBuilder = ((Instance) context.deserialize(json,
-                 InstanceInternal.class)).toBuilder();
-         JsonObject object = (JsonObject) json;
-         if (object.get("disks") != null) {
-            JsonArray disks = (JsonArray) object.get("disks");
-            for (JsonElement element : disks) {
-               JsonObject disk = (JsonObject) element;
-               if (disk.get("type").getAsString().equals("PERSISTENT")) {
-                  instanceBuilder.addDisk((Instance.PersistentAttachedDisk) context.deserialize(disk,
-                          Instance.PersistentAttachedDisk.class));
-               } else {
-                  instanceBuilder.addDisk((Instance.AttachedDisk) context.deserialize(disk,
-                          Instance.AttachedDisk.class));
+      public Instance read(JsonReader in) throws IOException {
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         Instance.Builder builder = Instance.builder();
+         in.beginObject();
+         while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+               in.nextNull();
+            } else if (name.equals("id")) {
+               builder.id(in.nextString());
+            } else if (name.equals("creationTimestamp")) {
+               builder.creationTimestamp(adapters.date.read(in));
+            } else if (name.equals("selfLink")) {
+               builder.selfLink(adapters.uri.read(in));
+            } else if (name.equals("name")) {
+               builder.name(in.nextString());
+            } else if (name.equals("description")) {
+               builder.description(in.nextString());
+            } else if (name.equals("tags")) {
+               builder.tags(adapters.tags.read(in));
+            } else if (name.equals("machineType")) {
+               builder.machineType(adapters.uri.read(in));
+            } else if (name.equals("status")) {
+               builder.status(adapters.instanceStatus.read(in));
+            } else if (name.equals("statusMessage")) {
+               builder.statusMessage(in.nextString());
+            } else if (name.equals("zone")) {
+               builder.zone(adapters.uri.read(in));
+            } else if (name.equals("networkInterfaces")) {
+               builder.networkInterfaces(adapters.networkInterfaces.read(in));
+            } else if (name.equals("disks")) {
+               in.beginArray();
+               while (in.hasNext()) {
+                  builder.addDisk(readDisk(in, adapters));
                }
+               in.endArray();
+            } else if (name.equals("metadata")) {
+               builder.metadata(adapters.metadata.read(in));
+            } else if (name.equals("serviceAccounts")) {
+               builder.serviceAccounts(adapters.serviceAccounts.read(in));
+            } else {
+               in.skipValue();
             }
-
          }
+         in.endObject();
+         return builder.build();
+      }
 
-         return Instance.builder().fromInstance(instanceBuilder.build()).build();
+      /**
+       * Reads a disk without knowing up front whether it is persistent, as "type" may come after its other fields.
+       */
+      private static Instance.AttachedDisk readDisk(JsonReader in, NestedAdapters adapters) throws IOException {
+         boolean persistent = false;
+         Instance.PersistentAttachedDisk.Mode mode = null;
+         URI source = null;
+         String deviceName = null;
+         Integer index = null;
+         boolean deleteOnTerminate = false;
+         boolean boot = false;
+         in.beginObject();
+         while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+               in.nextNull();
+            } else if (name.equals("type")) {
+               persistent = in.nextString().equals("PERSISTENT");
+            } else if (name.equals("mode")) {
+               mode = adapters.diskMode.read(in);
+            } else if (name.equals("source")) {
+               source = adapters.uri.read(in);
+            } else if (name.equals("deviceName")) {
+               deviceName = in.nextString();
+            } else if (name.equals("index")) {
+               index = in.nextInt();
+            } else if (name.equals("deleteOnTerminate")) {
+               deleteOnTerminate = in.nextBoolean();
+            } else if (name.equals("boot")) {
+               boot = in.nextBoolean();
+            } else {
+               in.skipValue();
+            }
+         }
+         in.endObject();
+         return persistent ? new Instance.PersistentAttachedDisk(mode, source, deviceName, index, deleteOnTerminate,
+                 boot) : new Instance.AttachedDisk(index);
       }
 
+      @Override
+      public void write(JsonWriter out, Instance value) throws IOException {
+         delegate.write(out, value);
+      }
+   }
 
-      private static class InstanceInternal extends Instance {
-         @ConstructorProperties({
-                 "id", "creationTimestamp", "selfLink", "name", "description", "tags", "machineType",
-                 "status", "statusMessage", "zone", "networkInterfaces", "metadata", "serviceAccounts"
-         })
-         private InstanceInternal(String id, Date creationTimestamp, URI selfLink, String name, String description,
-                                  Tags tags, URI machineType, Status status, String statusMessage,
-                                  URI zone, Set<NetworkInterface> networkInterfaces, Metadata metadata,
-                                  Set<ServiceAccount> serviceAccounts) {
-            super(id, creationTimestamp, selfLink, name, description, tags, machineType,
-                    status, statusMessage, zone, networkInterfaces, null, metadata, serviceAccounts);
-         }
+   /**
+    * The adapters {@link InstanceTypeAdapter} and {@link OperationTypeAdapter} delegate nested values to, from the
+    * same {@link Gson} the two are created for.
+    */
+   private static class NestedAdapters {
+      private final TypeAdapter<Date> date;
+      private final TypeAdapter<URI> uri;
+      private final TypeAdapter<Instance.Tags> tags;
+      private final TypeAdapter<Instance.Status> instanceStatus;
+      private final TypeAdapter<Set<Instance.NetworkInterface>> networkInterfaces;
+      private final TypeAdapter<Instance.PersistentAttachedDisk.Mode> diskMode;
+      private final TypeAdapter<Metadata> metadata;
+      private final TypeAdapter<Set<Instance.ServiceAccount>> serviceAccounts;
+      private final TypeAdapter<Operation.Status> operationStatus;
+      private final TypeAdapter<Operation.Error> operationError;
+
+      private NestedAdapters(Gson gson) {
+         this.date = gson.getAdapter(Date.class);
+         this.uri = gson.getAdapter(URI.class);
+         this.tags = gson.getAdapter(Instance.Tags.class);
+         this.instanceStatus = gson.getAdapter(Instance.Status.class);
+         this.networkInterfaces = gson.getAdapter(new TypeToken<Set<Instance.NetworkInterface>>() {
+         });
+         this.diskMode = gson.getAdapter(Instance.PersistentAttachedDisk.Mode.class);
+         this.metadata = gson.getAdapter(Metadata.class);
+         this.serviceAccounts = gson.getAdapter(new TypeToken<Set<Instance.ServiceAccount>>() {
+         });
+         this.operationStatus = gson.getAdapter(Operation.Status.class);
+         this.operationError = gson.getAdapter(Operation.Error.class);
       }
    }
 
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -47,6 +48,7 @@ public class InstanceTemplate {
    protected transient List<PersistentDisk> disks = Lists.newArrayList();
    protected transient Set<NetworkInterface> networkInterfaces = Sets.newLinkedHashSet();
    protected transient Map<String, String> metadata = Maps.newLinkedHashMap();
+   protected transient Set<String> tags = Sets.newLinkedHashSet();
    protected transient String machineTypeName;
 
 
@@ -198,6 +200,23 @@ public class InstanceTemplate {
       return this;
    }
 
+   /**
+    * @see org.jclouds.googlecomputeengine.domain.Instance#getTags()
+    */
+   public InstanceTemplate addTag(String tag) {
+      this.tags.add(checkNotNull(tag, "tag"));
+      return this;
+   }
+
+   /**
+    * @see org.jclouds.googlecomputeengine.domain.Instance#getTags()
+    */
+   public InstanceTemplate tags(Set<String> tags) {
+      this.tags = Sets.newLinkedHashSet();
+      this.tags.addAll(checkNotNull(tags, "tags"));
+      return this;
+   }
+
    /**
     * @see org.jclouds.googlecomputeengine.domain.Instance#getServiceAccounts()
     */
@@ -256,6 +275,13 @@ public class InstanceTemplate {
       return networkInterfaces;
    }
 
+   /**
+    * @see org.jclouds.googlecomputeengine.domain.Instance#getTags()
+    */
+   public Set<String> getTags() {
+      return tags;
+   }
+
    /**
     * @see org.jclouds.googlecomputeengine.domain.Instance#getServiceAccounts()
     */
@@ -297,6 +323,7 @@ public class InstanceTemplate {
                  .image(instanceTemplate.getImage())
                  .disks(instanceTemplate.getDisks())
                  .metadata(instanceTemplate.getMetadata())
+                 .tags(instanceTemplate.getTags())
                  .serviceAccounts(instanceTemplate.getServiceAccounts());
       }
    }
@@ -316,6 +343,28 @@ public class InstanceTemplate {
          this.deviceName = deviceName;
          this.deleteOnTerminate = checkNotNull(deleteOnTerminate, "deleteOnTerminate");
          this.boot = checkNotNull(boot, "boot");
+         this.autoDelete = null;
+         this.initializeParams = null;
+      }
+
+      private PersistentDisk(InitializeParams initializeParams, boolean autoDelete) {
+         this.mode = Mode.READ_WRITE;
+         this.source = null;
+         this.deviceName = null;
+         this.deleteOnTerminate = null;
+         this.boot = true;
+         this.autoDelete = autoDelete;
+         this.initializeParams = checkNotNull(initializeParams, "initializeParams");
+      }
+
+      /**
+       * Returns a boot disk that is created along with the instance, instead of an existing disk to attach.
+       *
+       * @param initializeParams how to create the disk.
+       * @param autoDelete       whether to delete the disk when the instance is deleted.
+       */
+      public static PersistentDisk newBootDisk(InitializeParams initializeParams, boolean autoDelete) {
+         return new PersistentDisk(initializeParams, autoDelete);
       }
 
       private final Mode mode;
@@ -323,6 +372,8 @@ public class InstanceTemplate {
       private final Boolean deleteOnTerminate;
       private final String deviceName;
       private final Boolean boot;
+      private final Boolean autoDelete;
+      private final InitializeParams initializeParams;
 
       /**
        * @return the mode in which to attach this disk, either READ_WRITE or READ_ONLY.
@@ -332,7 +383,7 @@ public class InstanceTemplate {
       }
 
       /**
-       * @return the URL of the persistent disk resource.
+       * @return the URL of the persistent disk resource, or null if the disk is created along with the instance.
        */
       public URI getSource() {
          return source;
@@ -352,7 +403,14 @@ public class InstanceTemplate {
        * @return If true, delete the disk and all its data when the associated instance is deleted.
        */
       public boolean isDeleteOnTerminate() {
-         return deleteOnTerminate;
+         return deleteOnTerminate != null ? deleteOnTerminate : autoDelete;
+      }
+
+      /**
+       * @return how the disk is created along with the instance, if it is.
+       */
+      public Optional<InitializeParams> getInitializeParams() {
+         return Optional.fromNullable(initializeParams);
       }
 
       /**
@@ -361,6 +419,43 @@ public class InstanceTemplate {
       public boolean isBoot() {
          return boot;
       }
+
+      /**
+       * The parameters of a disk that is created along with the instance.
+       */
+      public static class InitializeParams {
+
+         private final String diskName;
+         private final URI sourceImage;
+         private final Long diskSizeGb;
+
+         public InitializeParams(String diskName, URI sourceImage, Long diskSizeGb) {
+            this.diskName = checkNotNull(diskName, "diskName");
+            this.sourceImage = checkNotNull(sourceImage, "sourceImage");
+            this.diskSizeGb = diskSizeGb;
+         }
+
+         /**
+          * @return the name of the disk to create.
+          */
+         public String getDiskName() {
+            return diskName;
+         }
+
+         /**
+          * @return the URL of the image the disk is created from.
+          */
+         public URI getSourceImage() {
+            return sourceImage;
+         }
+
+         /**
+          * @return the size of the disk in GB, or null for the size of the image.
+          */
+         public Long getDiskSizeGb() {
+            return diskSizeGb;
+         }
+      }
    }
 
    public static class NetworkInterface {
@@ -405,6 +500,7 @@ public class InstanceTemplate {
                  && equal(disks, other.disks)
                  && equal(networkInterfaces, other.networkInterfaces)
                  && equal(metadata, other.metadata)
+                 && equal(tags, other.tags)
                  && equal(serviceAccounts, other.serviceAccounts);
       } else {
          return false;
@@ -416,7 +512,7 @@ public class InstanceTemplate {
     */
    @Override
    public int hashCode() {
-      return Objects.hashCode(description, image, disks, networkInterfaces, metadata, serviceAccounts);
+      return Objects.hashCode(description, image, disks, networkInterfaces, metadata, tags, serviceAccounts);
    }
 
    /**
@@ -430,6 +526,8 @@ public class InstanceTemplate {
          toString.add("disks", disks);
       if (metadata.size() > 0)
          toString.add("metadata", metadata);
+      if (tags.size() > 0)
+         toString.add("tags", tags);
       if (serviceAccounts.size() > 0)
          toString.add("serviceAccounts", serviceAccounts);
       toString.add("image", image);
@@ -47,18 +47,23 @@ public class Resource {
    public enum Kind {
       ADDRESS,
       ADDRESS_LIST,
+      ADDRESS_AGGREGATED_LIST,
       DISK,
       DISK_LIST,
+      DISK_AGGREGATED_LIST,
       FIREWALL,
       FIREWALL_LIST,
       IMAGE,
       IMAGE_LIST,
       OPERATION,
       OPERATION_LIST,
+      OPERATION_AGGREGATED_LIST,
       INSTANCE,
       INSTANCE_LIST,
+      INSTANCE_AGGREGATED_LIST,
       MACHINE_TYPE,
       MACHINE_TYPE_LIST,
+      MACHINE_TYPE_AGGREGATED_LIST,
       PROJECT,
       NETWORK,
       NETWORK_LIST,
@@ -37,7 +37,9 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Address;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
 import org.jclouds.googlecomputeengine.functions.internal.ParseAddresses;
+import org.jclouds.googlecomputeengine.functions.internal.ParseAggregatedAddresses;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.oauth.v2.config.OAuthScopes;
@@ -58,7 +60,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/addresses"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 public interface AddressApi {
 
    /**
@@ -138,7 +140,7 @@ public interface AddressApi {
 
    /**
     * Retrieves the listPage of address resources contained within the specified project and region.
-    * By default the listPage as a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has
+    * By default the listPage has a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has
     * not been set.
     *
     * @param region        the region to search in
@@ -185,4 +187,66 @@ public interface AddressApi {
    @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
    PagedIterable<Address> listInRegion(@PathParam("region") String region, ListOptions options);
 
+   /**
+    * Retrieves the address resources in all the regions of the project with a single request, instead of one
+    * request per region. By default the list has a maximum size of 100, if no options are provided or
+    * ListOptions#getMaxResults() has not been set.
+    *
+    * @param marker      marks the beginning of the next list page
+    * @param listOptions listing options
+    * @return a page of the aggregated list, starting at marker
+    * @see org.jclouds.googlecomputeengine.options.ListOptions
+    * @see org.jclouds.googlecomputeengine.domain.ListPage
+    */
+   @Named("Addresses:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/addresses")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedAddresses.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Address> aggregatedListAtMarker(@QueryParam("pageToken") @Nullable String marker,
+                                            ListOptions listOptions);
+
+   /**
+    * @see AddressApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Addresses:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/addresses")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedAddresses.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Address> aggregatedListFirstPage();
+
+   /**
+    * @see AddressApi#aggregatedList(org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Addresses:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/addresses")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedAddresses.class)
+   @Transform(ParseAggregatedAddresses.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Address> aggregatedList();
+
+   /**
+    * A paged version of AddressApi#aggregatedListFirstPage()
+    *
+    * @return a Paged, Fluent Iterable that is able to fetch additional pages when required
+    * @see PagedIterable
+    * @see AddressApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Addresses:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/addresses")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedAddresses.class)
+   @Transform(ParseAggregatedAddresses.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Address> aggregatedList(ListOptions listOptions);
 }
@@ -37,6 +37,8 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Disk;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
+import org.jclouds.googlecomputeengine.functions.internal.ParseAggregatedDisks;
 import org.jclouds.googlecomputeengine.functions.internal.ParseDisks;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -58,7 +60,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/disks"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 public interface DiskApi {
 
    /**
@@ -184,7 +186,7 @@ public interface DiskApi {
 
    /**
     * Retrieves the listPage of persistent disk resources contained within the specified project and zone.
-    * By default the listPage as a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has
+    * By default the listPage has a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has
     * not been set.
     *
     * @param zone        the zone to search in
@@ -253,4 +255,66 @@ public interface DiskApi {
                                   @PathParam("disk") String diskName,
                                   @PayloadParam("name") String snapshotName);
 
+   /**
+    * Retrieves the persistent disk resources in all the zones of the project with a single request, instead of one
+    * request per zone. By default the list has a maximum size of 100, if no options are provided or
+    * ListOptions#getMaxResults() has not been set.
+    *
+    * @param marker      marks the beginning of the next list page
+    * @param listOptions listing options
+    * @return a page of the aggregated list, starting at marker
+    * @see org.jclouds.googlecomputeengine.options.ListOptions
+    * @see org.jclouds.googlecomputeengine.domain.ListPage
+    */
+   @Named("Disks:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/disks")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedDisks.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Disk> aggregatedListAtMarker(@QueryParam("pageToken") @Nullable String marker,
+                                         ListOptions listOptions);
+
+   /**
+    * @see DiskApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Disks:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/disks")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedDisks.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Disk> aggregatedListFirstPage();
+
+   /**
+    * @see DiskApi#aggregatedList(org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Disks:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/disks")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedDisks.class)
+   @Transform(ParseAggregatedDisks.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Disk> aggregatedList();
+
+   /**
+    * A paged version of DiskApi#aggregatedListFirstPage()
+    *
+    * @return a Paged, Fluent Iterable that is able to fetch additional pages when required
+    * @see PagedIterable
+    * @see DiskApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Disks:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/disks")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedDisks.class)
+   @Transform(ParseAggregatedDisks.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Disk> aggregatedList(ListOptions listOptions);
 }
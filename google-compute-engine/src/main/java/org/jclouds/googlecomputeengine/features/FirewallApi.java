@@ -40,6 +40,7 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Firewall;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
 import org.jclouds.googlecomputeengine.functions.internal.PATCH;
 import org.jclouds.googlecomputeengine.functions.internal.ParseFirewalls;
 import org.jclouds.googlecomputeengine.handlers.FirewallBinder;
@@ -66,7 +67,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/firewalls"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 public interface FirewallApi {
    /**
     * Returns the specified image resource.
@@ -178,7 +179,7 @@ public interface FirewallApi {
 
    /**
     * Retrieves the list of firewall resources available to the specified project.
-    * By default the list as a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
+    * By default the list has a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
     * been set.
     *
     * @param marker      marks the beginning of the next list page
@@ -34,6 +34,8 @@ import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
+import org.jclouds.googlecomputeengine.functions.internal.ParseAggregatedOperations;
 import org.jclouds.googlecomputeengine.functions.internal.ParseGlobalOperations;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -52,7 +54,7 @@ import org.jclouds.rest.annotations.Transform;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/globalOperations"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 public interface GlobalOperationApi {
 
    /**
@@ -107,7 +109,7 @@ public interface GlobalOperationApi {
 
    /**
     * Retrieves the listFirstPage of operation resources contained within the specified project.
-    * By default the listFirstPage as a maximum size of 100, if no options are provided or ListOptions#getMaxResults()
+    * By default the listFirstPage has a maximum size of 100, if no options are provided or ListOptions#getMaxResults()
     * has not been set.
     *
     * @param marker      marks the beginning of the next list page
@@ -156,4 +158,66 @@ public interface GlobalOperationApi {
    @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
    PagedIterable<Operation> list(ListOptions listOptions);
 
+   /**
+    * Retrieves the operation resources in all the global, region and zone scopes of the project with a single
+    * request, instead of one request per scope. By default the list has a maximum size of 100, if no options are
+    * provided or ListOptions#getMaxResults() has not been set.
+    *
+    * @param marker      marks the beginning of the next list page
+    * @param listOptions listing options
+    * @return a page of the aggregated list, starting at marker
+    * @see org.jclouds.googlecomputeengine.options.ListOptions
+    * @see org.jclouds.googlecomputeengine.domain.ListPage
+    */
+   @Named("GlobalOperations:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/operations")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedOperations.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Operation> aggregatedListAtMarker(@QueryParam("pageToken") @Nullable String marker,
+                                              ListOptions listOptions);
+
+   /**
+    * @see GlobalOperationApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("GlobalOperations:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/operations")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedOperations.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Operation> aggregatedListFirstPage();
+
+   /**
+    * @see GlobalOperationApi#aggregatedList(org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("GlobalOperations:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/operations")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedOperations.class)
+   @Transform(ParseAggregatedOperations.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Operation> aggregatedList();
+
+   /**
+    * A paged version of GlobalOperationApi#aggregatedListFirstPage()
+    *
+    * @return a Paged, Fluent Iterable that is able to fetch additional pages when required
+    * @see PagedIterable
+    * @see GlobalOperationApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("GlobalOperations:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/operations")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedOperations.class)
+   @Transform(ParseAggregatedOperations.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Operation> aggregatedList(ListOptions listOptions);
 }
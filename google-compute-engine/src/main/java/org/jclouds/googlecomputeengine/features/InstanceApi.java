@@ -41,6 +41,8 @@ import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
+import org.jclouds.googlecomputeengine.functions.internal.ParseAggregatedInstances;
 import org.jclouds.googlecomputeengine.functions.internal.ParseInstances;
 import org.jclouds.googlecomputeengine.handlers.InstanceBinder;
 import org.jclouds.googlecomputeengine.handlers.MetadataBinder;
@@ -67,7 +69,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see InstanceApi
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 public interface InstanceApi {
 
    /**
@@ -143,7 +145,7 @@ public interface InstanceApi {
 
    /**
     * Retrieves the list of instance resources available to the specified project.
-    * By default the list as a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
+    * By default the list has a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
     * been set.
     *
     * @param zone zone instances are in
@@ -378,5 +380,66 @@ public interface InstanceApi {
                            @PayloadParam("items") Set<String> items,
                            @PayloadParam("fingerprint") String fingerprint);
 
-}
+   /**
+    * Retrieves the instance resources in all the zones of the project with a single request, instead of one
+    * request per zone. By default the list has a maximum size of 100, if no options are provided or
+    * ListOptions#getMaxResults() has not been set.
+    *
+    * @param marker      marks the beginning of the next list page
+    * @param listOptions listing options
+    * @return a page of the aggregated list, starting at marker
+    * @see org.jclouds.googlecomputeengine.options.ListOptions
+    * @see org.jclouds.googlecomputeengine.domain.ListPage
+    */
+   @Named("Instances:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/instances")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedInstances.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Instance> aggregatedListAtMarker(@QueryParam("pageToken") @Nullable String marker,
+                                             ListOptions listOptions);
+
+   /**
+    * @see InstanceApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Instances:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/instances")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedInstances.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<Instance> aggregatedListFirstPage();
 
+   /**
+    * @see InstanceApi#aggregatedList(org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Instances:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/instances")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedInstances.class)
+   @Transform(ParseAggregatedInstances.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Instance> aggregatedList();
+
+   /**
+    * A paged version of InstanceApi#aggregatedListFirstPage()
+    *
+    * @return a Paged, Fluent Iterable that is able to fetch additional pages when required
+    * @see PagedIterable
+    * @see InstanceApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("Instances:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/instances")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedInstances.class)
+   @Transform(ParseAggregatedInstances.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<Instance> aggregatedList(ListOptions listOptions);
+}
@@ -32,6 +32,8 @@ import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.MachineType;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
+import org.jclouds.googlecomputeengine.functions.internal.ParseAggregatedMachineTypes;
 import org.jclouds.googlecomputeengine.functions.internal.ParseMachineTypes;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -50,7 +52,7 @@ import org.jclouds.rest.annotations.Transform;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/machineTypes"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 @Consumes(MediaType.APPLICATION_JSON)
 public interface MachineTypeApi {
 
@@ -92,7 +94,7 @@ public interface MachineTypeApi {
 
    /**
     * Retrieves the list of machine type resources available to the specified project.
-    * By default the list as a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
+    * By default the list has a maximum size of 100, if no options are provided or ListOptions#getMaxResults() has not
     * been set.
     *
     * @param zone        The name of the zone to list in.
@@ -141,4 +143,66 @@ public interface MachineTypeApi {
    @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
    PagedIterable<MachineType> listInZone(@PathParam("zone") String zone, ListOptions listOptions);
 
+   /**
+    * Retrieves the machine type resources in all the zones of the project with a single request, instead of one
+    * request per zone. By default the list has a maximum size of 100, if no options are provided or
+    * ListOptions#getMaxResults() has not been set.
+    *
+    * @param marker      marks the beginning of the next list page
+    * @param listOptions listing options
+    * @return a page of the aggregated list, starting at marker
+    * @see org.jclouds.googlecomputeengine.options.ListOptions
+    * @see org.jclouds.googlecomputeengine.domain.ListPage
+    */
+   @Named("MachineTypes:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/machineTypes")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedMachineTypes.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<MachineType> aggregatedListAtMarker(@QueryParam("pageToken") @Nullable String marker,
+                                                ListOptions listOptions);
+
+   /**
+    * @see MachineTypeApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("MachineTypes:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/machineTypes")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedMachineTypes.class)
+   @Fallback(EmptyIterableWithMarkerOnNotFoundOr404.class)
+   ListPage<MachineType> aggregatedListFirstPage();
+
+   /**
+    * @see MachineTypeApi#aggregatedList(org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("MachineTypes:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/machineTypes")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedMachineTypes.class)
+   @Transform(ParseAggregatedMachineTypes.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<MachineType> aggregatedList();
+
+   /**
+    * A paged version of MachineTypeApi#aggregatedListFirstPage()
+    *
+    * @return a Paged, Fluent Iterable that is able to fetch additional pages when required
+    * @see PagedIterable
+    * @see MachineTypeApi#aggregatedListAtMarker(String, org.jclouds.googlecomputeengine.options.ListOptions)
+    */
+   @Named("MachineTypes:aggregatedList")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/aggregated/machineTypes")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @ResponseParser(ParseAggregatedMachineTypes.class)
+   @Transform(ParseAggregatedMachineTypes.ToPagedIterable.class)
+   @Fallback(EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<MachineType> aggregatedList(ListOptions listOptions);
 }
@@ -38,6 +38,7 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.Route;
+import org.jclouds.googlecomputeengine.filters.RateLimitRequests;
 import org.jclouds.googlecomputeengine.functions.internal.ParseRoutes;
 import org.jclouds.googlecomputeengine.handlers.RouteBinder;
 import org.jclouds.googlecomputeengine.options.ListOptions;
@@ -60,7 +61,7 @@ import org.jclouds.rest.annotations.Transform;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1/routess"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({RateLimitRequests.class, OAuthAuthenticator.class})
 @Consumes(MediaType.APPLICATION_JSON)
 public interface RouteApi {
 
@@ -101,7 +102,7 @@ public interface RouteApi {
 
    /**
     * Retrieves the listFirstPage of route resources available to the specified project.
-    * By default the listFirstPage as a maximum size of 100, if no options are provided or ListOptions#getMaxResults()
+    * By default the listFirstPage has a maximum size of 100, if no options are provided or ListOptions#getMaxResults()
     * has not been set.
     *
     * @param marker      marks the beginning of the next list page
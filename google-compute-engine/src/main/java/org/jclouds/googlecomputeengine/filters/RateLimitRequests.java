@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MUTATE_REQUEST_RATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.READ_REQUEST_RATE;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Keeps the requests sent to the api within a sustainable rate, so that large fan-out operations do not trip the
+ * per-project request quota.
+ * <p>
+ * Requests that read resources and requests that mutate them draw from separate token buckets, sized by the
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#READ_REQUEST_RATE} and
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#MUTATE_REQUEST_RATE} properties. A request
+ * blocks until its bucket has a token; a rate of 0, the default, leaves that kind of request unlimited.
+ */
+@Beta
+@Singleton
+public class RateLimitRequests implements HttpRequestFilter {
+
+   private final Optional<RateLimiter> reads;
+   private final Optional<RateLimiter> mutations;
+
+   @Inject
+   RateLimitRequests(@Named(READ_REQUEST_RATE) Double readRequestRate,
+                     @Named(MUTATE_REQUEST_RATE) Double mutateRequestRate) {
+      this.reads = bucket(checkNotNull(readRequestRate, "read request rate"));
+      this.mutations = bucket(checkNotNull(mutateRequestRate, "mutate request rate"));
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      Optional<RateLimiter> bucket = isRead(request) ? reads : mutations;
+      if (bucket.isPresent()) {
+         bucket.get().acquire();
+      }
+      return request;
+   }
+
+   private static boolean isRead(HttpRequest request) {
+      return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+   }
+
+   private static Optional<RateLimiter> bucket(double permitsPerSecond) {
+      checkArgument(permitsPerSecond >= 0, "request rate must not be negative");
+      return permitsPerSecond == 0 ? Optional.<RateLimiter>absent()
+              : Optional.of(RateLimiter.create(permitsPerSecond));
+   }
+}
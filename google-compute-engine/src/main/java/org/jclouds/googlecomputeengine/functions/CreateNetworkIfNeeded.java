@@ -18,12 +18,6 @@ package org.jclouds.googlecomputeengine.functions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
-import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
-import static org.jclouds.util.Predicates2.retry;
-
-import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -36,12 +30,11 @@ import org.jclouds.googlecomputeengine.config.UserProject;
 import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.internal.NetworkAndAddressRange;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
 import org.jclouds.logging.Logger;
 
 import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
-import com.google.common.util.concurrent.Atomics;
 
 /**
  * @author Andrew Bayer
@@ -54,23 +47,15 @@ public class CreateNetworkIfNeeded implements Function<NetworkAndAddressRange, N
 
    protected final GoogleComputeEngineApi api;
    protected final Supplier<String> userProject;
-   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
-   private final long operationCompleteCheckInterval;
-   private final long operationCompleteCheckTimeout;
+   private final OperationWaiter operationWaiter;
 
    @Inject
    public CreateNetworkIfNeeded(GoogleComputeEngineApi api,
                                 @UserProject Supplier<String> userProject,
-                                @Named("global") Predicate<AtomicReference<Operation>> operationDonePredicate,
-                                @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-                                @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+                                OperationWaiter operationWaiter) {
       this.api = checkNotNull(api, "api");
       this.userProject = checkNotNull(userProject, "userProject");
-      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
-              "operation completed check interval");
-      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
-              "operation completed check timeout");
-      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operationDonePredicate");
+      this.operationWaiter = checkNotNull(operationWaiter, "operationWaiter");
    }
 
    @Override
@@ -83,19 +68,16 @@ public class CreateNetworkIfNeeded implements Function<NetworkAndAddressRange, N
       }
 
       if (input.getGateway().isPresent()) {
-         AtomicReference<Operation> operation = Atomics.newReference(api.getNetworkApiForProject(userProject
-                 .get()).createInIPv4RangeWithGateway(input.getName(), input.getIpV4Range(), input.getGateway().get()));
-         retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
+         Operation operation = operationWaiter.await(api.getNetworkApiForProject(userProject.get())
+                 .createInIPv4RangeWithGateway(input.getName(), input.getIpV4Range(), input.getGateway().get()),
+                 Scope.GLOBAL);
 
-         checkState(!operation.get().getHttpError().isPresent(), "Could not create network, operation failed" + operation);
+         checkState(!operation.getHttpError().isPresent(), "Could not create network, operation failed" + operation);
       } else {
-         AtomicReference<Operation> operation = Atomics.newReference(api.getNetworkApiForProject(userProject
-                 .get()).createInIPv4Range(input.getName(), input.getIpV4Range()));
-         retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
-                 MILLISECONDS).apply(operation);
+         Operation operation = operationWaiter.await(api.getNetworkApiForProject(userProject.get())
+                 .createInIPv4Range(input.getName(), input.getIpV4Range()), Scope.GLOBAL);
 
-         checkState(!operation.get().getHttpError().isPresent(), "Could not create network, operation failed" + operation);
+         checkState(!operation.getHttpError().isPresent(), "Could not create network, operation failed" + operation);
       }
       return checkNotNull(api.getNetworkApiForProject(userProject.get()).get(input.getName()),
                  "no network with name %s was found", input.getName());
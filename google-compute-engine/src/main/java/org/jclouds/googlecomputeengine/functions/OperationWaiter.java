@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.getLast;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_MAX_INTERVAL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_POLL_BATCH_SIZE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_THREADS;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.config.UserProject;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Waits for operations to complete without blocking a thread per operation.
+ * <p/>
+ * All the operations being waited for are tracked by a single task on the scheduler, which periodically hands the
+ * operations that are due to the operation executor to be polled. The task is started when an operation is waited
+ * for and stopped once no operation is left. Each operation is first polled right away and then at
+ * an interval that starts at {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#OPERATION_COMPLETE_INTERVAL}
+ * and backs off exponentially, with jitter, up to
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#OPERATION_COMPLETE_MAX_INTERVAL}. Callers
+ * waiting for the same operation share its polls, but each gets its own future: cancelling it only gives up that
+ * caller's wait, and the operation is no longer polled once every caller gave it up.
+ * <p/>
+ * The operation executor, sized by {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#OPERATION_THREADS},
+ * is kept apart from the user executor, whose threads may all be blocked waiting for operations, and from the
+ * scheduler, which a slow poll would hold up.
+ * <p/>
+ * Operations in the same zone, region or globally that are due together are checked with a single list request
+ * filtered on their names, in batches of up to
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#OPERATION_POLL_BATCH_SIZE}. When such a list
+ * request fails, which is most likely due to throttling or a server error, the whole batch backs off and is listed
+ * again later rather than being fetched one operation at a time. A failed get of a single operation is retried the
+ * same way, until the operation complete timeout.
+ */
+@Beta
+@Singleton
+public class OperationWaiter {
+
+   /**
+    * Where an operation lives, which determines how it is polled.
+    */
+   public enum Scope {
+      GLOBAL, REGION, ZONE
+   }
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final GoogleComputeEngineApi api;
+   private final Supplier<String> userProject;
+   private final ListeningScheduledExecutorService scheduler;
+   private final ListeningExecutorService operationExecutor;
+   private final long operationCompleteCheckInterval;
+   private final long operationCompleteCheckMaxInterval;
+   private final long operationCompleteCheckTimeout;
+   private final int operationPollBatchSize;
+   private final ConcurrentMap<String, PendingOperation> pending = Maps.newConcurrentMap();
+   private final Object pollTaskLock = new Object();
+   private ScheduledFuture<?> pollTask;
+   private final Random random = new Random();
+
+   @Inject
+   public OperationWaiter(GoogleComputeEngineApi api,
+                          @UserProject Supplier<String> userProject,
+                          @Named(PROPERTY_SCHEDULER_THREADS) ListeningScheduledExecutorService scheduler,
+                          @Named(OPERATION_THREADS) ListeningExecutorService operationExecutor,
+                          @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
+                          @Named(OPERATION_COMPLETE_MAX_INTERVAL) Long operationCompleteCheckMaxInterval,
+                          @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+                          @Named(OPERATION_POLL_BATCH_SIZE) Integer operationPollBatchSize) {
+      this.api = checkNotNull(api, "api");
+      this.userProject = checkNotNull(userProject, "userProject");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.operationExecutor = checkNotNull(operationExecutor, "operationExecutor");
+      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
+              "operation completed check interval");
+      checkArgument(this.operationCompleteCheckInterval > 0, "operation completed check interval must be positive");
+      this.operationCompleteCheckMaxInterval = Math.max(this.operationCompleteCheckInterval,
+              checkNotNull(operationCompleteCheckMaxInterval, "operation completed check max interval"));
+      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
+              "operation completed check timeout");
+      this.operationPollBatchSize = checkNotNull(operationPollBatchSize, "operation poll batch size");
+      checkArgument(this.operationPollBatchSize > 0, "operation poll batch size must be positive");
+   }
+
+   /**
+    * Returns a future that completes with the DONE version of the given operation, or fails if the operation no
+    * longer exists or did not complete within the operation complete timeout. An operation that is DONE but failed
+    * still completes the future; check {@link Operation#getHttpError()}.
+    * <p/>
+    * Cancelling the future only stops this caller from waiting; other callers waiting for the same operation are
+    * not affected.
+    */
+   public ListenableFuture<Operation> waitFor(Operation operation, Scope scope) {
+      checkNotNull(operation, "operation");
+      checkNotNull(scope, "scope");
+      String key = scope + "/" + location(operation, scope).or("") + "/" + operation.getName();
+      while (true) {
+         PendingOperation created = new PendingOperation(key, operation, scope, System.nanoTime());
+         PendingOperation existing = pending.putIfAbsent(key, created);
+         if (existing == null) {
+            ListenableFuture<Operation> waiter = created.newWaiter();
+            startPolling();
+            return waiter;
+         }
+         ListenableFuture<Operation> waiter = existing.newWaiter();
+         if (waiter != null) {
+            return waiter;
+         }
+         // its last waiter gave the operation up meanwhile, so start over with a new one
+         pending.remove(key, existing);
+      }
+   }
+
+   @VisibleForTesting
+   boolean isPolling() {
+      synchronized (pollTaskLock) {
+         return pollTask != null;
+      }
+   }
+
+   /**
+    * Starts the poll task unless it is already running. Always called after adding an operation to the pending ones,
+    * so that an operation is never left pending while {@link #stopPollingIfIdle()} stops the task.
+    */
+   private void startPolling() {
+      synchronized (pollTaskLock) {
+         if (pollTask == null) {
+            long tick = Math.max(1, operationCompleteCheckInterval / 2);
+            pollTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+               @Override
+               public void run() {
+                  pollDue();
+               }
+            }, 0, tick, MILLISECONDS);
+         }
+      }
+   }
+
+   private void stopPollingIfIdle() {
+      synchronized (pollTaskLock) {
+         if (pollTask != null && pending.isEmpty()) {
+            pollTask.cancel(false);
+            pollTask = null;
+         }
+      }
+   }
+
+   /**
+    * Blocks until the given operation is DONE.
+    *
+    * @return the DONE version of the operation
+    * @throws UncheckedTimeoutException if the operation did not complete within the operation complete timeout
+    */
+   public Operation await(Operation operation, Scope scope) {
+      return await(waitFor(operation, scope));
+   }
+
+   /**
+    * Blocks until an operation returned by {@link #waitFor(Operation, Scope)} is DONE.
+    *
+    * @return the DONE version of the operation
+    * @throws UncheckedTimeoutException if the operation did not complete within the operation complete timeout
+    */
+   public Operation await(ListenableFuture<Operation> operation) {
+      try {
+         return operation.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof TimeoutException) {
+            throw new UncheckedTimeoutException(e.getCause().getMessage(), e.getCause());
+         }
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+   /**
+    * Issues the given requests together on the operation executor, and blocks until the operations they started are
+    * all DONE, within a single operation complete timeout for all of them. A request that returns no operation, such
+    * as deleting a resource that is already gone, has nothing to wait for.
+    * <p/>
+    * When the timeout expires or a request fails, the requests not issued yet are cancelled and this caller stops
+    * waiting for the operations; other callers waiting for the same operations are not affected.
+    *
+    * @return the DONE operations, in the order of the requests, with null for the requests that returned none
+    * @throws UncheckedTimeoutException if the operations did not all complete within the operation complete timeout
+    */
+   public List<Operation> awaitAll(Iterable<? extends Callable<Operation>> requests, final Scope scope) {
+      checkNotNull(requests, "requests");
+      checkNotNull(scope, "scope");
+      List<ListenableFuture<Operation>> operations = Lists.newArrayList();
+      for (Callable<Operation> request : requests) {
+         operations.add(Futures.transform(operationExecutor.submit(request),
+                 new AsyncFunction<Operation, Operation>() {
+                    @Override
+                    public ListenableFuture<Operation> apply(Operation operation) {
+                       return operation == null ? Futures.<Operation>immediateFuture(null) : waitFor(operation, scope);
+                    }
+                 }));
+      }
+      try {
+         return Futures.allAsList(operations).get(operationCompleteCheckTimeout, MILLISECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (TimeoutException e) {
+         throw new UncheckedTimeoutException(String.format("%s operations did not complete within %sms",
+                 operations.size(), operationCompleteCheckTimeout), e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof TimeoutException) {
+            throw new UncheckedTimeoutException(e.getCause().getMessage(), e.getCause());
+         }
+         throw Throwables.propagate(e.getCause());
+      } finally {
+         // a no-op once they are all done; otherwise only cancels this caller's requests and waits
+         for (ListenableFuture<Operation> operation : operations) {
+            operation.cancel(false);
+         }
+      }
+   }
+
+   private void pollDue() {
+      try {
+         long now = System.nanoTime();
+         ListMultimap<String, PendingOperation> due = ArrayListMultimap.create();
+         for (PendingOperation operation : pending.values()) {
+            if (operation.future.isDone()) {
+               pending.remove(operation.key, operation);
+            } else if (operation.isDue(now) && operation.polling.compareAndSet(false, true)) {
+               due.put(operation.scope + "/" + location(operation.latest, operation.scope).or(""), operation);
+            }
+         }
+         for (List<PendingOperation> sameLocation : Multimaps.asMap(due).values()) {
+            for (final List<PendingOperation> batch : Lists.partition(sameLocation, operationPollBatchSize)) {
+               operationExecutor.execute(new Runnable() {
+                  @Override
+                  public void run() {
+                     poll(batch);
+                  }
+               });
+            }
+         }
+         stopPollingIfIdle();
+      } catch (RuntimeException e) {
+         // an exception would cancel the periodic task and leave every pending operation waiting forever
+         logger.error(e, "error polling operations");
+      }
+   }
+
+   /**
+    * Polls operations that share a scope and location, with a single list request when there is more than one.
+    */
+   private void poll(List<PendingOperation> batch) {
+      if (batch.size() == 1) {
+         poll(batch.get(0));
+         return;
+      }
+      Map<String, Operation> current;
+      try {
+         current = list(batch);
+      } catch (RuntimeException e) {
+         // fetching each operation would multiply the requests when the api is most likely throttling or failing
+         logger.warn(e, "could not list %d operations, listing them again later", batch.size());
+         retryLater(batch, e);
+         return;
+      }
+      for (PendingOperation operation : batch) {
+         Operation latest = current.get(operation.latest.getName());
+         if (latest != null) {
+            update(operation, latest);
+         } else {
+            // missing from the listing, for example because it was already cleaned up; let a get decide
+            poll(operation);
+         }
+      }
+   }
+
+   private void poll(PendingOperation operation) {
+      try {
+         Operation current = get(operation.latest, operation.scope);
+         if (current == null) {
+            fail(operation, new IllegalStateException("operation " + operation.key + " no longer exists"));
+            return;
+         }
+         update(operation, current);
+      } catch (RuntimeException e) {
+         // a failed get is most likely transient, so the operation is only given up once it times out
+         logger.warn(e, "could not get operation %s, getting it again later", operation.key);
+         retryLater(ImmutableList.of(operation), e);
+      }
+   }
+
+   private void update(PendingOperation operation, Operation current) {
+      operation.latest = current;
+      long now = System.nanoTime();
+      if (current.getStatus() == Operation.Status.DONE) {
+         complete(operation, current);
+      } else if (operation.isTimedOut(now)) {
+         fail(operation, new TimeoutException("operation " + operation.key + " did not reach DONE state within "
+                 + operationCompleteCheckTimeout + "ms: " + current));
+      } else {
+         operation.backOff(now, operation.nextDelay());
+         operation.polling.set(false);
+      }
+   }
+
+   /**
+    * Backs off all the operations of a batch that could not be fetched by the same delay, so that they are polled
+    * together again.
+    */
+   private void retryLater(List<PendingOperation> batch, RuntimeException cause) {
+      long now = System.nanoTime();
+      long delay = batch.get(0).nextDelay();
+      for (PendingOperation operation : batch) {
+         if (operation.isTimedOut(now)) {
+            TimeoutException timeout = new TimeoutException("operation " + operation.key
+                    + " did not reach DONE state within " + operationCompleteCheckTimeout + "ms");
+            timeout.initCause(cause);
+            fail(operation, timeout);
+         } else {
+            operation.backOff(now, delay);
+            operation.polling.set(false);
+         }
+      }
+   }
+
+   private void complete(PendingOperation operation, Operation done) {
+      pending.remove(operation.key, operation);
+      operation.future.set(done);
+   }
+
+   private void fail(PendingOperation operation, Throwable cause) {
+      pending.remove(operation.key, operation);
+      operation.future.setException(cause);
+   }
+
+   private Operation get(Operation operation, Scope scope) {
+      String project = userProject.get();
+      switch (scope) {
+         case ZONE:
+            return api.getZoneOperationApiForProject(project).getInZone(location(operation, scope).get(),
+                    operation.getName());
+         case REGION:
+            return api.getRegionOperationApiForProject(project).getInRegion(location(operation, scope).get(),
+                    operation.getName());
+         case GLOBAL:
+         default:
+            return api.getGlobalOperationApiForProject(project).get(operation.getName());
+      }
+   }
+
+   /**
+    * Lists the given operations, which share a scope and location, with a filter on their names.
+    *
+    * @return the operations found, by name
+    */
+   private Map<String, Operation> list(List<PendingOperation> batch) {
+      List<String> names = Lists.newArrayListWithCapacity(batch.size());
+      for (PendingOperation operation : batch) {
+         names.add(operation.latest.getName());
+      }
+      ListOptions options = new ListOptions.Builder().filter("name eq (" + Joiner.on('|').join(names) + ")");
+      Operation first = batch.get(0).latest;
+      Scope scope = batch.get(0).scope;
+      String project = userProject.get();
+      Iterable<Operation> operations;
+      switch (scope) {
+         case ZONE:
+            operations = api.getZoneOperationApiForProject(project).listInZone(location(first, scope).get(), options)
+                    .concat();
+            break;
+         case REGION:
+            operations = api.getRegionOperationApiForProject(project).listInRegion(location(first, scope).get(),
+                    options).concat();
+            break;
+         case GLOBAL:
+         default:
+            operations = api.getGlobalOperationApiForProject(project).list(options).concat();
+      }
+      Map<String, Operation> byName = Maps.newHashMap();
+      for (Operation operation : operations) {
+         byName.put(operation.getName(), operation);
+      }
+      return byName;
+   }
+
+   /**
+    * @return the name of the zone or region of a zone or region operation.
+    */
+   private static Optional<String> location(Operation operation, Scope scope) {
+      switch (scope) {
+         case ZONE:
+            return Optional.of(lastSegment(checkNotNull(operation.getZone(), "zone").get()));
+         case REGION:
+            return Optional.of(lastSegment(checkNotNull(operation.getRegion(), "region").get()));
+         case GLOBAL:
+         default:
+            return Optional.absent();
+      }
+   }
+
+   private static String lastSegment(URI uri) {
+      return getLast(Splitter.on('/').omitEmptyStrings().split(uri.getPath()));
+   }
+
+   private final class PendingOperation {
+      private final String key;
+      private final Scope scope;
+      private final long startedAt;
+      private final SettableFuture<Operation> future = SettableFuture.create();
+      private final AtomicBoolean polling = new AtomicBoolean();
+      private volatile Operation latest;
+      private volatile long nextPollAt;
+      private volatile long backoff;
+      private int waiters;
+
+      private PendingOperation(String key, Operation operation, Scope scope, long startedAt) {
+         this.key = key;
+         this.latest = operation;
+         this.scope = scope;
+         this.startedAt = startedAt;
+         this.nextPollAt = startedAt;
+         this.backoff = operationCompleteCheckInterval;
+      }
+
+      /**
+       * @return a future of this operation for one more caller, or null if every caller already gave it up
+       */
+      private synchronized ListenableFuture<Operation> newWaiter() {
+         if (future.isCancelled()) {
+            return null;
+         }
+         waiters++;
+         final SettableFuture<Operation> waiter = SettableFuture.create();
+         Futures.addCallback(future, new FutureCallback<Operation>() {
+            @Override
+            public void onSuccess(Operation result) {
+               waiter.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+               waiter.setException(t);
+            }
+         });
+         waiter.addListener(new Runnable() {
+            @Override
+            public void run() {
+               if (waiter.isCancelled()) {
+                  release();
+               }
+            }
+         }, MoreExecutors.sameThreadExecutor());
+         return waiter;
+      }
+
+      /**
+       * Gives up the operation for one caller, and stops polling it once no caller is left.
+       */
+      private synchronized void release() {
+         if (--waiters == 0) {
+            future.cancel(false);
+         }
+      }
+
+      private boolean isDue(long now) {
+         return now - nextPollAt >= 0;
+      }
+
+      private boolean isTimedOut(long now) {
+         return now - startedAt >= MILLISECONDS.toNanos(operationCompleteCheckTimeout);
+      }
+
+      /**
+       * @return the current backoff, with equal jitter, in milliseconds.
+       */
+      private long nextDelay() {
+         long half = backoff / 2;
+         return half + (long) (random.nextDouble() * (backoff - half));
+      }
+
+      /**
+       * Schedules the next poll after the given delay, and doubles the backoff.
+       */
+      private void backOff(long now, long delay) {
+         nextPollAt = now + MILLISECONDS.toNanos(delay);
+         backoff = Math.min(backoff * 2, operationCompleteCheckMaxInterval);
+      }
+   }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Address;
+import org.jclouds.googlecomputeengine.domain.Disk;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.MachineType;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.Resource.Kind;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseJson;
+import org.jclouds.json.Json;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Parses the response of an <code>aggregatedList</code> method, flattening the per zone or per region lists the
+ * response is keyed by into a single {@link ListPage}. Scopes that only carry a warning (e.g. because they have no
+ * resources) are skipped.
+ *
+ * @see <a href="https://developers.google.com/compute/docs/reference/v1/instances/aggregatedList"/>
+ */
+@Beta
+public abstract class BaseParseAggregatedList<T> implements Function<HttpResponse, ListPage<T>> {
+
+   private final ParseJson<AggregatedList> parser;
+
+   protected BaseParseAggregatedList(Json json) {
+      this.parser = new ParseJson<AggregatedList>(json, TypeLiteral.get(AggregatedList.class));
+   }
+
+   @Override
+   public ListPage<T> apply(HttpResponse response) {
+      AggregatedList aggregated = parser.apply(response);
+      if (aggregated == null) {
+         return null;
+      }
+      ListPage.Builder<T> builder = ListPage.<T>builder()
+              .kind(aggregated.kind)
+              .id(aggregated.id)
+              .selfLink(aggregated.selfLink)
+              .nextPageToken(aggregated.nextPageToken);
+      if (aggregated.items != null) {
+         for (ScopedList scope : aggregated.items.values()) {
+            Iterable<T> items = itemsIn(scope);
+            if (items != null) {
+               builder.items(items);
+            }
+         }
+      }
+      return builder.build();
+   }
+
+   /**
+    * @return the resources listed under the given scope, or null if the scope has none.
+    */
+   protected abstract Iterable<T> itemsIn(ScopedList scope);
+
+   /**
+    * Fetches the following pages of an aggregated list from the api of the listed resource.
+    */
+   public abstract static class AggregatedToPagedIterable<T, I extends AggregatedToPagedIterable<T, I>>
+           extends BaseToPagedIterable<T, I> {
+
+      private final GoogleComputeEngineApi api;
+
+      protected AggregatedToPagedIterable(GoogleComputeEngineApi api) {
+         this.api = checkNotNull(api, "api");
+      }
+
+      @Override
+      protected Function<Object, IterableWithMarker<T>> fetchNextPage(final String projectName,
+                                                                      final ListOptions options) {
+         return new Function<Object, IterableWithMarker<T>>() {
+
+            @Override
+            public IterableWithMarker<T> apply(Object input) {
+               return aggregatedListAtMarker(api, projectName, input.toString(), options);
+            }
+         };
+      }
+
+      /**
+       * @return the page of the aggregated list at the given marker.
+       */
+      protected abstract IterableWithMarker<T> aggregatedListAtMarker(GoogleComputeEngineApi api, String projectName,
+                                                                     String marker, ListOptions options);
+   }
+
+   /**
+    * Raw form of an aggregated list, whose items are keyed by scope (e.g. "zones/us-central1-a").
+    */
+   private static final class AggregatedList {
+      private Kind kind;
+      private String id;
+      private URI selfLink;
+      private String nextPageToken;
+      private Map<String, ScopedList> items;
+   }
+
+   /**
+    * The resources of a single scope of an aggregated list. Only the field matching the listed resource is set.
+    */
+   protected static final class ScopedList {
+      private Set<Instance> instances;
+      private Set<MachineType> machineTypes;
+      private Set<Disk> disks;
+      private Set<Address> addresses;
+      private Set<Operation> operations;
+
+      public Set<Instance> getInstances() {
+         return instances;
+      }
+
+      public Set<MachineType> getMachineTypes() {
+         return machineTypes;
+      }
+
+      public Set<Disk> getDisks() {
+         return disks;
+      }
+
+      public Set<Address> getAddresses() {
+         return addresses;
+      }
+
+      public Set<Operation> getOperations() {
+         return operations;
+      }
+   }
+}
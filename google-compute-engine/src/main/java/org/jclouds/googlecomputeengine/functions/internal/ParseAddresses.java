@@ -24,24 +24,20 @@ import javax.inject.Singleton;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Address;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author Andrew Bayer
  */
 @Singleton
-public class ParseAddresses extends ParseJson<ListPage<Address>> {
+public class ParseAddresses extends ParseListPage<Address> {
 
    @Inject
-   public ParseAddresses(Json json) {
-      super(json, new TypeLiteral<ListPage<Address>>() {
-      });
+   public ParseAddresses(Gson gson) {
+      super(gson, Address.class);
    }
 
    public static class ToPagedIterable extends BaseWithRegionToPagedIterable<Address, ToPagedIterable> {
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import javax.inject.Inject;
+
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Address;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.json.Json;
+
+/**
+ * Flattens an aggregated list of addresses into a single page.
+ */
+public class ParseAggregatedAddresses extends BaseParseAggregatedList<Address> {
+
+   @Inject
+   public ParseAggregatedAddresses(Json json) {
+      super(json);
+   }
+
+   @Override
+   protected Iterable<Address> itemsIn(ScopedList scope) {
+      return scope.getAddresses();
+   }
+
+   public static class ToPagedIterable extends AggregatedToPagedIterable<Address, ToPagedIterable> {
+
+      @Inject
+      protected ToPagedIterable(GoogleComputeEngineApi api) {
+         super(api);
+      }
+
+      @Override
+      protected IterableWithMarker<Address> aggregatedListAtMarker(GoogleComputeEngineApi api, String projectName,
+                                                                   String marker, ListOptions options) {
+         return api.getAddressApiForProject(projectName).aggregatedListAtMarker(marker, options);
+      }
+   }
+}
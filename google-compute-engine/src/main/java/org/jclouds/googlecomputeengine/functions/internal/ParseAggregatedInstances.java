@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import javax.inject.Inject;
+
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.json.Json;
+
+/**
+ * Flattens an aggregated list of instances into a single page.
+ */
+public class ParseAggregatedInstances extends BaseParseAggregatedList<Instance> {
+
+   @Inject
+   public ParseAggregatedInstances(Json json) {
+      super(json);
+   }
+
+   @Override
+   protected Iterable<Instance> itemsIn(ScopedList scope) {
+      return scope.getInstances();
+   }
+
+   public static class ToPagedIterable extends AggregatedToPagedIterable<Instance, ToPagedIterable> {
+
+      @Inject
+      protected ToPagedIterable(GoogleComputeEngineApi api) {
+         super(api);
+      }
+
+      @Override
+      protected IterableWithMarker<Instance> aggregatedListAtMarker(GoogleComputeEngineApi api, String projectName,
+                                                                    String marker, ListOptions options) {
+         return api.getInstanceApiForProject(projectName).aggregatedListAtMarker(marker, options);
+      }
+   }
+}
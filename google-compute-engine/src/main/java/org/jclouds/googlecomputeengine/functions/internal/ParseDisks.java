@@ -24,24 +24,20 @@ import javax.inject.Singleton;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Disk;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
 @Singleton
-public class ParseDisks extends ParseJson<ListPage<Disk>> {
+public class ParseDisks extends ParseListPage<Disk> {
 
    @Inject
-   public ParseDisks(Json json) {
-      super(json, new TypeLiteral<ListPage<Disk>>() {
-      });
+   public ParseDisks(Gson gson) {
+      super(gson, Disk.class);
    }
 
    public static class ToPagedIterable extends BaseWithZoneToPagedIterable<Disk, ToPagedIterable> {
@@ -23,23 +23,19 @@ import javax.inject.Inject;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Firewall;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseFirewalls extends ParseJson<ListPage<Firewall>> {
+public class ParseFirewalls extends ParseListPage<Firewall> {
 
    @Inject
-   public ParseFirewalls(Json json) {
-      super(json, new TypeLiteral<ListPage<Firewall>>() {
-      });
+   public ParseFirewalls(Gson gson) {
+      super(gson, Firewall.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Firewall, ToPagedIterable> {
@@ -23,23 +23,19 @@ import javax.inject.Inject;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Image;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseImages extends ParseJson<ListPage<Image>> {
+public class ParseImages extends ParseListPage<Image> {
 
    @Inject
-   public ParseImages(Json json) {
-      super(json, new TypeLiteral<ListPage<Image>>() {
-      });
+   public ParseImages(Gson gson) {
+      super(gson, Image.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Image, ToPagedIterable> {
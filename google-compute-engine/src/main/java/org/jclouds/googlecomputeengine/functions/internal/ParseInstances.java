@@ -23,23 +23,19 @@ import javax.inject.Inject;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Instance;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseInstances extends ParseJson<ListPage<Instance>> {
+public class ParseInstances extends ParseListPage<Instance> {
 
    @Inject
-   public ParseInstances(Json json) {
-      super(json, new TypeLiteral<ListPage<Instance>>() {
-      });
+   public ParseInstances(Gson gson) {
+      super(gson, Instance.class);
    }
 
    public static class ToPagedIterable extends BaseWithZoneToPagedIterable<Instance, ToPagedIterable> {
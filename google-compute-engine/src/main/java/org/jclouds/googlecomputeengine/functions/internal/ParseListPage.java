@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.http.HttpUtils.releasePayload;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource.Kind;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Parses a list response one item at a time, straight from the response stream, rather than reading the whole
+ * response and building the items twice, once for the json and once for the {@link ListPage}.
+ * <p/>
+ * {@link #apply(HttpResponse, ItemConsumer)} hands each item to a consumer as soon as it is read, so that a caller
+ * that only needs to look at the items doesn't keep the whole page in memory.
+ */
+@Beta
+public abstract class ParseListPage<T> implements Function<HttpResponse, ListPage<T>> {
+
+   /**
+    * Receives the items of a list page, in order, as they are read.
+    */
+   public interface ItemConsumer<T> {
+      void accept(T item);
+   }
+
+   private final TypeAdapter<Kind> kindAdapter;
+   private final TypeAdapter<URI> uriAdapter;
+   private final TypeAdapter<T> itemAdapter;
+
+   protected ParseListPage(Gson gson, Class<T> itemType) {
+      checkNotNull(gson, "gson");
+      this.kindAdapter = gson.getAdapter(Kind.class);
+      this.uriAdapter = gson.getAdapter(URI.class);
+      this.itemAdapter = gson.getAdapter(checkNotNull(itemType, "itemType"));
+   }
+
+   @Override
+   public ListPage<T> apply(HttpResponse response) {
+      final ListPage.Builder<T> builder = ListPage.builder();
+      return apply(response, builder, new ItemConsumer<T>() {
+         @Override
+         public void accept(T item) {
+            builder.addItem(item);
+         }
+      });
+   }
+
+   /**
+    * Parses the page, handing its items to the given consumer instead of adding them to the page.
+    *
+    * @return the page, without any items
+    */
+   public ListPage<T> apply(HttpResponse response, ItemConsumer<? super T> consumer) {
+      return apply(response, ListPage.<T>builder(), checkNotNull(consumer, "consumer"));
+   }
+
+   private ListPage<T> apply(HttpResponse response, ListPage.Builder<T> builder, ItemConsumer<? super T> consumer) {
+      if (response.getPayload() == null) {
+         return null;
+      }
+      try {
+         JsonReader reader = new JsonReader(new InputStreamReader(response.getPayload().openStream(), UTF_8));
+         try {
+            return read(reader, builder, consumer);
+         } finally {
+            reader.close();
+         }
+      } catch (IOException e) {
+         throw new HttpResponseException("error parsing list page\n" + response, null, response, e);
+      } finally {
+         releasePayload(response);
+      }
+   }
+
+   private ListPage<T> read(JsonReader reader, ListPage.Builder<T> builder, ItemConsumer<? super T> consumer)
+           throws IOException {
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+         } else if (name.equals("kind")) {
+            builder.kind(kindAdapter.read(reader));
+         } else if (name.equals("id")) {
+            builder.id(reader.nextString());
+         } else if (name.equals("selfLink")) {
+            builder.selfLink(uriAdapter.read(reader));
+         } else if (name.equals("nextPageToken")) {
+            builder.nextPageToken(reader.nextString());
+         } else if (name.equals("items")) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+               consumer.accept(itemAdapter.read(reader));
+            }
+            reader.endArray();
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      return builder.build();
+   }
+}
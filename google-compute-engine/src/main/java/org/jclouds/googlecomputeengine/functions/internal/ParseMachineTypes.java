@@ -22,23 +22,20 @@ import javax.inject.Inject;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.MachineType;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseMachineTypes extends ParseJson<ListPage<MachineType>> {
+public class ParseMachineTypes extends ParseListPage<MachineType> {
 
    @Inject
-   public ParseMachineTypes(Json json) {
-      super(json, new TypeLiteral<ListPage<MachineType>>() {});
+   public ParseMachineTypes(Gson gson) {
+      super(gson, MachineType.class);
    }
 
    public static class ToPagedIterable extends BaseWithZoneToPagedIterable<MachineType, ToPagedIterable> {
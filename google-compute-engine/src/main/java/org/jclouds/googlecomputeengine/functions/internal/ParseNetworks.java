@@ -22,24 +22,20 @@ import javax.inject.Inject;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseNetworks extends ParseJson<ListPage<Network>> {
+public class ParseNetworks extends ParseListPage<Network> {
 
    @Inject
-   public ParseNetworks(Json json) {
-      super(json, new TypeLiteral<ListPage<Network>>() {
-      });
+   public ParseNetworks(Gson gson) {
+      super(gson, Network.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Network, ToPagedIterable> {
@@ -22,24 +22,20 @@ import javax.inject.Inject;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Region;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseRegions extends ParseJson<ListPage<Region>> {
+public class ParseRegions extends ParseListPage<Region> {
 
    @Inject
-   public ParseRegions(Json json) {
-      super(json, new TypeLiteral<ListPage<Region>>() {
-      });
+   public ParseRegions(Gson gson) {
+      super(gson, Region.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Region, ToPagedIterable> {
@@ -22,24 +22,20 @@ import javax.inject.Inject;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Route;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author Andrew Bayer
  */
-public class ParseRoutes extends ParseJson<ListPage<Route>> {
+public class ParseRoutes extends ParseListPage<Route> {
 
    @Inject
-   public ParseRoutes(Json json) {
-      super(json, new TypeLiteral<ListPage<Route>>() {
-      });
+   public ParseRoutes(Gson gson) {
+      super(gson, Route.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Route, ToPagedIterable> {
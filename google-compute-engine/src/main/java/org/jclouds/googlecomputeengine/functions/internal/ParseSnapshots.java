@@ -23,26 +23,22 @@ import javax.inject.Singleton;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Snapshot;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  * @author Andrew Bayer
  */
 @Singleton
-public class ParseSnapshots extends ParseJson<ListPage<Snapshot>> {
+public class ParseSnapshots extends ParseListPage<Snapshot> {
 
    @Inject
-   public ParseSnapshots(Json json) {
-      super(json, new TypeLiteral<ListPage<Snapshot>>() {
-      });
+   public ParseSnapshots(Gson gson) {
+      super(gson, Snapshot.class);
    }
 
    public static class ToPagedIterable extends BaseToPagedIterable<Snapshot, ToPagedIterable> {
@@ -22,24 +22,20 @@ import javax.inject.Inject;
 
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
-import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
-import org.jclouds.json.Json;
 
 import com.google.common.base.Function;
-import com.google.inject.TypeLiteral;
+import com.google.gson.Gson;
 
 /**
  * @author David Alves
  */
-public class ParseZoneOperations extends ParseJson<ListPage<Operation>> {
+public class ParseZoneOperations extends ParseListPage<Operation> {
 
    @Inject
-   public ParseZoneOperations(Json json) {
-      super(json, new TypeLiteral<ListPage<Operation>>() {
-      });
+   public ParseZoneOperations(Gson gson) {
+      super(gson, Operation.class);
    }
 
    public static class ToPagedIterable extends BaseWithZoneToPagedIterable<Operation, ToPagedIterable> {
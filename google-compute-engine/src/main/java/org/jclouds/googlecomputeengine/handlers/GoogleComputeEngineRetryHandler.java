@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.Constants.PROPERTY_MAX_RETRIES;
+import static org.jclouds.Constants.PROPERTY_RETRY_DELAY_START;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_BUDGET;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_MAX_DELAY;
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpRetryHandler;
+import org.jclouds.json.Json;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Retries requests that failed for a transient reason: the server errors 500, 502, 503 and 504, a 429, and a 403
+ * whose Google error body gives {@code rateLimitExceeded} or {@code userRateLimitExceeded} as the reason.
+ * <p>
+ * Retries back off exponentially from {@link org.jclouds.Constants#PROPERTY_RETRY_DELAY_START} up to
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#RETRY_MAX_DELAY}, with full jitter so that the
+ * many requests throttled together do not all come back at the same time. The retries of all requests share the
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#RETRY_BUDGET}; once it is spent, failures are
+ * reported right away instead of adding to the load.
+ */
+@Beta
+@Singleton
+public class GoogleComputeEngineRetryHandler implements HttpRetryHandler {
+
+   private static final Set<Integer> RETRYABLE_STATUS_CODES = ImmutableSet.of(429, 500, 502, 503, 504);
+   private static final Set<String> RATE_LIMIT_REASONS = ImmutableSet.of("rateLimitExceeded",
+           "userRateLimitExceeded");
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final Json json;
+   private final int retryCountLimit;
+   private final long delayStart;
+   private final long maxDelay;
+   private final Optional<RateLimiter> retryBudget;
+   private final Random random = new Random();
+   private final ConcurrentMap<String, AtomicLong> retries = Maps.newConcurrentMap();
+   private final AtomicLong retriesOverBudget = new AtomicLong();
+
+   @Inject
+   GoogleComputeEngineRetryHandler(Json json, @Named(PROPERTY_MAX_RETRIES) int retryCountLimit,
+                                   @Named(PROPERTY_RETRY_DELAY_START) long delayStart,
+                                   @Named(RETRY_MAX_DELAY) Long maxDelay,
+                                   @Named(RETRY_BUDGET) Double retryBudget) {
+      this.json = checkNotNull(json, "json");
+      this.retryCountLimit = retryCountLimit;
+      this.delayStart = delayStart;
+      this.maxDelay = checkNotNull(maxDelay, "retry max delay");
+      checkArgument(checkNotNull(retryBudget, "retry budget") >= 0, "retry budget must not be negative");
+      this.retryBudget = retryBudget == 0 ? Optional.<RateLimiter>absent()
+              : Optional.of(RateLimiter.create(retryBudget));
+   }
+
+   @Override
+   public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
+      Optional<String> reason = retryableReason(response);
+      if (!reason.isPresent()) {
+         return false;
+      }
+      command.incrementFailureCount();
+      if (!command.isReplayable()) {
+         logger.warn("cannot retry after %s, command is not replayable: %s", reason.get(), command);
+         return false;
+      }
+      if (command.getFailureCount() > retryCountLimit) {
+         logger.warn("cannot retry after %s, command has exceeded retry limit %d: %s", reason.get(), retryCountLimit,
+                 command);
+         return false;
+      }
+      if (retryBudget.isPresent() && !retryBudget.get().tryAcquire()) {
+         retriesOverBudget.incrementAndGet();
+         logger.warn("cannot retry after %s, the retry budget is spent: %s", reason.get(), command);
+         return false;
+      }
+      count(reason.get());
+      long delay = delay(command.getFailureCount());
+      logger.debug("retrying after %s in %dms: %s", reason.get(), delay, command);
+      Uninterruptibles.sleepUninterruptibly(delay, MILLISECONDS);
+      return true;
+   }
+
+   /**
+    * @return the number of retries so far, by the reason the request was retried for.
+    */
+   public Map<String, Long> getRetryCounts() {
+      ImmutableMap.Builder<String, Long> counts = ImmutableMap.builder();
+      for (Map.Entry<String, AtomicLong> count : retries.entrySet()) {
+         counts.put(count.getKey(), count.getValue().get());
+      }
+      return counts.build();
+   }
+
+   /**
+    * @return the number of retryable failures that were not retried because the retry budget was spent.
+    */
+   public long getRetriesOverBudget() {
+      return retriesOverBudget.get();
+   }
+
+   /**
+    * Exponential backoff with full jitter: a random delay up to a ceiling that doubles with every failure.
+    */
+   long delay(int failureCount) {
+      long ceiling = maxDelay;
+      if (failureCount - 1 < Long.numberOfLeadingZeros(delayStart)) {
+         ceiling = Math.min(maxDelay, delayStart << (failureCount - 1));
+      }
+      return (long) (random.nextDouble() * ceiling);
+   }
+
+   private Optional<String> retryableReason(HttpResponse response) {
+      int statusCode = response.getStatusCode();
+      if (statusCode != 403 && !RETRYABLE_STATUS_CODES.contains(statusCode)) {
+         return Optional.absent();
+      }
+      // the error handler reads the body as well when the request is not retried
+      byte[] data = closeClientButKeepContentStream(response);
+      Optional<String> reason = data != null ? reason(new String(data, UTF_8)) : Optional.<String>absent();
+      if (statusCode == 403) {
+         return reason.isPresent() && RATE_LIMIT_REASONS.contains(reason.get()) ? reason : Optional.<String>absent();
+      }
+      return reason.or(Optional.of(Integer.toString(statusCode)));
+   }
+
+   private Optional<String> reason(String body) {
+      try {
+         GoogleErrorResponse response = json.fromJson(body, GoogleErrorResponse.class);
+         if (response != null && response.error != null && response.error.errors != null) {
+            for (GoogleError error : response.error.errors) {
+               if (error.reason != null) {
+                  return Optional.of(error.reason);
+               }
+            }
+         }
+      } catch (RuntimeException e) {
+         // not a Google error body, for example an html page from a proxy
+      }
+      return Optional.absent();
+   }
+
+   private void count(String reason) {
+      AtomicLong count = retries.get(reason);
+      if (count == null) {
+         AtomicLong created = new AtomicLong();
+         count = retries.putIfAbsent(reason, created);
+         if (count == null) {
+            count = created;
+         }
+      }
+      count.incrementAndGet();
+   }
+
+   /**
+    * The body of an error response: {@code {"error": {"errors": [{"reason": ...}], "code": ..., "message": ...}}}.
+    */
+   private static final class GoogleErrorResponse {
+      private GoogleErrors error;
+   }
+
+   private static final class GoogleErrors {
+      private List<GoogleError> errors;
+   }
+
+   private static final class GoogleError {
+      private String reason;
+   }
+}
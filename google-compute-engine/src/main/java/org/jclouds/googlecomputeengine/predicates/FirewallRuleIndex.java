@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.predicates;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.equalsIpPermission;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.providesIpPermission;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.googlecomputeengine.domain.Firewall;
+import org.jclouds.net.domain.IpPermission;
+import org.jclouds.net.domain.IpProtocol;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * Answers {@link NetworkFirewallPredicates#providesIpPermission(IpPermission)} and
+ * {@link NetworkFirewallPredicates#equalsIpPermission(IpPermission)} over many firewalls without checking each of
+ * them.
+ * <p/>
+ * A firewall can only match a permission if it allows the permission's protocol, and if it has one of the
+ * permission's source tags and one of its source ranges, or none when the permission has none. The firewalls are
+ * indexed by each of those, and only the smallest set of candidates is checked with the predicates, so the answers
+ * are the same as going through all the firewalls.
+ * <p/>
+ * Firewalls are identified by name; the index can be kept up to date as they are created or deleted. It is not
+ * thread safe.
+ */
+@Beta
+public class FirewallRuleIndex {
+
+   private final Map<String, Firewall> firewallsByName = Maps.newLinkedHashMap();
+   private final SetMultimap<IpProtocol, Firewall> firewallsByProtocol = HashMultimap.create();
+   private final SetMultimap<String, Firewall> firewallsBySourceTag = HashMultimap.create();
+   private final SetMultimap<String, Firewall> firewallsBySourceRange = HashMultimap.create();
+   private final Set<Firewall> firewallsWithoutSourceTags = Sets.newHashSet();
+   private final Set<Firewall> firewallsWithoutSourceRanges = Sets.newHashSet();
+
+   public FirewallRuleIndex() {
+   }
+
+   public FirewallRuleIndex(Iterable<Firewall> firewalls) {
+      for (Firewall firewall : checkNotNull(firewalls, "firewalls")) {
+         add(firewall);
+      }
+   }
+
+   /**
+    * Adds a firewall, replacing any firewall of the same name.
+    */
+   public void add(Firewall firewall) {
+      checkNotNull(firewall, "firewall");
+      remove(firewall.getName());
+      firewallsByName.put(firewall.getName(), firewall);
+      for (Firewall.Rule rule : firewall.getAllowed()) {
+         firewallsByProtocol.put(rule.getIpProtocol(), firewall);
+      }
+      index(firewall, firewall.getSourceTags(), firewallsBySourceTag, firewallsWithoutSourceTags);
+      index(firewall, firewall.getSourceRanges(), firewallsBySourceRange, firewallsWithoutSourceRanges);
+   }
+
+   /**
+    * Removes the firewall of the given name, if any.
+    *
+    * @return the firewall removed, or null if there was none
+    */
+   public Firewall remove(String name) {
+      Firewall firewall = firewallsByName.remove(checkNotNull(name, "name"));
+      if (firewall == null) {
+         return null;
+      }
+      for (Firewall.Rule rule : firewall.getAllowed()) {
+         firewallsByProtocol.remove(rule.getIpProtocol(), firewall);
+      }
+      unindex(firewall, firewall.getSourceTags(), firewallsBySourceTag, firewallsWithoutSourceTags);
+      unindex(firewall, firewall.getSourceRanges(), firewallsBySourceRange, firewallsWithoutSourceRanges);
+      return firewall;
+   }
+
+   /**
+    * @return the firewalls in the index, in the order they were added
+    */
+   public Collection<Firewall> getFirewalls() {
+      return firewallsByName.values();
+   }
+
+   /**
+    * @return whether any of the firewalls provides the given permission
+    * @see NetworkFirewallPredicates#providesIpPermission(IpPermission)
+    */
+   public boolean provides(IpPermission permission) {
+      return Iterables.any(candidates(permission), providesIpPermission(permission));
+   }
+
+   /**
+    * @return the firewalls that are equal to the given permission
+    * @see NetworkFirewallPredicates#equalsIpPermission(IpPermission)
+    */
+   public Set<Firewall> equalTo(IpPermission permission) {
+      return ImmutableSet.copyOf(Iterables.filter(candidates(permission), equalsIpPermission(permission)));
+   }
+
+   private Iterable<Firewall> candidates(IpPermission permission) {
+      checkNotNull(permission, "permission");
+      List<Set<Firewall>> byProtocol = ImmutableList.of(firewallsByProtocol.get(permission.getIpProtocol()));
+      List<Set<Firewall>> bySourceTag = buckets(permission.getGroupIds(), firewallsBySourceTag,
+              firewallsWithoutSourceTags);
+      List<Set<Firewall>> bySourceRange = buckets(permission.getCidrBlocks(), firewallsBySourceRange,
+              firewallsWithoutSourceRanges);
+
+      List<Set<Firewall>> smallest = byProtocol;
+      if (size(bySourceTag) < size(smallest)) {
+         smallest = bySourceTag;
+      }
+      if (size(bySourceRange) < size(smallest)) {
+         smallest = bySourceRange;
+      }
+      return Iterables.concat(smallest);
+   }
+
+   private static List<Set<Firewall>> buckets(Set<String> keys, SetMultimap<String, Firewall> firewallsByKey,
+                                              Set<Firewall> firewallsWithoutKeys) {
+      if (keys.isEmpty()) {
+         return ImmutableList.of(firewallsWithoutKeys);
+      }
+      ImmutableList.Builder<Set<Firewall>> buckets = ImmutableList.builder();
+      for (String key : keys) {
+         buckets.add(firewallsByKey.get(key));
+      }
+      return buckets.build();
+   }
+
+   private static int size(List<Set<Firewall>> buckets) {
+      int size = 0;
+      for (Set<Firewall> bucket : buckets) {
+         size += bucket.size();
+      }
+      return size;
+   }
+
+   private static void index(Firewall firewall, Set<String> keys, SetMultimap<String, Firewall> firewallsByKey,
+                             Set<Firewall> firewallsWithoutKeys) {
+      if (keys.isEmpty()) {
+         firewallsWithoutKeys.add(firewall);
+      }
+      for (String key : keys) {
+         firewallsByKey.put(key, firewall);
+      }
+   }
+
+   private static void unindex(Firewall firewall, Set<String> keys, SetMultimap<String, Firewall> firewallsByKey,
+                               Set<Firewall> firewallsWithoutKeys) {
+      firewallsWithoutKeys.remove(firewall);
+      for (String key : keys) {
+         firewallsByKey.remove(key, firewall);
+      }
+   }
+}
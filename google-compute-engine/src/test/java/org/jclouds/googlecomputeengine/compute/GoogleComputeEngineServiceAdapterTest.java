@@ -0,0 +1,716 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.IAnswer;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.ComputeServiceAdapter.NodeAndInitialCredentials;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.internal.TemplateImpl;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.FirewallTagNamingConvention;
+import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.InstanceInZone;
+import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.features.DiskApi;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.features.ZoneOperationApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Checks that nodes are listed across zones concurrently, and that creating and destroying many nodes issues their
+ * requests together rather than one node at a time.
+ */
+@Test(groups = "unit", singleThreaded = true)
+public class GoogleComputeEngineServiceAdapterTest {
+
+   private static final long BARRIER_TIMEOUT_SECONDS = 30;
+   private static final long INSERT_LATENCY_MILLIS = 100;
+
+   private final ListeningExecutorService userExecutor = MoreExecutors.listeningDecorator(Executors
+           .newCachedThreadPool());
+   private final ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors
+           .newSingleThreadScheduledExecutor());
+
+   @AfterClass(alwaysRun = true)
+   public void shutdownExecutor() {
+      userExecutor.shutdownNow();
+      scheduler.shutdownNow();
+   }
+
+   @DataProvider(name = "nodeCounts")
+   public Object[][] nodeCounts() {
+      return new Object[][]{{10}, {100}, {500}};
+   }
+
+   @DataProvider(name = "zoneCounts")
+   public Object[][] zoneCounts() {
+      return new Object[][]{{1}, {5}, {20}};
+   }
+
+   @Test(dataProvider = "zoneCounts")
+   public void testListNodesListsAllZonesConcurrently(int zoneCount) {
+      // a listing only returns once all the zones are being listed at the same time
+      CyclicBarrier allZonesListed = new CyclicBarrier(zoneCount);
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).times(zoneCount);
+      for (int i = 0; i < zoneCount; i++) {
+         expect(instanceApi.listInZone(zoneName(i)))
+                 .andAnswer(listingAt(allZonesListed, inFlight, maxInFlight, instanceInZone(i)));
+      }
+      replay(api, instanceApi);
+
+      GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(zoneCount), zoneCount, 60000, false);
+
+      Set<InstanceInZone> nodes = ImmutableSet.copyOf(adapter.listNodes());
+
+      assertEquals(nodes.size(), zoneCount);
+      for (int i = 0; i < zoneCount; i++) {
+         assertTrue(nodes.contains(new InstanceInZone(instanceInZone(i), zoneName(i))), "missing zone " + i);
+      }
+      assertEquals(maxInFlight.get(), zoneCount);
+      verify(api, instanceApi);
+   }
+
+   public void testListNodesHonorsConcurrencyLimit() {
+      int zoneCount = 8;
+      // the zones can only be listed two at a time
+      CyclicBarrier twoZonesListed = new CyclicBarrier(2);
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).times(zoneCount);
+      for (int i = 0; i < zoneCount; i++) {
+         expect(instanceApi.listInZone(zoneName(i)))
+                 .andAnswer(listingAt(twoZonesListed, inFlight, maxInFlight, instanceInZone(i)));
+      }
+      replay(api, instanceApi);
+
+      GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(zoneCount), 2, 60000, false);
+
+      assertEquals(ImmutableSet.copyOf(adapter.listNodes()).size(), zoneCount);
+
+      assertEquals(maxInFlight.get(), 2);
+      verify(api, instanceApi);
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testListNodesFailsWhenZoneTimesOut() {
+      final CountDownLatch testDone = new CountDownLatch(1);
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi);
+      expect(instanceApi.listInZone(zoneName(0))).andAnswer(new IAnswer<PagedIterable<Instance>>() {
+         @Override
+         public PagedIterable<Instance> answer() throws Throwable {
+            // never returns before the listing times out
+            testDone.await();
+            return PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(instanceInZone(0))));
+         }
+      });
+      replay(api, instanceApi);
+
+      try {
+         adapter(api, zones(1), 1, 50, false).listNodes();
+      } finally {
+         testDone.countDown();
+      }
+   }
+
+   public void testAggregatedListNodesIssuesSingleRequestForAllZones() {
+      int zoneCount = 20;
+      ImmutableSet.Builder<Instance> instances = ImmutableSet.builder();
+      for (int i = 0; i < zoneCount; i++) {
+         instances.add(instanceInZone(i));
+      }
+      // instances in zones that are not visible as locations are left out
+      instances.add(instanceInZone(zoneCount));
+
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi);
+      // a single request regardless of the number of zones, even when zones are listed one at a time
+      expect(instanceApi.aggregatedList()).andReturn(PagedIterables.of(IterableWithMarkers.from(instances.build())))
+              .once();
+      replay(api, instanceApi);
+
+      GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(zoneCount), 1, 60000, true);
+
+      Set<InstanceInZone> nodes = ImmutableSet.copyOf(adapter.listNodes());
+
+      assertEquals(nodes.size(), zoneCount);
+      for (int i = 0; i < zoneCount; i++) {
+         assertTrue(nodes.contains(new InstanceInZone(instanceInZone(i), zoneName(i))), "missing zone " + i);
+      }
+      verify(api, instanceApi);
+   }
+
+   public void testListNodesByIdsGetsFewInstancesDirectly() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).times(3);
+      expect(instanceApi.getInZone(zoneName(0), "test-0")).andReturn(instanceInZone(0));
+      expect(instanceApi.getInZone(zoneName(1), "test-1")).andReturn(instanceInZone(1));
+      expect(instanceApi.getInZone(zoneName(1), "missing")).andReturn(null);
+      replay(api, instanceApi);
+
+      Set<InstanceInZone> nodes = ImmutableSet.copyOf(adapter(api, zones(2), 2, 60000, true)
+              .listNodesByIds(ImmutableSet.of(zoneName(0) + "/test-0", zoneName(1) + "/test-1",
+                      zoneName(1) + "/missing")));
+
+      assertEquals(nodes, ImmutableSet.of(new InstanceInZone(instanceInZone(0), zoneName(0)),
+              new InstanceInZone(instanceInZone(1), zoneName(1))));
+      verify(api, instanceApi);
+   }
+
+   public void testListNodesByIdsFiltersManyInstancesByName() {
+      int idCount = GoogleComputeEngineServiceAdapter.MAX_NAMES_PER_FILTER * 2 + 1;
+      ImmutableSet.Builder<String> ids = ImmutableSet.builder();
+      ImmutableSet.Builder<InstanceInZone> expected = ImmutableSet.builder();
+      for (int i = 0; i < idCount; i++) {
+         Instance instance = instanceInZone(0).toBuilder().name("test-" + i).build();
+         ids.add(zoneName(0) + "/" + instance.getName());
+         expected.add(new InstanceInZone(instance, zoneName(0)));
+      }
+
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      // 101 names in batches of 50 are listed with three filtered requests
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).times(3);
+      expect(instanceApi.listInZone(eq(zoneName(0)), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Instance>>() {
+                 @Override
+                 public PagedIterable<Instance> answer() throws Throwable {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[1]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableSet.Builder<Instance> matches = ImmutableSet.builder();
+                    for (String name : Splitter.on('|').split(filter.substring("name eq (".length(),
+                            filter.length() - 1))) {
+                       matches.add(instanceInZone(0).toBuilder().name(name).build());
+                    }
+                    // an instance that was not asked for is dropped by the final match
+                    matches.add(instanceInZone(0).toBuilder().name("not-requested").build());
+                    return PagedIterables.of(IterableWithMarkers.from(matches.build()));
+                 }
+              }).times(3);
+      replay(api, instanceApi);
+
+      Set<InstanceInZone> nodes = ImmutableSet.copyOf(adapter(api, zones(1), 2, 60000, true)
+              .listNodesByIds(ids.build()));
+
+      assertEquals(nodes, expected.build());
+      verify(api, instanceApi);
+   }
+
+   /**
+    * Creates nodes the way {@link org.jclouds.googlecomputeengine.compute.strategy.CreateNodesWithGroupEncodedIntoNameThenAddToSet}
+    * does: every insert is submitted first, and each node is then built once its insert is done.
+    */
+   @Test(dataProvider = "nodeCounts")
+   public void testSubmittedInsertsAreAllIssuedBeforeAnyNodeIsBuilt(int nodeCount) throws Exception {
+      final AtomicInteger inserted = new AtomicInteger();
+      final AtomicInteger insertedAtFirstGet = new AtomicInteger(-1);
+      final AtomicInteger operationRequests = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(instanceApi.createInZone(anyObject(String.class), eq(zoneName(0)), anyObject(InstanceTemplate.class)))
+              .andAnswer(new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    Thread.sleep(INSERT_LATENCY_MILLIS);
+                    inserted.incrementAndGet();
+                    return zoneOperation((String) getCurrentArguments()[0], Operation.Status.PENDING);
+                 }
+              }).anyTimes();
+      expect(zoneOperationApi.getInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(
+              new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    operationRequests.incrementAndGet();
+                    return zoneOperation((String) getCurrentArguments()[1], Operation.Status.DONE);
+                 }
+              }).anyTimes();
+      expect(zoneOperationApi.listInZone(eq(zoneName(0)), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() throws Throwable {
+                    operationRequests.incrementAndGet();
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[1]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableSet.Builder<Operation> operations = ImmutableSet.builder();
+                    for (String name : Splitter.on('|').split(filter.substring("name eq (".length(),
+                            filter.length() - 1))) {
+                       operations.add(zoneOperation(name, Operation.Status.DONE));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      expect(instanceApi.getInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(new IAnswer<Instance>() {
+         @Override
+         public Instance answer() throws Throwable {
+            insertedAtFirstGet.compareAndSet(-1, inserted.get());
+            return instanceInZone(0).toBuilder().name((String) getCurrentArguments()[1]).build();
+         }
+      }).anyTimes();
+      replay(api, instanceApi, zoneOperationApi);
+
+      final GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(1), 1, 60000, true);
+      final Template template = template();
+
+      List<ListenableFuture<NodeAndInitialCredentials<InstanceInZone>>> nodes = Lists.newArrayList();
+      for (int i = 0; i < nodeCount; i++) {
+         final String name = "test-" + i;
+         nodes.add(Futures.transform(adapter.submitNodeInsert("test", name, template),
+                 new AsyncFunction<Operation, NodeAndInitialCredentials<InstanceInZone>>() {
+                    @Override
+                    public ListenableFuture<NodeAndInitialCredentials<InstanceInZone>> apply(Operation input) {
+                       return userExecutor.submit(new Callable<NodeAndInitialCredentials<InstanceInZone>>() {
+                          @Override
+                          public NodeAndInitialCredentials<InstanceInZone> call() {
+                             return adapter.createNodeWithGroupEncodedIntoName("test", name, template);
+                          }
+                       });
+                    }
+                 }));
+      }
+      List<NodeAndInitialCredentials<InstanceInZone>> created = Futures.allAsList(nodes).get(1, TimeUnit.MINUTES);
+
+      assertEquals(created.size(), nodeCount);
+      assertEquals(created.get(nodeCount - 1).getNodeId(), zoneName(0) + "/test-" + (nodeCount - 1));
+      assertEquals(inserted.get(), nodeCount);
+      // the inserts are all issued back-to-back, and their operations are polled together
+      assertEquals(insertedAtFirstGet.get(), nodeCount);
+      assertTrue(operationRequests.get() < nodeCount, "checked operations with " + operationRequests + " requests");
+      verify(api, instanceApi, zoneOperationApi);
+   }
+
+   public void testInsertsWaitingForTheInsertRateDoNotHoldUserThreads() throws Exception {
+      int nodeCount = 5;
+      final AtomicInteger inserted = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(instanceApi.createInZone(anyObject(String.class), eq(zoneName(0)), anyObject(InstanceTemplate.class)))
+              .andAnswer(new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    inserted.incrementAndGet();
+                    return zoneOperation((String) getCurrentArguments()[0], Operation.Status.DONE);
+                 }
+              }).times(nodeCount);
+      expect(zoneOperationApi.getInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(
+              new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    return zoneOperation((String) getCurrentArguments()[1], Operation.Status.DONE);
+                 }
+              }).anyTimes();
+      expect(zoneOperationApi.listInZone(eq(zoneName(0)), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() throws Throwable {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[1]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableSet.Builder<Operation> operations = ImmutableSet.builder();
+                    for (String name : Splitter.on('|').split(filter.substring("name eq (".length(),
+                            filter.length() - 1))) {
+                       operations.add(zoneOperation(name, Operation.Status.DONE));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      replay(api, instanceApi, zoneOperationApi);
+
+      // a single user thread, and inserts spaced by half a second
+      ListeningExecutorService singleThread = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(1), singleThread, 2d);
+         Template template = template();
+         List<ListenableFuture<Operation>> inserts = Lists.newArrayList();
+         for (int i = 0; i < nodeCount; i++) {
+            inserts.add(adapter.submitNodeInsert("test", "test-" + i, template));
+         }
+
+         // the inserts waiting for their turn leave the only user thread free for other work
+         int insertedWhenIdle = singleThread.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+               return inserted.get();
+            }
+         }).get(1, TimeUnit.MINUTES);
+         assertTrue(insertedWhenIdle < nodeCount, "user thread was held until " + insertedWhenIdle + " inserts");
+
+         assertEquals(Futures.allAsList(inserts).get(1, TimeUnit.MINUTES).size(), nodeCount);
+         assertEquals(inserted.get(), nodeCount);
+      } finally {
+         singleThread.shutdownNow();
+      }
+      verify(api, instanceApi, zoneOperationApi);
+   }
+
+   public void testNodeSubmittedConcurrentlyIsOnlyInsertedOnce() throws Exception {
+      int submitters = 8;
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(instanceApi.createInZone(eq("test-0"), eq(zoneName(0)), anyObject(InstanceTemplate.class)))
+              .andReturn(zoneOperation("test-0", Operation.Status.DONE)).once();
+      expect(zoneOperationApi.getInZone(zoneName(0), "test-0")).andReturn(zoneOperation("test-0",
+              Operation.Status.DONE)).anyTimes();
+      replay(api, instanceApi, zoneOperationApi);
+
+      final GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(1), userExecutor, 1000000d);
+      final Template template = template();
+      final CyclicBarrier barrier = new CyclicBarrier(submitters);
+      List<ListenableFuture<ListenableFuture<Operation>>> submissions = Lists.newArrayList();
+      for (int i = 0; i < submitters; i++) {
+         submissions.add(userExecutor.submit(new Callable<ListenableFuture<Operation>>() {
+            @Override
+            public ListenableFuture<Operation> call() throws Exception {
+               barrier.await(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+               return adapter.submitNodeInsert("test", "test-0", template);
+            }
+         }));
+      }
+
+      List<ListenableFuture<Operation>> inserts = Lists.newArrayList();
+      int rejected = 0;
+      for (ListenableFuture<ListenableFuture<Operation>> submission : submissions) {
+         try {
+            inserts.add(submission.get(1, TimeUnit.MINUTES));
+         } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException, "unexpected failure " + e.getCause());
+            rejected++;
+         }
+      }
+      assertEquals(inserts.size(), 1);
+      assertEquals(rejected, submitters - 1);
+      assertEquals(getOnlyElement(inserts).get(1, TimeUnit.MINUTES).getName(), "test-0");
+      verify(api, instanceApi);
+   }
+
+   public void testWaitForTheInsertRateIsInterruptible() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      // only the node that got the first slot is inserted
+      expect(instanceApi.createInZone(eq("test-0"), eq(zoneName(0)), anyObject(InstanceTemplate.class)))
+              .andReturn(zoneOperation("test-0", Operation.Status.DONE)).once();
+      expect(zoneOperationApi.getInZone(zoneName(0), "test-0")).andReturn(zoneOperation("test-0",
+              Operation.Status.DONE)).anyTimes();
+      replay(api, instanceApi, zoneOperationApi);
+
+      // the next slot is a minute away
+      GoogleComputeEngineServiceAdapter adapter = adapter(api, zones(1), userExecutor, 1d / 60);
+      Template template = template();
+      adapter.submitNodeInsert("test", "test-0", template);
+
+      long start = System.nanoTime();
+      Thread.currentThread().interrupt();
+      try {
+         adapter.createNodeWithGroupEncodedIntoName("test", "test-1", template);
+         fail("waited for the insert slot while interrupted");
+      } catch (RuntimeException e) {
+         assertTrue(Throwables.getRootCause(e) instanceof InterruptedException, "unexpected failure " + e);
+         assertTrue(Thread.interrupted(), "the interrupt was not restored");
+      } finally {
+         Thread.interrupted();
+      }
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30), "waited for the insert slot");
+   }
+
+   @Test(dataProvider = "nodeCounts")
+   public void testDestroyNodesDeletesAllInstancesBeforeAnyBootDisk(int nodeCount) {
+      final AtomicInteger instancesDeleted = new AtomicInteger();
+      final AtomicInteger instancesDeletedAtFirstDisk = new AtomicInteger(-1);
+      final AtomicInteger disksDeleted = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      DiskApi diskApi = createMock(DiskApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      expect(api.getDiskApiForProject("myproject")).andReturn(diskApi).anyTimes();
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(instanceApi.getInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(new IAnswer<Instance>() {
+         @Override
+         public Instance answer() throws Throwable {
+            return instanceWithBootDisk((String) getCurrentArguments()[1]);
+         }
+      }).anyTimes();
+      expect(instanceApi.listInZone(eq(zoneName(0)), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Instance>>() {
+                 @Override
+                 public PagedIterable<Instance> answer() throws Throwable {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[1]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableSet.Builder<Instance> instances = ImmutableSet.builder();
+                    for (String name : Splitter.on('|').split(filter.substring("name eq (".length(),
+                            filter.length() - 1))) {
+                       instances.add(instanceWithBootDisk(name));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(instances.build()));
+                 }
+              }).anyTimes();
+      expect(instanceApi.deleteInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() throws Throwable {
+            Thread.sleep(INSERT_LATENCY_MILLIS);
+            instancesDeleted.incrementAndGet();
+            return zoneOperation("delete-" + getCurrentArguments()[1], Operation.Status.PENDING);
+         }
+      }).anyTimes();
+      expect(diskApi.deleteInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() throws Throwable {
+            instancesDeletedAtFirstDisk.compareAndSet(-1, instancesDeleted.get());
+            Thread.sleep(INSERT_LATENCY_MILLIS);
+            disksDeleted.incrementAndGet();
+            return zoneOperation("delete-" + getCurrentArguments()[1], Operation.Status.PENDING);
+         }
+      }).anyTimes();
+      expect(zoneOperationApi.getInZone(eq(zoneName(0)), anyObject(String.class))).andAnswer(
+              new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    return zoneOperation((String) getCurrentArguments()[1], Operation.Status.DONE);
+                 }
+              }).anyTimes();
+      expect(zoneOperationApi.listInZone(eq(zoneName(0)), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() throws Throwable {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[1]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableSet.Builder<Operation> operations = ImmutableSet.builder();
+                    for (String name : Splitter.on('|').split(filter.substring("name eq (".length(),
+                            filter.length() - 1))) {
+                       operations.add(zoneOperation(name, Operation.Status.DONE));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      replay(api, instanceApi, diskApi, zoneOperationApi);
+
+      ImmutableSet.Builder<String> ids = ImmutableSet.builder();
+      for (int i = 0; i < nodeCount; i++) {
+         ids.add(zoneName(0) + "/test-" + i);
+      }
+
+      Set<String> destroyed = adapter(api, zones(1), 1, 60000, true).destroyNodes(ids.build());
+
+      assertEquals(destroyed, ids.build());
+      assertEquals(instancesDeleted.get(), nodeCount);
+      assertEquals(disksDeleted.get(), nodeCount);
+      // every instance is deleted before the first boot disk, whatever the number of nodes
+      assertEquals(instancesDeletedAtFirstDisk.get(), nodeCount);
+      verify(api, instanceApi, diskApi, zoneOperationApi);
+   }
+
+   private GoogleComputeEngineServiceAdapter adapter(GoogleComputeEngineApi api,
+                                                     Map<URI, ? extends Location> zones,
+                                                     int listZonesConcurrency, long listZoneTimeout,
+                                                     boolean aggregatedList) {
+      return adapter(api, zones, userExecutor, listZonesConcurrency, listZoneTimeout, aggregatedList, 1000000d);
+   }
+
+   private GoogleComputeEngineServiceAdapter adapter(GoogleComputeEngineApi api,
+                                                     Map<URI, ? extends Location> zones,
+                                                     ListeningExecutorService userExecutor,
+                                                     double instanceInsertRate) {
+      return adapter(api, zones, userExecutor, 1, 60000, true, instanceInsertRate);
+   }
+
+   private GoogleComputeEngineServiceAdapter adapter(GoogleComputeEngineApi api,
+                                                     Map<URI, ? extends Location> zones,
+                                                     ListeningExecutorService userExecutor,
+                                                     int listZonesConcurrency, long listZoneTimeout,
+                                                     boolean aggregatedList, double instanceInsertRate) {
+      Supplier<Map<URI, ? extends Location>> zonesSupplier = Suppliers.<Map<URI, ? extends Location>>ofInstance(zones);
+      Supplier<String> userProject = Suppliers.ofInstance("myproject");
+      return new GoogleComputeEngineServiceAdapter(api, userProject,
+              new Function<TemplateOptions, ImmutableMap.Builder<String, String>>() {
+                 @Override
+                 public ImmutableMap.Builder<String, String> apply(TemplateOptions input) {
+                    return ImmutableMap.builder();
+                 }
+              },
+              new OperationWaiter(api, userProject, scheduler, userExecutor, 100l, 100l, 60000l, 50), 100l, 100l,
+              zonesSupplier,
+              new FirewallTagNamingConvention.Factory(null), userExecutor, scheduler, listZonesConcurrency,
+              listZoneTimeout, aggregatedList, instanceInsertRate);
+   }
+
+   private static Template template() {
+      Hardware hardware = new HardwareBuilder().ids("n1-standard-1")
+              .uri(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/zones/" + zoneName(0)
+                      + "/machineTypes/n1-standard-1"))
+              .build();
+      Image image = new ImageBuilder().ids("gcel-12-04-v20121106")
+              .uri(URI.create("https://www.googleapis.com/compute/v1/projects/centos-cloud/global/images/"
+                      + "gcel-12-04-v20121106"))
+              .operatingSystem(OperatingSystem.builder().description("gcel").build())
+              .status(Image.Status.AVAILABLE)
+              .defaultCredentials(LoginCredentials.builder().user("jclouds").privateKey("public:private").build())
+              .build();
+      GoogleComputeEngineTemplateOptions options = new GoogleComputeEngineTemplateOptions();
+      options.network(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/networks/default"));
+      return new TemplateImpl(image, hardware, getOnlyElement(zones(1).values()), options);
+   }
+
+   private static Instance instanceWithBootDisk(String name) {
+      return instanceInZone(0).toBuilder().name(name)
+              .disks(ImmutableSet.<Instance.AttachedDisk>of(Instance.PersistentAttachedDisk.builder()
+                      .index(0)
+                      .mode(Instance.PersistentAttachedDisk.Mode.READ_WRITE)
+                      .source(URI.create(zoneUri(0) + "/disks/" + name + "-boot-disk"))
+                      .boot(true)
+                      .build()))
+              .build();
+   }
+
+   private static Operation zoneOperation(String name, Operation.Status status) {
+      return Operation.builder().id(name)
+              .selfLink(URI.create(zoneUri(0) + "/operations/" + name))
+              .name(name)
+              .targetLink(URI.create(zoneUri(0) + "/instances/" + name))
+              .status(status)
+              .user("user@developer.gserviceaccount.com")
+              .insertTime(new Date())
+              .operationType(name.startsWith("delete-") ? "delete" : "insert")
+              .zone(zoneUri(0))
+              .build();
+   }
+
+   private static Map<URI, Location> zones(int zoneCount) {
+      ImmutableMap.Builder<URI, Location> zones = ImmutableMap.builder();
+      for (int i = 0; i < zoneCount; i++) {
+         zones.put(zoneUri(i),
+                 new LocationBuilder().scope(LocationScope.ZONE).id(zoneName(i)).description(zoneName(i)).build());
+      }
+      return zones.build();
+   }
+
+   private static URI zoneUri(int index) {
+      return URI.create("https://www.googleapis.com/compute/v1/projects/myproject/zones/" + zoneName(index));
+   }
+
+   private static String zoneName(int index) {
+      return "zone-" + index;
+   }
+
+   private static Instance instanceInZone(int index) {
+      return new ParseInstanceTest().expected().toBuilder().name("test-" + index).zone(zoneUri(index))
+              .build();
+   }
+
+   /**
+    * Lists the instance once as many listings as the barrier expects are in flight, recording the highest number of
+    * listings seen in flight at the same time.
+    */
+   private static IAnswer<PagedIterable<Instance>> listingAt(final CyclicBarrier barrier, final AtomicInteger inFlight,
+                                                             final AtomicInteger maxInFlight, final Instance instance) {
+      return new IAnswer<PagedIterable<Instance>>() {
+         @Override
+         public PagedIterable<Instance> answer() throws Throwable {
+            int current = inFlight.incrementAndGet();
+            int max = maxInFlight.get();
+            while (current > max && !maxInFlight.compareAndSet(max, current)) {
+               max = maxInFlight.get();
+            }
+            try {
+               barrier.await(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+               return PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(instance)));
+            } finally {
+               inFlight.decrementAndGet();
+            }
+         }
+      };
+   }
+}
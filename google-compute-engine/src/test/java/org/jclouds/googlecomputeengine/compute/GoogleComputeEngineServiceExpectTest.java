@@ -28,14 +28,10 @@ import static org.jclouds.googlecomputeengine.features.ImageApiExpectTest.LIST_C
 import static org.jclouds.googlecomputeengine.features.ImageApiExpectTest.LIST_CENTOS_IMAGES_RESPONSE;
 import static org.jclouds.googlecomputeengine.features.ImageApiExpectTest.LIST_PROJECT_IMAGES_REQUEST;
 import static org.jclouds.googlecomputeengine.features.ImageApiExpectTest.LIST_PROJECT_IMAGES_RESPONSE;
-import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.LIST_CENTRAL1B_INSTANCES_REQUEST;
-import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.LIST_CENTRAL1B_INSTANCES_RESPONSE;
-import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.LIST_INSTANCES_REQUEST;
-import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.LIST_INSTANCES_RESPONSE;
-import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.LIST_CENTRAL1B_MACHINE_TYPES_REQUEST;
-import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.LIST_CENTRAL1B_MACHINE_TYPES_RESPONSE;
-import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.LIST_MACHINE_TYPES_REQUEST;
-import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.LIST_MACHINE_TYPES_RESPONSE;
+import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.AGGREGATED_LIST_INSTANCES_REQUEST;
+import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.AGGREGATED_LIST_INSTANCES_RESPONSE;
+import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.AGGREGATED_LIST_MACHINE_TYPES_REQUEST;
+import static org.jclouds.googlecomputeengine.features.MachineTypeApiExpectTest.AGGREGATED_LIST_MACHINE_TYPES_RESPONSE;
 import static org.jclouds.googlecomputeengine.features.NetworkApiExpectTest.GET_NETWORK_REQUEST;
 import static org.jclouds.googlecomputeengine.features.ProjectApiExpectTest.GET_PROJECT_REQUEST;
 import static org.jclouds.googlecomputeengine.features.ProjectApiExpectTest.GET_PROJECT_RESPONSE;
@@ -123,18 +119,6 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
    private HttpResponse SUCESSFULL_OPERATION_RESPONSE = HttpResponse.builder().statusCode(200)
            .payload(payloadFromResource("/operation.json")).build();
 
-   private HttpRequest SET_TAGS_REQUEST = HttpRequest.builder()
-           .method("POST")
-           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/instances/test-1/setTags")
-           .addHeader("Accept", "application/json")
-           .addHeader("Authorization", "Bearer " + TOKEN)
-           .payload(payloadFromStringWithContentType("{\"items\":[\"aTag\"],\"fingerprint\":\"abcd\"}",
-                   MediaType.APPLICATION_JSON))
-           .build();
-
-   private HttpResponse SET_TAGS_RESPONSE = HttpResponse.builder().statusCode(200)
-           .payload(payloadFromResource("/operation.json")).build();
-
    private HttpResponse getInstanceResponseForInstanceAndNetworkAndStatus(String instanceName, String networkName,
                                                                           String status) throws
            IOException {
@@ -150,27 +134,11 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
                                                                                      String status) {
       return HttpResponse.builder().statusCode(200)
               .payload(payloadFromStringWithContentType(
-                      replaceInstanceNameNetworkAndStatusOnResource("/instance_list.json",
+                      replaceInstanceNameNetworkAndStatusOnResource("/instance_aggregated_list.json",
                               instanceName, networkName, status),
                       "application/json")).build();
    }
 
-   private HttpResponse getDiskResponseForInstance(String instanceName) {
-      return HttpResponse.builder().statusCode(200)
-                         .payload(payloadFromStringWithContentType(
-                         replaceDiskNameOnResource("/disk_get.json", instanceName + "-" + GCE_BOOT_DISK_SUFFIX),
-                         "application/json")).build();
-   }
-
-   private String replaceDiskNameOnResource(String resourceName, String diskName) {
-      try {
-         return Strings2.toStringAndClose(this.getClass().getResourceAsStream(resourceName))
-                        .replace("testimage1", diskName);
-      } catch (IOException e) {
-         throw Throwables.propagate(e);
-      }
-   }
-
    private String replaceInstanceNameNetworkAndStatusOnResource(String resourceName, String instanceName,
                                                                 String networkName, String status) {
       try {
@@ -181,30 +149,6 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
       }
    }
 
-   private HttpRequest createDiskRequestForInstance(String instanceName) {
-      return HttpRequest
-              .builder()
-              .method("POST")
-              .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/disks"
-                                + "?sourceImage=https%3A//www.googleapis.com/compute/v1/projects/centos-cloud/global/images/gcel-12-04-v20121106")
-              .addHeader("Accept", "application/json")
-              .addHeader("Authorization", "Bearer " + TOKEN)
-              .payload(payloadFromStringWithContentType("{\"name\":\"" + instanceName + "-" + GCE_BOOT_DISK_SUFFIX + "\","
-                                                        + "\"sizeGb\":10}",
-                                                        MediaType.APPLICATION_JSON)).build();
-   }
-
-   private HttpRequest getDiskRequestForInstance(String instanceName) {
-      return HttpRequest
-              .builder()
-              .method("GET")
-              .endpoint("https://www.googleapis" +
-                        ".com/compute/v1/projects/myproject/zones/us-central1-a/disks/"
-                        + instanceName + "-" + GCE_BOOT_DISK_SUFFIX)
-              .addHeader("Accept", "application/json")
-              .addHeader("Authorization", "Bearer " + TOKEN).build();
-   }
-
 
 
    private HttpRequest createInstanceRequestForInstance(String instanceName, String groupName,
@@ -222,15 +166,16 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
                                                         "\"networkInterfaces\":[{\"network\":\"https://www.googleapis" +
                                                         ".com/compute/v1/projects/myproject/global/networks/" + networkName + "\"," +
                                                         "\"accessConfigs\":[{\"type\":\"ONE_TO_ONE_NAT\"}]}]," +
-                                                        "\"disks\":[{\"mode\":\"READ_WRITE\",\"source\":\"https://www.googleapis.com/" +
-                                                        "compute/v1/projects/myproject/zones/us-central1-a/disks/" + instanceName +
-                                                        "-" + GCE_BOOT_DISK_SUFFIX + "\",\"deleteOnTerminate\":true,\"boot\":true,\"type\":\"PERSISTENT\"}]," +
+                                                        "\"disks\":[{\"mode\":\"READ_WRITE\",\"boot\":true,\"autoDelete\":true," +
+                                                        "\"initializeParams\":{\"diskName\":\"" + instanceName + "-" + GCE_BOOT_DISK_SUFFIX + "\"," +
+                                                        "\"sourceImage\":\"https://www.googleapis.com/compute/v1/projects/centos-cloud/global/images/" +
+                                                        "gcel-12-04-v20121106\",\"diskSizeGb\":10},\"type\":\"PERSISTENT\"}]," +
+                                                        "\"tags\":{\"items\":[\"aTag\",\"jclouds-test-port-22\"]}," +
                                                         "\"metadata\":{\"kind\":\"compute#metadata\",\"items\":[{\"key\":\"sshKeys\"," +
                                                         "\"value\":\"jclouds:" +
                                                         publicKey + " jclouds@localhost\"},{\"key\":\"jclouds-group\"," +
                                                         "\"value\":\"" + groupName + "\"},{\"key\":\"jclouds-image\",\"value\":\"https://www.googleapis" +
-                                                        ".com/compute/v1/projects/centos-cloud/global/images/gcel-12-04-v20121106\"}," +
-                                                        "{\"key\":\"jclouds-delete-boot-disk\",\"value\":\"true\"}]}}",
+                                                        ".com/compute/v1/projects/centos-cloud/global/images/gcel-12-04-v20121106\"}]}}",
                                                         MediaType.APPLICATION_JSON)).build();
    }
 
@@ -281,8 +226,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .put(LIST_PROJECT_IMAGES_REQUEST, LIST_PROJECT_IMAGES_RESPONSE)
               .put(LIST_DEBIAN_IMAGES_REQUEST, LIST_DEBIAN_IMAGES_RESPONSE)
               .put(LIST_CENTOS_IMAGES_REQUEST, LIST_CENTOS_IMAGES_RESPONSE)
-              .put(LIST_MACHINE_TYPES_REQUEST, LIST_MACHINE_TYPES_RESPONSE)
-              .put(LIST_CENTRAL1B_MACHINE_TYPES_REQUEST, LIST_CENTRAL1B_MACHINE_TYPES_RESPONSE)
+              .put(AGGREGATED_LIST_MACHINE_TYPES_REQUEST, AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
               .build();
 
       ComputeService client = requestsSendResponses(requestResponseMap);
@@ -359,7 +303,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(GET_PROJECT_REQUEST)
               .add(getInstanceRequestForInstance("test-delete-networks"))
               .add(LIST_ZONES_REQ)
-              .add(LIST_MACHINE_TYPES_REQUEST)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_REQUEST)
               .add(LIST_PROJECT_IMAGES_REQUEST)
               .add(LIST_DEBIAN_IMAGES_REQUEST)
               .add(LIST_CENTOS_IMAGES_REQUEST)
@@ -370,7 +314,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(deleteDiskRequest)
               .add(GET_ZONE_OPERATION_REQUEST)
               .add(getInstanceRequestForInstance("test-delete-networks"))
-              .add(LIST_INSTANCES_REQUEST)
+              .add(AGGREGATED_LIST_INSTANCES_REQUEST)
               .add(getNetworkRequest)
               .add(listFirewallsRequest)
               .add(deleteFirewallRequest)
@@ -386,7 +330,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(getInstanceResponseForInstanceAndNetworkAndStatus("test-delete-networks", "test-network", Instance
                       .Status.RUNNING.name()))
               .add(LIST_ZONES_SHORT_RESPONSE)
-              .add(LIST_MACHINE_TYPES_RESPONSE)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
               .add(LIST_PROJECT_IMAGES_RESPONSE)
               .add(LIST_DEBIAN_IMAGES_RESPONSE)
               .add(LIST_CENTOS_IMAGES_RESPONSE)
@@ -422,13 +366,11 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .put(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE)
               .put(GET_PROJECT_REQUEST, GET_PROJECT_RESPONSE)
               .put(LIST_ZONES_REQ, LIST_ZONES_RESPONSE)
-              .put(LIST_INSTANCES_REQUEST, LIST_INSTANCES_RESPONSE)
-              .put(LIST_CENTRAL1B_INSTANCES_REQUEST, LIST_CENTRAL1B_INSTANCES_RESPONSE)
+              .put(AGGREGATED_LIST_INSTANCES_REQUEST, AGGREGATED_LIST_INSTANCES_RESPONSE)
               .put(LIST_PROJECT_IMAGES_REQUEST, LIST_PROJECT_IMAGES_RESPONSE)
               .put(LIST_DEBIAN_IMAGES_REQUEST, LIST_DEBIAN_IMAGES_RESPONSE)
               .put(LIST_CENTOS_IMAGES_REQUEST, LIST_CENTOS_IMAGES_RESPONSE)
-              .put(LIST_MACHINE_TYPES_REQUEST, LIST_MACHINE_TYPES_RESPONSE)
-              .put(LIST_CENTRAL1B_MACHINE_TYPES_REQUEST, LIST_CENTRAL1B_MACHINE_TYPES_RESPONSE)
+              .put(AGGREGATED_LIST_MACHINE_TYPES_REQUEST, AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
               .build();
 
       ComputeService apiWhenServersExist = requestsSendResponses(requestResponseMap);
@@ -477,16 +419,6 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
                          MediaType.APPLICATION_JSON))
                  .build();
 
-      HttpRequest setTagsRequest = HttpRequest
-                 .builder()
-                 .method("POST")
-                 .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/instances/test-1/setTags")
-                 .addHeader("Accept", "application/json")
-                 .addHeader("Authorization", "Bearer " + TOKEN)
-                 .payload(payloadFromStringWithContentType("{\"items\":[\"jclouds-test-port-22\"],\"fingerprint\":\"abcd\"}",
-                         MediaType.APPLICATION_JSON))
-                 .build();
-
       List<HttpRequest> orderedRequests = ImmutableList.<HttpRequest>builder()
               .add(requestForScopes(COMPUTE_READONLY_SCOPE))
               .add(GET_PROJECT_REQUEST)
@@ -495,7 +427,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(LIST_DEBIAN_IMAGES_REQUEST)
               .add(LIST_CENTOS_IMAGES_REQUEST)
               .add(LIST_ZONES_REQ)
-              .add(LIST_MACHINE_TYPES_REQUEST)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_REQUEST)
               .add(GET_NETWORK_REQUEST)
               .add(GET_NETWORK_REQUEST)
               .add(requestForScopes(COMPUTE_SCOPE))
@@ -505,25 +437,17 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(getFirewallRequest)
               .add(insertFirewallRequest)
               .add(GET_GLOBAL_OPERATION_REQUEST)
-              .add(LIST_INSTANCES_REQUEST)
-              .add(LIST_MACHINE_TYPES_REQUEST)
+              .add(AGGREGATED_LIST_INSTANCES_REQUEST)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_REQUEST)
               .add(LIST_PROJECT_IMAGES_REQUEST)
               .add(LIST_DEBIAN_IMAGES_REQUEST)
               .add(LIST_CENTOS_IMAGES_REQUEST)
-              .add(createDiskRequestForInstance("test-1"))
-              .add(GET_ZONE_OPERATION_REQUEST)
-              .add(getDiskRequestForInstance("test-1"))
               .add(createInstanceRequestForInstance("test-1", "test", "jclouds-test", openSshKey))
               .add(GET_ZONE_OPERATION_REQUEST)
               .add(getInstanceRequestForInstance("test-1"))
-              .add(SET_TAGS_REQUEST)
-              .add(GET_ZONE_OPERATION_REQUEST)
-              .add(getInstanceRequestForInstance("test-1"))
-              .add(setTagsRequest)
               .add(LIST_PROJECT_IMAGES_REQUEST)
               .add(LIST_DEBIAN_IMAGES_REQUEST)
               .add(LIST_CENTOS_IMAGES_REQUEST)
-              .add(setTagsRequest)
               .build();
 
       List<HttpResponse> orderedResponses = ImmutableList.<HttpResponse>builder()
@@ -534,7 +458,7 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(LIST_DEBIAN_IMAGES_RESPONSE)
               .add(LIST_CENTOS_IMAGES_RESPONSE)
               .add(LIST_ZONES_SHORT_RESPONSE)
-              .add(LIST_MACHINE_TYPES_RESPONSE)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
               .add(HttpResponse.builder().statusCode(404).build())
               .add(HttpResponse.builder().statusCode(404).build())
               .add(TOKEN_RESPONSE)
@@ -544,25 +468,17 @@ public class GoogleComputeEngineServiceExpectTest extends BaseGoogleComputeEngin
               .add(HttpResponse.builder().statusCode(404).build())
               .add(SUCESSFULL_OPERATION_RESPONSE)
               .add(GET_GLOBAL_OPERATION_RESPONSE)
-              .add(LIST_INSTANCES_RESPONSE)
-              .add(LIST_MACHINE_TYPES_RESPONSE)
+              .add(AGGREGATED_LIST_INSTANCES_RESPONSE)
+              .add(AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
               .add(LIST_PROJECT_IMAGES_RESPONSE)
               .add(LIST_DEBIAN_IMAGES_RESPONSE)
               .add(LIST_CENTOS_IMAGES_RESPONSE)
               .add(SUCESSFULL_OPERATION_RESPONSE)
               .add(GET_ZONE_OPERATION_RESPONSE)
-              .add(getDiskResponseForInstance("test-1"))
-              .add(SUCESSFULL_OPERATION_RESPONSE)
-              .add(GET_ZONE_OPERATION_RESPONSE)
-              .add(getInstanceResponse)
-              .add(SET_TAGS_RESPONSE)
-              .add(GET_ZONE_OPERATION_RESPONSE)
               .add(getInstanceResponse)
-              .add(SUCESSFULL_OPERATION_RESPONSE)
               .add(LIST_PROJECT_IMAGES_RESPONSE)
               .add(LIST_DEBIAN_IMAGES_RESPONSE)
               .add(LIST_CENTOS_IMAGES_RESPONSE)
-              .add(SUCESSFULL_OPERATION_RESPONSE)
               .build();
 
 
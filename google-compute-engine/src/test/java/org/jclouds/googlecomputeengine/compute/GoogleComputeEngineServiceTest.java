@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+import org.easymock.IAnswer;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.callables.RunScriptOnNode;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.compute.extensions.ImageExtension;
+import org.jclouds.compute.extensions.SecurityGroupExtension;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.internal.PersistNodeCredentials;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.strategy.CreateNodesInGroupThenAddToSet;
+import org.jclouds.compute.strategy.DestroyNodeStrategy;
+import org.jclouds.compute.strategy.GetImageStrategy;
+import org.jclouds.compute.strategy.GetNodeMetadataStrategy;
+import org.jclouds.compute.strategy.InitializeRunScriptOnNodeOrPlaceInBadMap;
+import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.jclouds.compute.strategy.RebootNodeStrategy;
+import org.jclouds.compute.strategy.ResumeNodeStrategy;
+import org.jclouds.compute.strategy.SuspendNodeStrategy;
+import org.jclouds.domain.Credentials;
+import org.jclouds.domain.Location;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Firewall;
+import org.jclouds.googlecomputeengine.domain.Network;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.features.GlobalOperationApi;
+import org.jclouds.googlecomputeengine.features.NetworkApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.scriptbuilder.functions.InitAdminAccess;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineServiceTest {
+
+   private static final String GLOBAL_URL = "https://www.googleapis.com/compute/v1/projects/myproject/global";
+
+   @Test(timeOut = 30000)
+   public void testOrphanedGroupsAreCleanedUpTogether() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+      GroupNamingConvention.Factory namingConventionFactory = createMock(GroupNamingConvention.Factory.class);
+      GroupNamingConvention namingConvention = createMock(GroupNamingConvention.class);
+      final Set<String> deleted = Sets.newSetFromMap(Maps.<String, Boolean>newConcurrentMap());
+      // each delete only returns once all the deletes of its kind are in flight, which a group at a time never gets to
+      final CountDownLatch firewallDeletes = new CountDownLatch(4);
+      final CountDownLatch networkDeletes = new CountDownLatch(2);
+
+      expect(namingConventionFactory.create()).andReturn(namingConvention).anyTimes();
+      expect(namingConvention.sharedNameForGroup("a")).andReturn("jclouds-a");
+      expect(namingConvention.sharedNameForGroup("b")).andReturn("jclouds-b");
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi);
+      expect(networkApi.get("jclouds-a")).andReturn(network("jclouds-a"));
+      expect(networkApi.get("jclouds-b")).andReturn(network("jclouds-b"));
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi);
+      expect(firewallApi.list()).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+              firewall("jclouds-a-port-22", "jclouds-a"), firewall("jclouds-a-port-80", "jclouds-a"),
+              firewall("jclouds-b-port-22", "jclouds-b"), firewall("jclouds-b-port-80", "jclouds-b"),
+              firewall("jclouds-c-port-22", "jclouds-c")))));
+      expect(firewallApi.delete(anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() throws Throwable {
+            firewallDeletes.countDown();
+            assertTrue(firewallDeletes.await(10, TimeUnit.SECONDS), "firewalls were not deleted together");
+            return operation("delete-" + getCurrentArguments()[0]);
+         }
+      }).times(4);
+      expect(networkApi.delete(anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() throws Throwable {
+            assertEquals(deleted, ImmutableSet.of("delete-jclouds-a-port-22", "delete-jclouds-a-port-80",
+                    "delete-jclouds-b-port-22", "delete-jclouds-b-port-80"),
+                    "a network was deleted before the firewalls");
+            networkDeletes.countDown();
+            assertTrue(networkDeletes.await(10, TimeUnit.SECONDS), "networks were not deleted together");
+            return operation("delete-" + getCurrentArguments()[0]);
+         }
+      }).times(2);
+
+      // the operations are done as soon as they are polled, one at a time or listed together
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get(anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() {
+            return done((String) getCurrentArguments()[0], deleted);
+         }
+      }).anyTimes();
+      expect(globalOperationApi.list(anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[0]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableList.Builder<Operation> operations = ImmutableList.builder();
+                    for (String name : Splitter.on('|').split(
+                            filter.substring(filter.indexOf('(') + 1, filter.lastIndexOf(')')))) {
+                       operations.add(done(name, deleted));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      replay(api, networkApi, firewallApi, globalOperationApi, namingConventionFactory, namingConvention);
+
+      ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(
+              Executors.newSingleThreadScheduledExecutor());
+      ListeningExecutorService operationExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      try {
+         OperationWaiter operationWaiter = new OperationWaiter(api, Suppliers.ofInstance("myproject"), scheduler,
+                 operationExecutor, 10l, 20l, 10000l, 50);
+         service(api, namingConventionFactory, operationWaiter, ImmutableSet.of("a", "b"))
+                 .cleanUpIncidentalResourcesOfDeadNodes(ImmutableSet.<NodeMetadata>of());
+      } finally {
+         scheduler.shutdownNow();
+         operationExecutor.shutdownNow();
+      }
+
+      assertEquals(deleted, ImmutableSet.of("delete-jclouds-a-port-22", "delete-jclouds-a-port-80",
+              "delete-jclouds-b-port-22", "delete-jclouds-b-port-80", "delete-jclouds-a", "delete-jclouds-b"));
+      verify(api, networkApi, firewallApi, namingConventionFactory, namingConvention);
+   }
+
+   private static Network network(String name) {
+      return Network.builder().id(name).name(name).IPv4Range("10.0.0.0/8")
+              .selfLink(URI.create(GLOBAL_URL + "/networks/" + name)).creationTimestamp(new Date()).build();
+   }
+
+   private static Firewall firewall(String name, String network) {
+      return Firewall.builder().id(name).name(name).selfLink(URI.create(GLOBAL_URL + "/firewalls/" + name))
+              .network(URI.create(GLOBAL_URL + "/networks/" + network)).creationTimestamp(new Date())
+              .addSourceRange("0.0.0.0/0").build();
+   }
+
+   private static Operation operation(String name) {
+      return Operation.builder().id(name).name(name)
+              .selfLink(URI.create(GLOBAL_URL + "/operations/" + name))
+              .targetLink(URI.create(GLOBAL_URL + "/networks/jclouds"))
+              .status(Operation.Status.PENDING)
+              .user("user@developer.gserviceaccount.com")
+              .insertTime(new Date())
+              .operationType("delete")
+              .build();
+   }
+
+   private static Operation done(String name, Set<String> deleted) {
+      deleted.add(name);
+      return Operation.builder().fromOperation(operation(name)).status(Operation.Status.DONE).build();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static GoogleComputeEngineService service(GoogleComputeEngineApi api,
+           GroupNamingConvention.Factory namingConvention, OperationWaiter operationWaiter,
+           final Set<String> orphanedGroups) {
+      Supplier<Set<? extends Image>> images = Suppliers.<Set<? extends Image>>ofInstance(ImmutableSet.<Image>of());
+      Supplier<Set<? extends Hardware>> hardwareProfiles =
+              Suppliers.<Set<? extends Hardware>>ofInstance(ImmutableSet.<Hardware>of());
+      Supplier<Set<? extends Location>> locations =
+              Suppliers.<Set<? extends Location>>ofInstance(ImmutableSet.<Location>of());
+      Predicate<AtomicReference<NodeMetadata>> nodeState = Predicates.alwaysTrue();
+      return new GoogleComputeEngineService(createMock(ComputeServiceContext.class),
+              Maps.<String, Credentials>newHashMap(), images, hardwareProfiles, locations,
+              createMock(ListNodesStrategy.class), createMock(GetImageStrategy.class),
+              createMock(GetNodeMetadataStrategy.class), createMock(CreateNodesInGroupThenAddToSet.class),
+              createMock(RebootNodeStrategy.class), createMock(DestroyNodeStrategy.class),
+              createMock(ResumeNodeStrategy.class), createMock(SuspendNodeStrategy.class),
+              (Provider<TemplateBuilder>) createMock(Provider.class),
+              (Provider<TemplateOptions>) createMock(Provider.class), nodeState, nodeState, nodeState,
+              createMock(InitializeRunScriptOnNodeOrPlaceInBadMap.Factory.class), createMock(InitAdminAccess.class),
+              createMock(RunScriptOnNode.Factory.class), createMock(PersistNodeCredentials.class),
+              new ComputeServiceConstants.Timeouts(), MoreExecutors.sameThreadExecutor(),
+              Optional.<ImageExtension>absent(), Optional.<SecurityGroupExtension>absent(),
+              new Function<Set<? extends NodeMetadata>, Set<String>>() {
+                 @Override
+                 public Set<String> apply(Set<? extends NodeMetadata> input) {
+                    return orphanedGroups;
+                 }
+              }, namingConvention, api, Suppliers.ofInstance("myproject"), operationWaiter,
+              createMock(GoogleComputeEngineServiceAdapter.class));
+   }
+}
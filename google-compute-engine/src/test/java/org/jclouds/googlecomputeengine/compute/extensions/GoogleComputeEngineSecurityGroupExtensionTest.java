@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.extensions;
+
+import static com.google.common.base.Optional.fromNullable;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.domain.SecurityGroup;
+import org.jclouds.compute.domain.SecurityGroupBuilder;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.FirewallToIpPermission;
+import org.jclouds.googlecomputeengine.compute.functions.FirewallToIpPermissionTest;
+import org.jclouds.googlecomputeengine.compute.functions.NetworkToSecurityGroup;
+import org.jclouds.googlecomputeengine.compute.functions.NetworksToSecurityGroups;
+import org.jclouds.googlecomputeengine.domain.Firewall;
+import org.jclouds.googlecomputeengine.domain.Network;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.internal.NetworkAndAddressRange;
+import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.features.GlobalOperationApi;
+import org.jclouds.googlecomputeengine.features.NetworkApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
+import org.jclouds.googlecomputeengine.options.FirewallOptions;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.net.domain.IpPermission;
+import org.jclouds.net.domain.IpProtocol;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Splitter;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineSecurityGroupExtensionTest {
+
+   private static final URI NETWORK_URI =
+           URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/networks/jclouds-test");
+
+   public void testAddIpPermissionsMergesTheMissingPermissionsBySources() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      GroupNamingConvention.Factory namingConventionFactory = createMock(GroupNamingConvention.Factory.class);
+      GroupNamingConvention namingConvention = createMock(GroupNamingConvention.class);
+      OperationWaiter operationWaiter = createMock(OperationWaiter.class);
+      Operation operation = createMock(Operation.class);
+
+      Network network = Network.builder().id("jclouds-test").name("jclouds-test").IPv4Range("10.0.0.0/8")
+              .selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/jclouds-test");
+
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi);
+      expect(networkApi.get("jclouds-test")).andReturn(network).once();
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi).times(2);
+      // once to find the missing permissions, once to refresh the group
+      expect(firewallApi.list(options)).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+              FirewallToIpPermissionTest.fwForTest())))).times(2);
+
+      expect(namingConventionFactory.createWithoutPrefix()).andReturn(namingConvention).times(2);
+      expect(namingConvention.uniqueNameForGroup("jclouds-test"))
+              .andReturn("jclouds-test-abc").andReturn("jclouds-test-def");
+      Capture<FirewallOptions> fromAnywhere = new Capture<FirewallOptions>();
+      Capture<FirewallOptions> fromWeb = new Capture<FirewallOptions>();
+      expect(firewallApi.createInNetwork(eq("jclouds-test-abc"), eq(NETWORK_URI), capture(fromAnywhere)))
+              .andReturn(operation).once();
+      expect(firewallApi.createInNetwork(eq("jclouds-test-def"), eq(NETWORK_URI), capture(fromWeb)))
+              .andReturn(operation).once();
+      expect(operationWaiter.awaitAll(EasyMock.<Iterable<Callable<Operation>>>anyObject(), eq(Scope.GLOBAL)))
+              .andAnswer(new IAnswer<List<Operation>>() {
+                 @Override
+                 public List<Operation> answer() throws Exception {
+                    List<Operation> operations = Lists.newArrayList();
+                    for (Object request : (Iterable<?>) getCurrentArguments()[0]) {
+                       operations.add(((Callable<Operation>) request).call());
+                    }
+                    return operations;
+                 }
+              }).once();
+      expect(operation.getHttpError()).andReturn(fromNullable((HttpResponse) null)).times(2);
+
+      replay(api, networkApi, firewallApi, namingConventionFactory, namingConvention, operationWaiter, operation);
+
+      GoogleComputeEngineSecurityGroupExtension extension = extension(api, namingConventionFactory, operationWaiter);
+      SecurityGroup group = group();
+
+      SecurityGroup updated = extension.addIpPermissions(ImmutableList.of(
+              // already provided by the existing firewall
+              permission(IpProtocol.TCP, 33, 33).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.TCP, 22, 22).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.TCP, 80, 90).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.UDP, 0, 0).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.UDP, 53, 53).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.TCP, 8080, 8080).groupId("web").build()), group);
+
+      verify(api, networkApi, firewallApi, namingConventionFactory, namingConvention, operationWaiter, operation);
+      assertEquals(updated.getId(), "jclouds-test");
+
+      assertEquals(fromAnywhere.getValue().getSourceRanges(), ImmutableSet.of("0.0.0.0/0"));
+      assertTrue(fromAnywhere.getValue().getSourceTags().isEmpty());
+      assertEquals(fromAnywhere.getValue().getAllowed(), ImmutableSet.of(
+              Firewall.Rule.builder().IpProtocol(IpProtocol.TCP).addPort(22).addPortRange(80, 90).build(),
+              Firewall.Rule.builder().IpProtocol(IpProtocol.UDP).build()));
+
+      assertEquals(fromWeb.getValue().getSourceTags(), ImmutableSet.of("web"));
+      assertTrue(fromWeb.getValue().getSourceRanges().isEmpty());
+      assertEquals(fromWeb.getValue().getAllowed(), ImmutableSet.of(
+              Firewall.Rule.builder().IpProtocol(IpProtocol.TCP).addPort(8080).build()));
+   }
+
+   public void testAddIpPermissionsAlreadyProvidedCreatesNothing() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      GroupNamingConvention.Factory namingConventionFactory = createMock(GroupNamingConvention.Factory.class);
+      OperationWaiter operationWaiter = createMock(OperationWaiter.class);
+
+      Network network = Network.builder().id("jclouds-test").name("jclouds-test").IPv4Range("10.0.0.0/8")
+              .selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/jclouds-test");
+
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi);
+      expect(networkApi.get("jclouds-test")).andReturn(network);
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi);
+      expect(firewallApi.list(options)).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+              FirewallToIpPermissionTest.fwForTest()))));
+
+      replay(api, networkApi, firewallApi, namingConventionFactory, operationWaiter);
+
+      GoogleComputeEngineSecurityGroupExtension extension = extension(api, namingConventionFactory, operationWaiter);
+      SecurityGroup group = group();
+
+      assertSame(extension.addIpPermissions(ImmutableList.of(
+              permission(IpProtocol.TCP, 1, 10).cidrBlock("0.0.0.0/0").build(),
+              permission(IpProtocol.ICMP, 0, 0).cidrBlock("0.0.0.0/0").build()), group), group);
+
+      verify(api, networkApi, firewallApi, namingConventionFactory, operationWaiter);
+   }
+
+   public void testListSecurityGroupsUsesTheBoundBulkConverter() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+
+      Network network = Network.builder().id("jclouds-test").name("jclouds-test").IPv4Range("10.0.0.0/8")
+              .selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi);
+      expect(networkApi.list()).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(network))));
+      replay(api, networkApi);
+
+      // firewalls are not listed when the bulk converter is not the default one
+      GoogleComputeEngineSecurityGroupExtension extension = new GoogleComputeEngineSecurityGroupExtension(api,
+              Suppliers.ofInstance("myproject"), createMock(GroupNamingConvention.Factory.class),
+              createMock(LoadingCache.class), createMock(Function.class),
+              new Function<Iterable<Network>, Set<SecurityGroup>>() {
+                 @Override
+                 public Set<SecurityGroup> apply(Iterable<Network> input) {
+                    assertEquals(getOnlyElement(input).getName(), "jclouds-test");
+                    return ImmutableSet.of(group());
+                 }
+              }, createMock(OperationWaiter.class));
+
+      assertEquals(extension.listSecurityGroups(), ImmutableSet.of(group()));
+      verify(api, networkApi);
+   }
+
+   @Test(timeOut = 30000)
+   public void testAddIpPermissionsCreatesTheFirewallsConcurrently() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+      GroupNamingConvention.Factory namingConventionFactory = createMock(GroupNamingConvention.Factory.class);
+      GroupNamingConvention namingConvention = createMock(GroupNamingConvention.class);
+      // each create only returns once all of them are in flight, which creates one at a time never get to
+      final CountDownLatch inFlight = new CountDownLatch(3);
+
+      Network network = Network.builder().id("jclouds-test").name("jclouds-test").IPv4Range("10.0.0.0/8")
+              .selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/jclouds-test");
+
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi);
+      expect(networkApi.get("jclouds-test")).andReturn(network);
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi).times(2);
+      expect(firewallApi.list(options)).andReturn(PagedIterables.of(IterableWithMarkers.<Firewall>from(
+              ImmutableSet.<Firewall>of()))).times(2);
+      expect(namingConventionFactory.createWithoutPrefix()).andReturn(namingConvention).times(3);
+      expect(namingConvention.uniqueNameForGroup("jclouds-test"))
+              .andReturn("jclouds-test-abc").andReturn("jclouds-test-def").andReturn("jclouds-test-ghi");
+      expect(firewallApi.createInNetwork(EasyMock.<String>anyObject(), eq(NETWORK_URI),
+              EasyMock.<FirewallOptions>anyObject())).andAnswer(new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    inFlight.countDown();
+                    assertTrue(inFlight.await(10, TimeUnit.SECONDS), "firewalls were not created concurrently");
+                    return globalOperation("create-" + getCurrentArguments()[0]);
+                 }
+              }).times(3);
+      expectDoneWhenPolled(api, globalOperationApi, Sets.<String>newSetFromMap(
+              Maps.<String, Boolean>newConcurrentMap()));
+      replay(api, networkApi, firewallApi, globalOperationApi, namingConventionFactory, namingConvention);
+
+      ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(
+              Executors.newSingleThreadScheduledExecutor());
+      ListeningExecutorService operationExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      try {
+         GoogleComputeEngineSecurityGroupExtension extension = extension(api, namingConventionFactory,
+                 new OperationWaiter(api, Suppliers.ofInstance("myproject"), scheduler, operationExecutor, 10l, 20l,
+                         10000l, 50));
+         extension.addIpPermissions(ImmutableList.of(
+                 permission(IpProtocol.TCP, 22, 22).cidrBlock("0.0.0.0/0").build(),
+                 permission(IpProtocol.TCP, 80, 80).groupId("web").build(),
+                 permission(IpProtocol.TCP, 5432, 5432).cidrBlock("10.0.0.0/8").build()), group());
+      } finally {
+         scheduler.shutdownNow();
+         operationExecutor.shutdownNow();
+      }
+      verify(api, networkApi, firewallApi, namingConventionFactory, namingConvention);
+   }
+
+   @Test(timeOut = 10000)
+   public void testRemoveSecurityGroupDeletesTheFirewallsBeforeTheNetworkOnABoundedExecutor() throws Exception {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      NetworkApi networkApi = createMock(NetworkApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+      final Set<String> deletedFirewalls = Sets.newSetFromMap(Maps.<String, Boolean>newConcurrentMap());
+
+      Network network = Network.builder().id("jclouds-test").name("jclouds-test").IPv4Range("10.0.0.0/8")
+              .selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+      ListOptions options = new ListOptions.Builder().filter("network eq .*/jclouds-test");
+
+      expect(api.getNetworkApiForProject("myproject")).andReturn(networkApi).times(2);
+      expect(networkApi.get("jclouds-test")).andReturn(network);
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi);
+      expect(firewallApi.list(options)).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+              firewall("jclouds-test-port-22"), firewall("jclouds-test-port-80")))));
+      expect(firewallApi.delete("jclouds-test-port-22")).andReturn(globalOperation("delete-22"));
+      expect(firewallApi.delete("jclouds-test-port-80")).andReturn(globalOperation("delete-80"));
+      expect(networkApi.delete("jclouds-test")).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() {
+            assertEquals(deletedFirewalls, ImmutableSet.of("delete-22", "delete-80"),
+                    "the network was deleted before its firewalls");
+            return globalOperation("delete-network");
+         }
+      });
+
+      expectDoneWhenPolled(api, globalOperationApi, deletedFirewalls);
+      replay(api, networkApi, firewallApi, globalOperationApi);
+
+      ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(
+              Executors.newSingleThreadScheduledExecutor());
+      // a single user thread, which the removal itself takes up
+      ListeningExecutorService userExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      ListeningExecutorService operationExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+      try {
+         final GoogleComputeEngineSecurityGroupExtension extension = extension(api,
+                 createMock(GroupNamingConvention.Factory.class),
+                 new OperationWaiter(api, Suppliers.ofInstance("myproject"), scheduler, operationExecutor, 10l, 20l,
+                         5000l, 50));
+         assertTrue(userExecutor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+               return extension.removeSecurityGroup("jclouds-test");
+            }
+         }).get());
+      } finally {
+         scheduler.shutdownNow();
+         userExecutor.shutdownNow();
+         operationExecutor.shutdownNow();
+      }
+      verify(api, networkApi, firewallApi);
+   }
+
+   private static Firewall firewall(String name) {
+      return Firewall.builder().id(name).name(name)
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/firewalls/" + name))
+              .network(NETWORK_URI).creationTimestamp(new Date()).addSourceRange("0.0.0.0/0").build();
+   }
+
+   private static Operation globalOperation(String name) {
+      return Operation.builder().id(name).name(name)
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/operations/"
+                      + name))
+              .targetLink(NETWORK_URI)
+              .status(Operation.Status.PENDING)
+              .user("user@developer.gserviceaccount.com")
+              .insertTime(new Date())
+              .operationType("delete")
+              .build();
+   }
+
+   /**
+    * Makes every global operation done as soon as it is polled, one at a time or listed together, and records it.
+    */
+   private static void expectDoneWhenPolled(GoogleComputeEngineApi api, GlobalOperationApi globalOperationApi,
+           final Set<String> done) {
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get(EasyMock.<String>anyObject())).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() {
+            return done((String) getCurrentArguments()[0], done);
+         }
+      }).anyTimes();
+      expect(globalOperationApi.list(EasyMock.<ListOptions>anyObject())).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() {
+                    String filter = getOnlyElement(((ListOptions) getCurrentArguments()[0]).buildQueryParameters()
+                            .get("filter"));
+                    ImmutableList.Builder<Operation> operations = ImmutableList.builder();
+                    for (String name : Splitter.on('|').split(
+                            filter.substring(filter.indexOf('(') + 1, filter.lastIndexOf(')')))) {
+                       operations.add(done(name, done));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+   }
+
+   private static Operation done(String name, Set<String> done) {
+      done.add(name);
+      return Operation.builder().fromOperation(globalOperation(name)).status(Operation.Status.DONE).build();
+   }
+
+   private static GoogleComputeEngineSecurityGroupExtension extension(GoogleComputeEngineApi api,
+           GroupNamingConvention.Factory namingConventionFactory, OperationWaiter operationWaiter) {
+      NetworkToSecurityGroup networkToSecurityGroup = new NetworkToSecurityGroup(new FirewallToIpPermission(), api,
+              Suppliers.ofInstance("myproject"));
+      return new GoogleComputeEngineSecurityGroupExtension(api, Suppliers.ofInstance("myproject"),
+              namingConventionFactory, createMock(LoadingCache.class), networkToSecurityGroup,
+              new NetworksToSecurityGroups(networkToSecurityGroup), operationWaiter);
+   }
+
+   private static SecurityGroup group() {
+      return new SecurityGroupBuilder().id("jclouds-test").providerId("abcd").name("jclouds-test").uri(NETWORK_URI)
+              .build();
+   }
+
+   private static IpPermission.Builder permission(IpProtocol protocol, int fromPort, int toPort) {
+      return IpPermission.builder().ipProtocol(protocol).fromPort(fromPort).toPort(toPort);
+   }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import static org.jclouds.googlecomputeengine.compute.functions.FirewallTagNamingConvention.portRanges;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+
+@Test(groups = "unit")
+public class FirewallTagNamingConventionTest {
+
+   public void testPortRangesMergeConsecutivePorts() {
+      assertEquals(portRanges(8082, 22, 8080, 80, 8081, 22),
+              ImmutableSet.of(Range.singleton(22), Range.singleton(80), Range.closed(8080, 8082)));
+      assertTrue(portRanges().isEmpty());
+   }
+
+   public void testConsolidatedTagsNameTheExactPortRanges() {
+      FirewallTagNamingConvention naming = new FirewallTagNamingConvention("jclouds-test", true);
+
+      assertEquals(naming.name(portRanges(8080, 22, 80, 81)), "jclouds-test-port-22-80to81-8080");
+      assertEquals(naming.name(portRanges(1, 2)), "jclouds-test-port-1to2");
+      assertEquals(naming.name(portRanges(12)), "jclouds-test-port-12");
+      assertTrue(naming.isFirewallTag().apply(naming.name(portRanges(22, 80))));
+      assertFalse(new FirewallTagNamingConvention("jclouds-other").isFirewallTag()
+              .apply(naming.name(portRanges(22, 80))));
+   }
+
+   public void testTagsPerPort() {
+      FirewallTagNamingConvention naming = new FirewallTagNamingConvention("jclouds-test");
+
+      assertFalse(naming.isConsolidated());
+      assertEquals(naming.tags(22, 80), ImmutableSet.of("jclouds-test-port-22", "jclouds-test-port-80"));
+      assertTrue(naming.tags().isEmpty());
+   }
+
+   public void testConsolidatedTagsFollowTheNodesOwnPorts() {
+      FirewallTagNamingConvention naming = new FirewallTagNamingConvention("jclouds-test", true);
+
+      assertTrue(naming.isConsolidated());
+      assertEquals(naming.tags(22), ImmutableSet.of("jclouds-test-port-22"));
+      assertEquals(naming.tags(81, 22, 80), ImmutableSet.of("jclouds-test-port-22-80to81"));
+      assertEquals(naming.tags(22, 80), ImmutableSet.of("jclouds-test-port-22-80"));
+      assertTrue(naming.tags().isEmpty());
+   }
+
+   public void testPortSetsAreSplitToFitTheNameLength() {
+      FirewallTagNamingConvention naming = new FirewallTagNamingConvention("jclouds-test", true);
+      int[] ports = new int[20];
+      for (int i = 0; i < ports.length; i++) {
+         ports[i] = 10000 + 2 * i;
+      }
+
+      Map<String, Set<Range<Integer>>> portSets = naming.portSets(ports);
+
+      assertTrue(portSets.size() > 1);
+      Set<Range<Integer>> ranges = Sets.newLinkedHashSet();
+      for (Map.Entry<String, Set<Range<Integer>>> portSet : portSets.entrySet()) {
+         assertTrue(portSet.getKey().length() <= 63, portSet.getKey());
+         assertEquals(portSet.getKey(), naming.name(portSet.getValue()));
+         ranges.addAll(portSet.getValue());
+      }
+      assertEquals(ranges, portRanges(ports));
+      assertEquals(naming.tags(ports), portSets.keySet());
+   }
+}
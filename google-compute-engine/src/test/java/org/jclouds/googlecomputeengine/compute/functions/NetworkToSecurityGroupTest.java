@@ -16,9 +16,11 @@
  */
 package org.jclouds.googlecomputeengine.compute.functions;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.jclouds.googlecomputeengine.compute.functions.FirewallToIpPermissionTest.hasProtocol;
 import static org.jclouds.googlecomputeengine.compute.functions.FirewallToIpPermissionTest.hasStartAndEndPort;
 import static org.testng.Assert.assertEquals;
@@ -26,6 +28,10 @@ import static org.testng.Assert.assertTrue;
 
 import java.net.URI;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jclouds.collect.IterableWithMarkers;
 import org.jclouds.collect.PagedIterables;
@@ -38,10 +44,14 @@ import org.jclouds.googlecomputeengine.options.ListOptions.Builder;
 import org.jclouds.net.domain.IpProtocol;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class NetworkToSecurityGroupTest {
 
@@ -91,4 +101,90 @@ public class NetworkToSecurityGroupTest {
       assertTrue(Iterables.any(group.getIpPermissions(), hasProtocol(IpProtocol.ICMP)),
               "No permission found for ICMP");
    }
+
+   @Test
+   public void testToSecurityGroupsListsTheFirewallsOnceWhateverTheNumberOfNetworks() {
+      for (int networkCount : new int[]{1, 10, 100}) {
+         GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+         FirewallApi fwApi = createMock(FirewallApi.class);
+
+         expect(api.getFirewallApiForProject("myproject")).andReturn(fwApi).once();
+         expect(fwApi.list()).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+                 FirewallToIpPermissionTest.fwForTest())))).once();
+
+         replay(api, fwApi);
+
+         List<Network> networks = Lists.newArrayList(network("jclouds-test"));
+         for (int i = 1; i < networkCount; i++) {
+            networks.add(network("jclouds-test-" + i));
+         }
+
+         NetworkToSecurityGroup netToSg = new NetworkToSecurityGroup(new FirewallToIpPermission(), api,
+                 Suppliers.ofInstance("myproject"));
+
+         Map<String, SecurityGroup> groups = Maps.uniqueIndex(netToSg.toSecurityGroups(networks),
+                 new Function<SecurityGroup, String>() {
+                    @Override
+                    public String apply(SecurityGroup group) {
+                       return group.getId();
+                    }
+                 });
+
+         verify(api, fwApi);
+         assertEquals(groups.size(), networkCount);
+         assertEquals(groups.get("jclouds-test").getIpPermissions().size(), 3);
+         for (int i = 1; i < networkCount; i++) {
+            assertTrue(groups.get("jclouds-test-" + i).getIpPermissions().isEmpty());
+         }
+      }
+   }
+
+   @Test
+   public void testToSecurityGroupsWalksTheNetworksOnce() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      FirewallApi fwApi = createMock(FirewallApi.class);
+      expect(api.getFirewallApiForProject("myproject")).andReturn(fwApi).once();
+      expect(fwApi.list()).andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableSet.of(
+              FirewallToIpPermissionTest.fwForTest())))).once();
+      replay(api, fwApi);
+
+      // like a paged listing, which fetches the pages again each time it is walked
+      final AtomicInteger walks = new AtomicInteger();
+      Iterable<Network> networks = new Iterable<Network>() {
+         @Override
+         public Iterator<Network> iterator() {
+            walks.incrementAndGet();
+            return ImmutableSet.of(network("jclouds-test")).iterator();
+         }
+      };
+
+      NetworkToSecurityGroup netToSg = new NetworkToSecurityGroup(new FirewallToIpPermission(), api,
+              Suppliers.ofInstance("myproject"));
+
+      assertEquals(getOnlyElement(netToSg.toSecurityGroups(networks)).getId(), "jclouds-test");
+      assertEquals(walks.get(), 1);
+      verify(api, fwApi);
+   }
+
+   @Test
+   public void testToSecurityGroupsWithoutNetworksListsNothing() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      replay(api);
+
+      NetworkToSecurityGroup netToSg = new NetworkToSecurityGroup(new FirewallToIpPermission(), api,
+              Suppliers.ofInstance("myproject"));
+
+      assertTrue(netToSg.toSecurityGroups(ImmutableSet.<Network>of()).isEmpty());
+      verify(api);
+   }
+
+   private static Network network(String name) {
+      return Network.builder()
+              .id(name)
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/networks/" + name))
+              .creationTimestamp(new Date())
+              .IPv4Range("10.0.0.0/8")
+              .name(name)
+              .build();
+   }
 }
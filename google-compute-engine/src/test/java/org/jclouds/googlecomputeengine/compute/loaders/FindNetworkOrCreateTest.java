@@ -24,6 +24,7 @@ import static org.easymock.EasyMock.verify;
 import static org.testng.Assert.assertEquals;
 
 import java.net.URI;
+import java.util.concurrent.Executors;
 
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Network;
@@ -32,13 +33,15 @@ import org.jclouds.googlecomputeengine.domain.internal.NetworkAndAddressRange;
 import org.jclouds.googlecomputeengine.features.GlobalOperationApi;
 import org.jclouds.googlecomputeengine.features.NetworkApi;
 import org.jclouds.googlecomputeengine.functions.CreateNetworkIfNeeded;
-import org.jclouds.googlecomputeengine.predicates.GlobalOperationDonePredicate;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
 import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * @author Andrew Bayer
@@ -70,9 +73,7 @@ public class FindNetworkOrCreateTest {
 
       NetworkAndAddressRange input = new NetworkAndAddressRange("this-network", "0.0.0.0/0", null);
 
-      GlobalOperationDonePredicate pred = new GlobalOperationDonePredicate(api, userProject);
-
-      CreateNetworkIfNeeded creator = new CreateNetworkIfNeeded(api, userProject, pred, 100l, 100l);
+      CreateNetworkIfNeeded creator = new CreateNetworkIfNeeded(api, userProject, operationWaiter(api, userProject));
 
       FindNetworkOrCreate loader = new FindNetworkOrCreate(api, creator, userProject);
 
@@ -117,16 +118,14 @@ public class FindNetworkOrCreateTest {
       // post-creation
       expect(nwApi.get("this-network")).andReturn(network);
 
-      expect(createOp.getName()).andReturn("create-op");
+      expect(createOp.getName()).andReturn("create-op").atLeastOnce();
       expect(createOp.getStatus()).andReturn(Operation.Status.DONE);
       expect(createOp.getHttpError()).andReturn(fromNullable((HttpResponse)null));
       replay(api, nwApi, createOp, globalApi);
 
       NetworkAndAddressRange input = new NetworkAndAddressRange("this-network", "0.0.0.0/0", null);
 
-      GlobalOperationDonePredicate pred = new GlobalOperationDonePredicate(api, userProject);
-
-      CreateNetworkIfNeeded creator = new CreateNetworkIfNeeded(api, userProject, pred, 100l, 100l);
+      CreateNetworkIfNeeded creator = new CreateNetworkIfNeeded(api, userProject, operationWaiter(api, userProject));
 
       FindNetworkOrCreate loader = new FindNetworkOrCreate(api, creator, userProject);
 
@@ -140,5 +139,11 @@ public class FindNetworkOrCreateTest {
       verify(api, nwApi, globalApi, createOp);
 
    }
-}
 
+   private static OperationWaiter operationWaiter(GoogleComputeEngineApi api, Supplier<String> userProject) {
+      return new OperationWaiter(api, userProject,
+              MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor(
+                      new ThreadFactoryBuilder().setDaemon(true).build())),
+              MoreExecutors.sameThreadExecutor(), 100l, 100l, 100l, 50);
+   }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.strategy;
+
+import static com.google.common.base.Optional.fromNullable;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.Date;
+
+import org.easymock.Capture;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.strategy.CreateNodeWithGroupEncodedIntoName;
+import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
+import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.GoogleComputeEngineServiceAdapter;
+import org.jclouds.googlecomputeengine.compute.functions.FirewallTagNamingConvention;
+import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
+import org.jclouds.googlecomputeengine.domain.Firewall;
+import org.jclouds.googlecomputeengine.domain.Network;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.features.FirewallApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
+import org.jclouds.googlecomputeengine.options.FirewallOptions;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.net.domain.IpProtocol;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit")
+public class CreateNodesWithGroupEncodedIntoNameThenAddToSetTest {
+
+   private static final URI NETWORK_URI =
+           URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/networks/jclouds-test");
+
+   private static final Network NETWORK = Network.builder().id("jclouds-test").name("jclouds-test")
+           .IPv4Range("10.0.0.0/8").selfLink(NETWORK_URI).creationTimestamp(new Date()).build();
+
+   private static final FirewallTagNamingConvention NAMING = new FirewallTagNamingConvention("jclouds-test", true);
+
+   public void testConsolidatedFirewallsAreCreatedForTheMissingPortSets() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      OperationWaiter operationWaiter = createMock(OperationWaiter.class);
+      Operation operation = createMock(Operation.class);
+      ListenableFuture<Operation> pending = Futures.immediateFuture(operation);
+
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi);
+      expect(firewallApi.get("jclouds-test-port-22-80to81-8080")).andReturn(null);
+      Capture<FirewallOptions> created = new Capture<FirewallOptions>();
+      expect(firewallApi.createInNetwork(eq("jclouds-test-port-22-80to81-8080"), eq(NETWORK_URI), capture(created)))
+              .andReturn(operation).once();
+      expect(operationWaiter.waitFor(operation, Scope.GLOBAL)).andReturn(pending);
+      expect(operationWaiter.await(pending)).andReturn(operation);
+      expect(operation.getHttpError()).andReturn(fromNullable((HttpResponse) null));
+
+      replay(api, firewallApi, operationWaiter, operation);
+
+      strategy(api, operationWaiter).getOrCreateConsolidatedFirewalls(
+              new GoogleComputeEngineTemplateOptions().inboundPorts(8080, 22, 81, 80), NETWORK, NAMING);
+
+      verify(api, firewallApi, operationWaiter, operation);
+      // the firewall only opens the node's own ports, to the nodes tagged with exactly those ports
+      assertEquals(created.getValue().getTargetTags(), ImmutableSet.of("jclouds-test-port-22-80to81-8080"));
+      assertEquals(created.getValue().getSourceRanges(), ImmutableSet.of("10.0.0.0/8", "0.0.0.0/0"));
+      assertEquals(created.getValue().getAllowed(), ImmutableSet.of(
+              Firewall.Rule.builder().IpProtocol(IpProtocol.TCP).addPort(22).addPortRange(80, 81).addPort(8080)
+                      .build(),
+              Firewall.Rule.builder().IpProtocol(IpProtocol.UDP).addPort(22).addPortRange(80, 81).addPort(8080)
+                      .build()));
+   }
+
+   public void testConsolidatedFirewallIsNotCreatedWhenItExists() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      FirewallApi firewallApi = createMock(FirewallApi.class);
+      OperationWaiter operationWaiter = createMock(OperationWaiter.class);
+
+      expect(api.getFirewallApiForProject("myproject")).andReturn(firewallApi);
+      expect(firewallApi.get("jclouds-test-port-22-80-443")).andReturn(firewall("jclouds-test-port-22-80-443",
+              "jclouds-test-port-22-80-443", "0.0.0.0/0",
+              Firewall.Rule.builder().IpProtocol(IpProtocol.TCP).addPort(22).addPort(80).addPort(443).build(),
+              Firewall.Rule.builder().IpProtocol(IpProtocol.UDP).addPort(22).addPort(80).addPort(443).build()));
+
+      replay(api, firewallApi, operationWaiter);
+
+      strategy(api, operationWaiter).getOrCreateConsolidatedFirewalls(
+              new GoogleComputeEngineTemplateOptions().inboundPorts(22, 80, 443), NETWORK, NAMING);
+
+      verify(api, firewallApi, operationWaiter);
+   }
+
+   private static Firewall firewall(String name, String targetTag, String sourceRange, Firewall.Rule... rules) {
+      Firewall.Builder builder = Firewall.builder()
+              .id(name)
+              .name(name)
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/firewalls/" + name))
+              .network(NETWORK_URI)
+              .creationTimestamp(new Date())
+              .addSourceRange(sourceRange)
+              .addTargetTag(targetTag);
+      for (Firewall.Rule rule : rules) {
+         builder.addAllowed(rule);
+      }
+      return builder.build();
+   }
+
+   private static CreateNodesWithGroupEncodedIntoNameThenAddToSet strategy(GoogleComputeEngineApi api,
+           OperationWaiter operationWaiter) {
+      GroupNamingConvention.Factory namingConventionFactory = createMock(GroupNamingConvention.Factory.class);
+      return new CreateNodesWithGroupEncodedIntoNameThenAddToSet(
+              createMock(CreateNodeWithGroupEncodedIntoName.class),
+              createMock(ListNodesStrategy.class),
+              namingConventionFactory,
+              MoreExecutors.sameThreadExecutor(),
+              createMock(CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap.Factory.class),
+              api,
+              Suppliers.ofInstance("myproject"),
+              operationWaiter,
+              createMock(LoadingCache.class),
+              new FirewallTagNamingConvention.Factory(namingConventionFactory, true),
+              createMock(GoogleComputeEngineServiceAdapter.class));
+   }
+}
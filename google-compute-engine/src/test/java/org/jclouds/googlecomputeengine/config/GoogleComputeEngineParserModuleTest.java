@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.config;
+
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.inject.Guice;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineParserModuleTest {
+
+   private Json json;
+
+   @BeforeClass
+   public void setUp() {
+      json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule()).getInstance(Json.class);
+   }
+
+   public void testInstanceDiskTypeMayComeAfterItsFields() {
+      Instance instance = json.fromJson(resource("/instance_get.json").replace(
+              "\"type\": \"PERSISTENT\",\n         \"mode\": \"READ_WRITE\",",
+              // a nested "type" belongs to an unknown field, and is skipped along with it
+              "\"mode\": \"READ_WRITE\",\n         \"unknown\": { \"type\": \"SCRATCH\" },")
+              .replace("\"boot\": true", "\"boot\": true,\n         \"type\": \"PERSISTENT\""), Instance.class);
+
+      assertEquals(instance, new ParseInstanceTest().expected());
+      Instance.PersistentAttachedDisk disk = (Instance.PersistentAttachedDisk) Iterables.getOnlyElement(
+              instance.getDisks());
+      assertEquals(disk.getMode(), Instance.PersistentAttachedDisk.Mode.READ_WRITE);
+      assertEquals(disk.getSource(), URI.create("https://www.googleapis.com/compute/v1/projects/myproject/zones/" +
+              "us-central1-a/disks/test"));
+      assertEquals(disk.getDeviceName().get(), "test");
+      assertTrue(disk.isBoot());
+      assertFalse(disk.isDeleteOnTerminate());
+   }
+
+   public void testInstanceDiskThatIsNotPersistent() {
+      Instance instance = json.fromJson(resource("/instance_get.json").replace("\"PERSISTENT\"", "\"SCRATCH\""),
+              Instance.class);
+
+      Instance.AttachedDisk disk = Iterables.getOnlyElement(instance.getDisks());
+      assertFalse(disk.isPersistent());
+      assertEquals(disk, Instance.AttachedDisk.ephemeralDiskAtIndex(0));
+   }
+
+   public void testOperationErrorsAreUnwrapped() {
+      Operation operation = json.fromJson(resource("/operation_error.json"), Operation.class);
+
+      List<Operation.Error> errors = operation.getErrors();
+      assertEquals(errors.size(), 1);
+      assertEquals(errors.get(0).getCode(), "RESOURCE_ALREADY_EXISTS");
+      assertEquals(errors.get(0).getMessage().get(), "The resource 'projects/myproject/zones/us-central1-a/" +
+              "instances/instance-api-live-test-instance' already exists");
+      assertFalse(errors.get(0).getLocation().isPresent());
+      assertEquals(operation.getHttpError().get().getStatusCode(), 400);
+      assertEquals(operation.getHttpError().get().getMessage(), "BAD REQUEST");
+      assertEquals(operation.getProgress().get(), Integer.valueOf(100));
+   }
+
+   public void testOperationWithoutProgressIsAtZero() {
+      Operation operation = json.fromJson(resource("/operation.json").replace("\"progress\": 100,", ""),
+              Operation.class);
+
+      assertEquals(operation.getProgress().get(), Integer.valueOf(0));
+      assertTrue(operation.getErrors().isEmpty());
+      assertFalse(operation.getHttpError().isPresent());
+   }
+
+   public void testInstancesAndOperationsCanStillBeWritten() {
+      Instance instance = new ParseInstanceTest().expected();
+      Operation operation = json.fromJson(resource("/operation.json"), Operation.class);
+
+      assertTrue(json.toJson(instance).contains("\"" + instance.getName() + "\""), json.toJson(instance));
+      assertTrue(json.toJson(operation).contains("\"" + operation.getName() + "\""), json.toJson(operation));
+   }
+
+   private String resource(String resource) {
+      try {
+         return toStringAndClose(getClass().getResourceAsStream(resource));
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+}
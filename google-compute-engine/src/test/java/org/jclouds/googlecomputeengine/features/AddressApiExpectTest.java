@@ -24,6 +24,9 @@ import static org.testng.AssertJUnit.assertNull;
 
 import javax.ws.rs.core.MediaType;
 
+import org.jclouds.googlecomputeengine.domain.Address;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.parse.ParseAddressListTest;
 import org.jclouds.googlecomputeengine.parse.ParseAddressTest;
@@ -32,12 +35,24 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.Iterables;
+
 /**
  * @author David Alves
  */
 @Test(groups = "unit")
 public class AddressApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
+   public static final HttpRequest AGGREGATED_LIST_ADDRESSES_REQUEST = HttpRequest
+           .builder()
+           .method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/aggregated/addresses")
+           .addHeader("Accept", "application/json")
+           .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+   public static final HttpResponse AGGREGATED_LIST_ADDRESSES_RESPONSE = HttpResponse.builder().statusCode(200)
+           .payload(staticPayloadFromResource("/address_aggregated_list.json")).build();
+
    public void testGetAddressResponseIs2xx() throws Exception {
       HttpRequest get = HttpRequest
               .builder()
@@ -163,4 +178,26 @@ public class AddressApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
       assertTrue(api.listInRegion("us-central1").concat().isEmpty());
    }
+
+   public void testAggregatedListAddressesResponseIs2xx() {
+
+      AddressApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_ADDRESSES_REQUEST, AGGREGATED_LIST_ADDRESSES_RESPONSE)
+              .getAddressApiForProject("myproject");
+
+      ListPage<Address> addresses = api.aggregatedListFirstPage();
+      assertEquals(addresses.getKind(), Resource.Kind.ADDRESS_AGGREGATED_LIST);
+      assertEquals(Iterables.size(addresses), 2);
+   }
+
+   public void testAggregatedListAddressesResponseIs4xx() {
+
+      HttpResponse operationResponse = HttpResponse.builder().statusCode(404).build();
+
+      AddressApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_ADDRESSES_REQUEST, operationResponse)
+              .getAddressApiForProject("myproject");
+
+      assertTrue(api.aggregatedList().concat().isEmpty());
+   }
 }
@@ -24,6 +24,9 @@ import static org.testng.AssertJUnit.assertNull;
 
 import javax.ws.rs.core.MediaType;
 
+import org.jclouds.googlecomputeengine.domain.Disk;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.parse.ParseDiskListTest;
 import org.jclouds.googlecomputeengine.parse.ParseDiskTest;
@@ -32,11 +35,23 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * @author David Alves
  */
 @Test(groups = "unit")
 public class DiskApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   public static final HttpRequest AGGREGATED_LIST_DISKS_REQUEST = HttpRequest
+           .builder()
+           .method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/aggregated/disks")
+           .addHeader("Accept", "application/json")
+           .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+   public static final HttpResponse AGGREGATED_LIST_DISKS_RESPONSE = HttpResponse.builder().statusCode(200)
+           .payload(staticPayloadFromResource("/disk_aggregated_list.json")).build();
    public static final String IMAGE_URL = "https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/images/foo";
 
    public void testGetDiskResponseIs2xx() throws Exception {
@@ -226,4 +241,26 @@ public class DiskApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
       assertTrue(api.listInZone("us-central1-a").concat().isEmpty());
    }
+
+   public void testAggregatedListDisksResponseIs2xx() {
+
+      DiskApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_DISKS_REQUEST, AGGREGATED_LIST_DISKS_RESPONSE)
+              .getDiskApiForProject("myproject");
+
+      ListPage<Disk> disks = api.aggregatedListFirstPage();
+      assertEquals(disks.getKind(), Resource.Kind.DISK_AGGREGATED_LIST);
+      assertEquals(ImmutableSet.copyOf(disks), ImmutableSet.of(new ParseDiskTest().expected()));
+   }
+
+   public void testAggregatedListDisksResponseIs4xx() {
+
+      HttpResponse operationResponse = HttpResponse.builder().statusCode(404).build();
+
+      DiskApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_DISKS_REQUEST, operationResponse)
+              .getDiskApiForProject("myproject");
+
+      assertTrue(api.aggregatedList().concat().isEmpty());
+   }
 }
@@ -22,6 +22,9 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.Resource;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.googlecomputeengine.parse.ParseOperationListTest;
@@ -30,12 +33,24 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.Iterables;
+
 /**
  * @author David Alves
  */
 @Test(groups = "unit")
 public class GlobalOperationApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
+   public static final HttpRequest AGGREGATED_LIST_OPERATIONS_REQUEST = HttpRequest
+           .builder()
+           .method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/aggregated/operations")
+           .addHeader("Accept", "application/json")
+           .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+   public static final HttpResponse AGGREGATED_LIST_OPERATIONS_RESPONSE = HttpResponse.builder().statusCode(200)
+           .payload(staticPayloadFromResource("/operation_aggregated_list.json")).build();
+
    private static final String OPERATIONS_URL_PREFIX = "https://www.googleapis" +
            ".com/compute/v1/projects/myproject/global/operations";
 
@@ -157,5 +172,25 @@ public class GlobalOperationApiExpectTest extends BaseGoogleComputeEngineApiExpe
       assertTrue(globalOperationApi.list().concat().isEmpty());
    }
 
+   public void testAggregatedListOperationsResponseIs2xx() {
+
+      GlobalOperationApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_OPERATIONS_REQUEST, AGGREGATED_LIST_OPERATIONS_RESPONSE)
+              .getGlobalOperationApiForProject("myproject");
 
+      ListPage<Operation> operations = api.aggregatedListFirstPage();
+      assertEquals(operations.getKind(), Resource.Kind.OPERATION_AGGREGATED_LIST);
+      assertEquals(Iterables.size(operations), 2);
+   }
+
+   public void testAggregatedListOperationsResponseIs4xx() {
+
+      HttpResponse operationResponse = HttpResponse.builder().statusCode(404).build();
+
+      GlobalOperationApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_OPERATIONS_REQUEST, operationResponse)
+              .getGlobalOperationApiForProject("myproject");
+
+      assertTrue(api.aggregatedList().concat().isEmpty());
+   }
 }
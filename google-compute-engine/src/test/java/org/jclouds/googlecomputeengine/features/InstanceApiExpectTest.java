@@ -31,6 +31,8 @@ import javax.ws.rs.core.MediaType;
 
 import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.options.AttachDiskOptions;
 import org.jclouds.googlecomputeengine.options.AttachDiskOptions.DiskMode;
@@ -44,6 +46,7 @@ import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * @author David Alves
@@ -51,6 +54,16 @@ import com.google.common.collect.ImmutableMap;
 @Test(groups = "unit")
 public class InstanceApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
+   public static final HttpRequest AGGREGATED_LIST_INSTANCES_REQUEST = HttpRequest
+           .builder()
+           .method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/aggregated/instances")
+           .addHeader("Accept", "application/json")
+           .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+   public static final HttpResponse AGGREGATED_LIST_INSTANCES_RESPONSE = HttpResponse.builder().statusCode(200)
+           .payload(staticPayloadFromResource("/instance_aggregated_list.json")).build();
+
    public static final HttpRequest GET_INSTANCE_REQUEST = HttpRequest
            .builder()
            .method("GET")
@@ -410,4 +423,25 @@ public class InstanceApiExpectTest extends BaseGoogleComputeEngineApiExpectTest
       assertNull(api.detachDiskInZone("us-central1-a", "test-1", "test-disk-1"));
    }
 
+   public void testAggregatedListInstancesResponseIs2xx() {
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_INSTANCES_REQUEST, AGGREGATED_LIST_INSTANCES_RESPONSE)
+              .getInstanceApiForProject("myproject");
+
+      ListPage<Instance> instances = api.aggregatedListFirstPage();
+      assertEquals(instances.getKind(), Resource.Kind.INSTANCE_AGGREGATED_LIST);
+      assertEquals(ImmutableSet.copyOf(instances), ImmutableSet.of(new ParseInstanceTest().expected()));
+   }
+
+   public void testAggregatedListInstancesResponseIs4xx() {
+
+      HttpResponse operationResponse = HttpResponse.builder().statusCode(404).build();
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_INSTANCES_REQUEST, operationResponse)
+              .getInstanceApiForProject("myproject");
+
+      assertTrue(api.aggregatedList().concat().isEmpty());
+   }
 }
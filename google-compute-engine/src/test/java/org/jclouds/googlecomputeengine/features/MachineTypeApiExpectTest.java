@@ -16,11 +16,15 @@
  */
 package org.jclouds.googlecomputeengine.features;
 
+import static com.google.common.collect.Iterables.transform;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_READONLY_SCOPE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.MachineType;
+import org.jclouds.googlecomputeengine.domain.Resource;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.parse.ParseMachineTypeListTest;
 import org.jclouds.googlecomputeengine.parse.ParseMachineTypeTest;
@@ -28,12 +32,26 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
 /**
  * @author David Alves
  */
 @Test(groups = "unit")
 public class MachineTypeApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
 
+   public static final HttpRequest AGGREGATED_LIST_MACHINE_TYPES_REQUEST = HttpRequest
+           .builder()
+           .method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/aggregated/machineTypes")
+           .addHeader("Accept", "application/json")
+           .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+   public static final HttpResponse AGGREGATED_LIST_MACHINE_TYPES_RESPONSE = HttpResponse.builder().statusCode(200)
+           .payload(staticPayloadFromResource("/machinetype_aggregated_list.json")).build();
+
    public static final HttpRequest LIST_MACHINE_TYPES_REQUEST = HttpRequest
            .builder()
            .method("GET")
@@ -113,4 +131,32 @@ public class MachineTypeApiExpectTest extends BaseGoogleComputeEngineApiExpectTe
 
       assertTrue(machineTypeApi.listInZone("us-central1-a").concat().isEmpty());
    }
+
+   public void testAggregatedListMachineTypesResponseIs2xx() {
+
+      MachineTypeApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_MACHINE_TYPES_REQUEST, AGGREGATED_LIST_MACHINE_TYPES_RESPONSE)
+              .getMachineTypeApiForProject("myproject");
+
+      ListPage<MachineType> machineTypes = api.aggregatedListFirstPage();
+      assertEquals(machineTypes.getKind(), Resource.Kind.MACHINE_TYPE_AGGREGATED_LIST);
+      assertEquals(Iterables.size(machineTypes), 5);
+      assertEquals(ImmutableSet.copyOf(transform(machineTypes, new Function<MachineType, String>() {
+         @Override
+         public String apply(MachineType input) {
+            return input.getZone();
+         }
+      })), ImmutableSet.of("us-central1-a", "us-central1-b"));
+   }
+
+   public void testAggregatedListMachineTypesResponseIs4xx() {
+
+      HttpResponse operationResponse = HttpResponse.builder().statusCode(404).build();
+
+      MachineTypeApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE), TOKEN_RESPONSE,
+              AGGREGATED_LIST_MACHINE_TYPES_REQUEST, operationResponse)
+              .getMachineTypeApiForProject("myproject");
+
+      assertTrue(api.aggregatedList().concat().isEmpty());
+   }
 }
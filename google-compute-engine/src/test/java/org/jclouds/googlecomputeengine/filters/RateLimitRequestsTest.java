@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.http.HttpRequest;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", singleThreaded = true)
+public class RateLimitRequestsTest {
+
+   private static final HttpRequest GET = HttpRequest.builder().method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/instances")
+           .build();
+
+   private static final HttpRequest POST = HttpRequest.builder().method("POST")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/instances")
+           .build();
+
+   public void testReadsAreLimitedToTheReadRate() {
+      RateLimitRequests filter = new RateLimitRequests(10d, 0d);
+
+      // the first request of a bucket goes through right away, then one every 100ms
+      long elapsed = elapsedMillis(filter, GET, 6);
+
+      assertTrue(elapsed >= 450, "6 reads took " + elapsed + "ms");
+   }
+
+   public void testZeroRateLeavesRequestsUnlimited() {
+      RateLimitRequests filter = new RateLimitRequests(1d, 0d);
+
+      long elapsed = elapsedMillis(filter, POST, 100);
+
+      assertTrue(elapsed < 500, "100 unlimited mutations took " + elapsed + "ms");
+   }
+
+   public void testReadsAndMutationsHaveSeparateBuckets() {
+      RateLimitRequests filter = new RateLimitRequests(10d, 10d);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+         filter.filter(GET);
+         filter.filter(POST);
+      }
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      // each bucket hands out 5 tokens in about 400ms, and both are drawn from at the same time
+      assertTrue(elapsed >= 350 && elapsed < 800, "5 reads and 5 mutations took " + elapsed + "ms");
+   }
+
+   public void testRequestIsPassedThrough() {
+      assertSame(new RateLimitRequests(0d, 0d).filter(POST), POST);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testNegativeRateIsRejected() {
+      new RateLimitRequests(-1d, 0d);
+   }
+
+   private static long elapsedMillis(RateLimitRequests filter, HttpRequest request, int count) {
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+         filter.filter(request);
+      }
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+   }
+}
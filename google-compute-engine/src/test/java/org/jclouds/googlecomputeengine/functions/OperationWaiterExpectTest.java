@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Compares the number of requests needed to wait for many zone operations when each operation is fetched on its own
+ * and when operations are listed together with a filter on their names.
+ */
+@Test(groups = "unit", singleThreaded = true)
+public class OperationWaiterExpectTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   private static final String ZONE_URL =
+           "https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a";
+
+   private static final Pattern OPERATION_NAME = Pattern.compile("op-[0-9]+");
+
+   private final ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors
+           .newSingleThreadScheduledExecutor());
+   private final ListeningExecutorService operationExecutor = MoreExecutors.listeningDecorator(Executors
+           .newFixedThreadPool(10));
+
+   @AfterClass(alwaysRun = true)
+   public void shutdownExecutors() {
+      scheduler.shutdownNow();
+      operationExecutor.shutdownNow();
+   }
+
+   @DataProvider(name = "operationCounts")
+   public Object[][] operationCounts() {
+      return new Object[][]{{1}, {10}, {100}, {500}};
+   }
+
+   @Test(dataProvider = "operationCounts")
+   public void testBatchedPollingIssuesFewerRequests(int operationCount) throws Exception {
+      int unbatched = requestsToWaitFor(operationCount, 1);
+      int batched = requestsToWaitFor(operationCount, 50);
+
+      // every operation is DONE the first time it is checked
+      assertEquals(unbatched, operationCount);
+      assertTrue(batched <= unbatched, "batched " + batched + " unbatched " + unbatched);
+      if (operationCount >= 100) {
+         assertTrue(batched <= operationCount / 10, "batched " + batched + " for " + operationCount + " operations");
+      }
+   }
+
+   /**
+    * @return the number of operation requests issued to wait for the given number of operations
+    */
+   private int requestsToWaitFor(int operationCount, int batchSize) throws Exception {
+      final AtomicInteger requests = new AtomicInteger();
+      GoogleComputeEngineApi api = createClient(new Function<HttpRequest, HttpResponse>() {
+         @Override
+         public HttpResponse apply(HttpRequest input) {
+            if (input.getEndpoint().getHost().equals("accounts.google.com")) {
+               return TOKEN_RESPONSE;
+            }
+            requests.incrementAndGet();
+            String endpoint = Strings2.urlDecode(input.getEndpoint().toString());
+            List<String> operations = Lists.newArrayList();
+            Matcher names = OPERATION_NAME.matcher(endpoint);
+            while (names.find()) {
+               operations.add(operationJson(names.group()));
+            }
+            String payload = input.getEndpoint().getPath().endsWith("/operations")
+                    ? "{\"kind\":\"compute#operationList\","
+                      + "\"id\":\"projects/myproject/zones/us-central1-a/operations\","
+                      + "\"selfLink\":\"" + ZONE_URL + "/operations\",\"items\":[" + Joiner.on(',').join(operations)
+                      + "]}"
+                    : operations.get(0);
+            return HttpResponse.builder().statusCode(200).payload(payloadFromString(payload)).build();
+         }
+      });
+      try {
+         OperationWaiter waiter = new OperationWaiter(api, Suppliers.ofInstance("myproject"), scheduler,
+                 operationExecutor, 100l, 200l, 60000l, batchSize);
+         List<ListenableFuture<Operation>> pending = Lists.newArrayList();
+         for (int i = 0; i < operationCount; i++) {
+            pending.add(waiter.waitFor(operation("op-" + i), Scope.ZONE));
+         }
+         for (ListenableFuture<Operation> operation : pending) {
+            assertEquals(waiter.await(operation).getStatus(), Operation.Status.DONE);
+         }
+         return requests.get();
+      } finally {
+         Closeables.close(api, true);
+      }
+   }
+
+   private static String operationJson(String name) {
+      return "{\"kind\":\"compute#operation\",\"id\":\"" + name + "\",\"selfLink\":\"" + ZONE_URL + "/operations/"
+              + name + "\",\"name\":\"" + name + "\",\"targetLink\":\"" + ZONE_URL + "/instances/" + name
+              + "\",\"status\":\"DONE\",\"user\":\"user@developer.gserviceaccount.com\",\"progress\":100,"
+              + "\"insertTime\":\"2012-11-28T06:41:05.060\",\"operationType\":\"insert\",\"zone\":\"" + ZONE_URL
+              + "\"}";
+   }
+
+   private static Operation operation(String name) {
+      return Operation.builder().id(name)
+              .selfLink(URI.create(ZONE_URL + "/operations/" + name))
+              .name(name)
+              .targetLink(URI.create(ZONE_URL + "/instances/" + name))
+              .status(Operation.Status.PENDING)
+              .user("user@developer.gserviceaccount.com")
+              .insertTime(new Date())
+              .operationType("insert")
+              .zone(URI.create(ZONE_URL))
+              .build();
+   }
+}
@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.IAnswer;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.features.GlobalOperationApi;
+import org.jclouds.googlecomputeengine.features.ZoneOperationApi;
+import org.jclouds.googlecomputeengine.functions.OperationWaiter.Scope;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+@Test(groups = "unit", singleThreaded = true)
+public class OperationWaiterTest {
+
+   private static final URI ZONE = URI.create(
+           "https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a");
+
+   private final Supplier<String> userProject = Suppliers.ofInstance("myproject");
+   private final ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors
+           .newSingleThreadScheduledExecutor());
+   private final ListeningExecutorService operationExecutor = MoreExecutors.listeningDecorator(Executors
+           .newFixedThreadPool(2));
+
+   @AfterClass(alwaysRun = true)
+   public void shutdownExecutors() {
+      scheduler.shutdownNow();
+      operationExecutor.shutdownNow();
+   }
+
+   public void testPollsUntilDone() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).times(3);
+      expect(zoneOperationApi.getInZone("us-central1-a", "op")).andReturn(operation("op", Operation.Status.RUNNING));
+      expect(zoneOperationApi.getInZone("us-central1-a", "op")).andReturn(operation("op", Operation.Status.RUNNING));
+      expect(zoneOperationApi.getInZone("us-central1-a", "op")).andReturn(operation("op", Operation.Status.DONE));
+      replay(api, zoneOperationApi);
+
+      Operation done = waiter(api, 10, 20, 10000).await(operation("op", Operation.Status.PENDING), Scope.ZONE);
+
+      assertEquals(done.getStatus(), Operation.Status.DONE);
+      verify(api, zoneOperationApi);
+   }
+
+   public void testWaitersOnTheSameOperationSharePolls() throws Exception {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi);
+      expect(globalOperationApi.get("op")).andReturn(operation("op", Operation.Status.DONE));
+      replay(api, globalOperationApi);
+
+      // hold the scheduler so both waiters register before the first poll
+      final CountDownLatch registered = new CountDownLatch(1);
+      scheduler.execute(new Runnable() {
+         @Override
+         public void run() {
+            Uninterruptibles.awaitUninterruptibly(registered);
+         }
+      });
+      OperationWaiter waiter = waiter(api, 10, 20, 10000);
+      ListenableFuture<Operation> first = waiter.waitFor(operation("op", Operation.Status.RUNNING), Scope.GLOBAL);
+      ListenableFuture<Operation> second = waiter.waitFor(operation("op", Operation.Status.RUNNING), Scope.GLOBAL);
+      registered.countDown();
+
+      // a single get for both
+      assertEquals(waiter.await(first).getStatus(), Operation.Status.DONE);
+      assertEquals(waiter.await(second).getStatus(), Operation.Status.DONE);
+      verify(api, globalOperationApi);
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testOperationThatNeverCompletesTimesOut() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(zoneOperationApi.getInZone("us-central1-a", "stuck"))
+              .andReturn(operation("stuck", Operation.Status.RUNNING)).anyTimes();
+      replay(api, zoneOperationApi);
+
+      waiter(api, 10, 20, 200).await(operation("stuck", Operation.Status.RUNNING), Scope.ZONE);
+   }
+
+   public void testManyOperationsArePolledWithFewThreads() {
+      int operationCount = 100;
+      final AtomicInteger polls = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      for (int i = 0; i < operationCount; i++) {
+         final String name = "op-" + i;
+         // every operation is seen running once before it is done
+         expect(zoneOperationApi.getInZone("us-central1-a", name)).andReturn(operation(name, Operation.Status.RUNNING));
+         expect(zoneOperationApi.getInZone("us-central1-a", name)).andAnswer(new IAnswer<Operation>() {
+            @Override
+            public Operation answer() throws Throwable {
+               polls.incrementAndGet();
+               return operation(name, Operation.Status.DONE);
+            }
+         });
+      }
+      replay(api, zoneOperationApi);
+
+      OperationWaiter waiter = waiter(api, 10, 20, 10000, 1);
+      List<ListenableFuture<Operation>> pending = Lists.newArrayList();
+      for (int i = 0; i < operationCount; i++) {
+         pending.add(waiter.waitFor(operation("op-" + i, Operation.Status.PENDING), Scope.ZONE));
+      }
+      for (ListenableFuture<Operation> operation : pending) {
+         assertEquals(waiter.await(operation).getStatus(), Operation.Status.DONE);
+      }
+
+      assertEquals(polls.get(), operationCount);
+      verify(api, zoneOperationApi);
+   }
+
+   public void testOperationsInTheSameZoneAreListedTogether() {
+      int operationCount = 120;
+      final AtomicInteger listed = new AtomicInteger();
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(zoneOperationApi.getInZone(eq("us-central1-a"), anyObject(String.class))).andAnswer(
+              new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() throws Throwable {
+                    return operation((String) getCurrentArguments()[1], Operation.Status.DONE);
+                 }
+              }).anyTimes();
+      expect(zoneOperationApi.listInZone(eq("us-central1-a"), anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() throws Throwable {
+                    ListOptions options = (ListOptions) getCurrentArguments()[1];
+                    String filter = getOnlyElement(options.buildQueryParameters().get("filter"));
+                    Iterable<String> names = Splitter.on('|').split(
+                            filter.substring(filter.indexOf('(') + 1, filter.lastIndexOf(')')));
+                    assertTrue(Iterables.size(names) <= 50, filter);
+                    listed.addAndGet(Iterables.size(names));
+                    ImmutableList.Builder<Operation> operations = ImmutableList.builder();
+                    for (String name : names) {
+                       operations.add(operation(name, Operation.Status.DONE));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      replay(api, zoneOperationApi);
+
+      OperationWaiter waiter = waiter(api, 100, 200, 10000);
+      List<ListenableFuture<Operation>> pending = Lists.newArrayList();
+      for (int i = 0; i < operationCount; i++) {
+         pending.add(waiter.waitFor(operation("op-" + i, Operation.Status.PENDING), Scope.ZONE));
+      }
+      for (ListenableFuture<Operation> operation : pending) {
+         assertEquals(waiter.await(operation).getStatus(), Operation.Status.DONE);
+      }
+
+      // operations that happen to be due on their own are fetched directly, which is rare
+      assertTrue(listed.get() > operationCount / 2, "listed " + listed.get());
+      verify(api, zoneOperationApi);
+   }
+
+   @Test(timeOut = 10000)
+   public void testBatchThatCouldNotBeListedIsListedAgainTogether() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      // no operation is fetched on its own
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).times(2);
+      expect(zoneOperationApi.listInZone(eq("us-central1-a"), anyObject(ListOptions.class)))
+              .andThrow(new IllegalStateException("rate limit exceeded"))
+              .andReturn(PagedIterables.of(IterableWithMarkers.from(ImmutableList.of(
+                      operation("op-1", Operation.Status.DONE), operation("op-2", Operation.Status.DONE)))));
+      replay(api, zoneOperationApi);
+
+      // hold the scheduler so both operations are due on the first tick
+      final CountDownLatch registered = new CountDownLatch(1);
+      scheduler.execute(new Runnable() {
+         @Override
+         public void run() {
+            Uninterruptibles.awaitUninterruptibly(registered);
+         }
+      });
+      OperationWaiter waiter = waiter(api, 10, 20, 10000);
+      ListenableFuture<Operation> first = waiter.waitFor(operation("op-1", Operation.Status.PENDING), Scope.ZONE);
+      ListenableFuture<Operation> second = waiter.waitFor(operation("op-2", Operation.Status.PENDING), Scope.ZONE);
+      registered.countDown();
+
+      assertEquals(waiter.await(first).getStatus(), Operation.Status.DONE);
+      assertEquals(waiter.await(second).getStatus(), Operation.Status.DONE);
+      verify(api, zoneOperationApi);
+   }
+
+   @Test(timeOut = 10000)
+   public void testOperationThatCouldNotBeFetchedIsFetchedAgain() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).times(3);
+      expect(zoneOperationApi.getInZone("us-central1-a", "op"))
+              .andThrow(new IllegalStateException("rate limit exceeded"))
+              .andThrow(new IllegalStateException("backend error"))
+              .andReturn(operation("op", Operation.Status.DONE));
+      replay(api, zoneOperationApi);
+
+      Operation done = waiter(api, 10, 20, 10000).await(operation("op", Operation.Status.PENDING), Scope.ZONE);
+
+      assertEquals(done.getStatus(), Operation.Status.DONE);
+      verify(api, zoneOperationApi);
+   }
+
+   @Test(timeOut = 10000)
+   public void testOperationThatCanNeverBeFetchedTimesOut() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      ZoneOperationApi zoneOperationApi = createMock(ZoneOperationApi.class);
+
+      expect(api.getZoneOperationApiForProject("myproject")).andReturn(zoneOperationApi).anyTimes();
+      expect(zoneOperationApi.getInZone("us-central1-a", "op"))
+              .andThrow(new IllegalStateException("backend error")).anyTimes();
+      replay(api, zoneOperationApi);
+
+      try {
+         waiter(api, 10, 20, 200).await(operation("op", Operation.Status.PENDING), Scope.ZONE);
+         fail("gave up before the timeout or never gave up");
+      } catch (UncheckedTimeoutException e) {
+         assertTrue(Iterables.any(Throwables.getCausalChain(e), Predicates.instanceOf(IllegalStateException.class)),
+                 "the last failure was not kept as the cause");
+      }
+   }
+
+   public void testPollingStopsOnceNoOperationIsPending() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).times(2);
+      expect(globalOperationApi.get("op-1")).andReturn(operation("op-1", Operation.Status.DONE));
+      expect(globalOperationApi.get("op-2")).andReturn(operation("op-2", Operation.Status.DONE));
+      replay(api, globalOperationApi);
+
+      OperationWaiter waiter = waiter(api, 10, 20, 10000);
+      assertFalse(waiter.isPolling());
+
+      assertEquals(waiter.await(operation("op-1", Operation.Status.PENDING), Scope.GLOBAL).getStatus(),
+              Operation.Status.DONE);
+      assertStopsPolling(waiter);
+
+      // and starts again for the next operation
+      assertEquals(waiter.await(operation("op-2", Operation.Status.PENDING), Scope.GLOBAL).getStatus(),
+              Operation.Status.DONE);
+      assertStopsPolling(waiter);
+      verify(api, globalOperationApi);
+   }
+
+   public void testRequestsAreIssuedTogetherAndAwaitedAsAGroup() {
+      final int requestCount = 100;
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get(anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() throws Throwable {
+            return operation((String) getCurrentArguments()[0], Operation.Status.DONE);
+         }
+      }).anyTimes();
+      expect(globalOperationApi.list(anyObject(ListOptions.class))).andAnswer(
+              new IAnswer<PagedIterable<Operation>>() {
+                 @Override
+                 public PagedIterable<Operation> answer() throws Throwable {
+                    ListOptions options = (ListOptions) getCurrentArguments()[0];
+                    String filter = getOnlyElement(options.buildQueryParameters().get("filter"));
+                    ImmutableList.Builder<Operation> operations = ImmutableList.builder();
+                    for (String name : Splitter.on('|').split(
+                            filter.substring(filter.indexOf('(') + 1, filter.lastIndexOf(')')))) {
+                       operations.add(operation(name, Operation.Status.DONE));
+                    }
+                    return PagedIterables.of(IterableWithMarkers.from(operations.build()));
+                 }
+              }).anyTimes();
+      replay(api, globalOperationApi);
+
+      // every request only returns once all of them are in flight, which a deletion one at a time never gets to
+      final CountDownLatch inFlight = new CountDownLatch(requestCount);
+      List<Callable<Operation>> requests = Lists.newArrayList();
+      for (int i = 0; i < requestCount; i++) {
+         final String name = "delete-" + i;
+         requests.add(new Callable<Operation>() {
+            @Override
+            public Operation call() throws Exception {
+               inFlight.countDown();
+               assertTrue(inFlight.await(10, TimeUnit.SECONDS), "requests were not issued together");
+               // a resource that is already gone has no operation to wait for
+               return name.equals("delete-0") ? null : operation(name, Operation.Status.PENDING);
+            }
+         });
+      }
+
+      ListeningExecutorService requestExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      try {
+         OperationWaiter waiter = new OperationWaiter(api, userProject, scheduler, requestExecutor, 10l, 20l, 10000l,
+                 50);
+         List<Operation> operations = waiter.awaitAll(requests, Scope.GLOBAL);
+
+         assertEquals(operations.size(), requestCount);
+         assertNull(operations.get(0));
+         for (int i = 1; i < requestCount; i++) {
+            assertEquals(operations.get(i).getName(), "delete-" + i);
+            assertEquals(operations.get(i).getStatus(), Operation.Status.DONE);
+         }
+         assertStopsPolling(waiter);
+      } finally {
+         requestExecutor.shutdownNow();
+      }
+   }
+
+   public void testGivingUpOnAnOperationDoesNotAffectItsOtherWaiters() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+      final CountDownLatch givenUp = new CountDownLatch(1);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get("shared")).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() {
+            return operation("shared", givenUp.getCount() == 0 ? Operation.Status.DONE : Operation.Status.RUNNING);
+         }
+      }).anyTimes();
+      replay(api, globalOperationApi);
+
+      OperationWaiter waiter = waiter(api, 10, 20, 10000);
+      ListenableFuture<Operation> other = waiter.waitFor(operation("shared", Operation.Status.RUNNING), Scope.GLOBAL);
+      try {
+         // the first request returns the operation the other caller waits for, and the second one fails
+         waiter.awaitAll(ImmutableList.of(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               return operation("shared", Operation.Status.RUNNING);
+            }
+         }, new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               throw new IllegalStateException("quota exceeded");
+            }
+         }), Scope.GLOBAL);
+         fail("expected the failed request to fail the group");
+      } catch (IllegalStateException expected) {
+      }
+      givenUp.countDown();
+
+      assertEquals(waiter.await(other).getStatus(), Operation.Status.DONE);
+      assertStopsPolling(waiter);
+   }
+
+   public void testOperationIsNoLongerPolledOnceEveryWaiterGaveItUp() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get("stuck")).andReturn(operation("stuck", Operation.Status.RUNNING)).anyTimes();
+      replay(api, globalOperationApi);
+
+      OperationWaiter waiter = waiter(api, 10, 20, 10000);
+      ListenableFuture<Operation> first = waiter.waitFor(operation("stuck", Operation.Status.RUNNING), Scope.GLOBAL);
+      ListenableFuture<Operation> second = waiter.waitFor(operation("stuck", Operation.Status.RUNNING), Scope.GLOBAL);
+
+      first.cancel(false);
+      assertFalse(second.isDone());
+      assertTrue(waiter.isPolling());
+
+      second.cancel(false);
+      assertStopsPolling(waiter);
+   }
+
+   public void testAwaitAllLeavesNothingPendingWhenItTimesOut() {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      GlobalOperationApi globalOperationApi = createMock(GlobalOperationApi.class);
+
+      expect(api.getGlobalOperationApiForProject("myproject")).andReturn(globalOperationApi).anyTimes();
+      expect(globalOperationApi.get("stuck")).andReturn(operation("stuck", Operation.Status.RUNNING)).anyTimes();
+      replay(api, globalOperationApi);
+
+      OperationWaiter waiter = waiter(api, 10, 20, 200);
+      try {
+         waiter.awaitAll(ImmutableList.of(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               return operation("stuck", Operation.Status.RUNNING);
+            }
+         }), Scope.GLOBAL);
+         fail("expected the operation to time out");
+      } catch (UncheckedTimeoutException expected) {
+      }
+      assertStopsPolling(waiter);
+   }
+
+   private static void assertStopsPolling(OperationWaiter waiter) {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (waiter.isPolling() && System.nanoTime() < deadline) {
+         Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+      }
+      assertFalse(waiter.isPolling(), "still polling without pending operations");
+   }
+
+   private OperationWaiter waiter(GoogleComputeEngineApi api, long interval, long maxInterval, long timeout) {
+      return waiter(api, interval, maxInterval, timeout, 50);
+   }
+
+   private OperationWaiter waiter(GoogleComputeEngineApi api, long interval, long maxInterval, long timeout,
+                                  int batchSize) {
+      return new OperationWaiter(api, userProject, scheduler, operationExecutor, interval, maxInterval, timeout,
+              batchSize);
+   }
+
+   private static Operation operation(String name, Operation.Status status) {
+      return Operation.builder().id(name)
+              .selfLink(URI.create(ZONE + "/operations/" + name))
+              .name(name)
+              .targetLink(URI.create(ZONE + "/instances/test-instance"))
+              .status(status)
+              .user("user@developer.gserviceaccount.com")
+              .insertTime(new Date())
+              .operationType("insert")
+              .zone(ZONE)
+              .build();
+   }
+}
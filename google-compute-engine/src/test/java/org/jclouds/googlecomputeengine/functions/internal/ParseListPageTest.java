@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceListTest;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+
+@Test(groups = "unit")
+public class ParseListPageTest {
+
+   private ParseInstances parser;
+
+   @BeforeClass
+   public void setUp() {
+      parser = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+              .getInstance(ParseInstances.class);
+   }
+
+   public void testPageMatchesTheJsonParser() throws IOException {
+      ListPage<Instance> page = parser.apply(response(resource("/instance_list.json")));
+      ListPage<Instance> expected = new ParseInstanceListTest().expected();
+
+      assertEquals(page, expected);
+      assertEquals(page.nextMarker(), expected.nextMarker());
+      assertEquals(ImmutableList.copyOf(page), ImmutableList.copyOf(expected));
+   }
+
+   public void testItemsAreHandedToTheConsumerInsteadOfThePage() throws IOException {
+      final List<Instance> consumed = Lists.newArrayList();
+      ListPage<Instance> page = parser.apply(response(resource("/instance_list.json")),
+              new ParseListPage.ItemConsumer<Instance>() {
+                 @Override
+                 public void accept(Instance item) {
+                    consumed.add(item);
+                 }
+              });
+
+      assertEquals(page, new ParseInstanceListTest().expected());
+      assertTrue(Iterables.isEmpty(page));
+      assertEquals(consumed, ImmutableList.of(new ParseInstanceTest().expected()));
+   }
+
+   public void testLargePageIsStreamedToTheConsumer() throws IOException {
+      String instance = resource("/instance_get.json");
+      List<String> instances = Lists.newArrayList();
+      for (int i = 0; i < 500; i++) {
+         instances.add(instance.replace("test-0", "test-" + i));
+      }
+      String json = "{\"kind\":\"compute#instanceList\"," +
+              "\"id\":\"projects/myproject/zones/us-central1-a/instances\"," +
+              "\"selfLink\":\"https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/" +
+              "instances\"," +
+              "\"nextPageToken\":\"CgVDRUlMRRIRbXktaW5zdGFuY2UtNTAw\"," +
+              "\"items\":[" + Joiner.on(',').join(instances) + "]}";
+
+      final List<String> names = Lists.newArrayList();
+      ListPage<Instance> page = parser.apply(response(json), new ParseListPage.ItemConsumer<Instance>() {
+         @Override
+         public void accept(Instance item) {
+            names.add(item.getName());
+         }
+      });
+
+      assertEquals(page.nextMarker().get(), "CgVDRUlMRRIRbXktaW5zdGFuY2UtNTAw");
+      assertEquals(names.size(), 500);
+      assertEquals(names.get(499), "test-499");
+      assertEquals(Iterables.size(parser.apply(response(json))), 500);
+   }
+
+   private String resource(String resource) throws IOException {
+      return toStringAndClose(getClass().getResourceAsStream(resource));
+   }
+
+   private static HttpResponse response(String json) {
+      return HttpResponse.builder().statusCode(200).payload(newStringPayload(json)).build();
+   }
+}
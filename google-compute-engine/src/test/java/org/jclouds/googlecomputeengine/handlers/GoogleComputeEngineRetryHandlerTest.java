@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Guice;
+
+@Test(groups = "unit", testName = "GoogleComputeEngineRetryHandlerTest")
+public class GoogleComputeEngineRetryHandlerTest {
+
+   private static final Json JSON = Guice.createInjector(new GsonModule()).getInstance(Json.class);
+
+   private static final HttpRequest REQUEST = HttpRequest.builder().method("GET")
+           .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones/us-central1-a/instances")
+           .build();
+
+   public void testRetriesServerErrorsAndCountsTheirReason() {
+      GoogleComputeEngineRetryHandler handler = handler(5, 0);
+
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(503, "backendError")));
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(503, "backendError")));
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST),
+              HttpResponse.builder().statusCode(502).build()));
+
+      assertEquals(handler.getRetryCounts(), ImmutableMap.of("backendError", 2l, "502", 1l));
+   }
+
+   public void testRetriesRateLimitedRequests() {
+      GoogleComputeEngineRetryHandler handler = handler(5, 0);
+
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(403, "rateLimitExceeded")));
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(403, "userRateLimitExceeded")));
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST),
+              HttpResponse.builder().statusCode(429).build()));
+
+      assertEquals(handler.getRetryCounts(), ImmutableMap.of("rateLimitExceeded", 1l, "userRateLimitExceeded", 1l,
+              "429", 1l));
+   }
+
+   public void testDoesNotRetryOtherClientErrorsAndKeepsTheirBody() throws IOException {
+      GoogleComputeEngineRetryHandler handler = handler(5, 0);
+      HttpResponse forbidden = response(403, "forbidden");
+
+      assertFalse(handler.shouldRetryRequest(new HttpCommand(REQUEST), forbidden));
+      assertFalse(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(400, "invalid")));
+      assertFalse(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(404, "notFound")));
+
+      // the error handler still gets to read why the request failed
+      assertTrue(Strings2.toStringAndClose(forbidden.getPayload().openStream()).contains("forbidden"));
+      assertTrue(handler.getRetryCounts().isEmpty());
+   }
+
+   public void testStopsAtTheRetryLimit() {
+      GoogleComputeEngineRetryHandler handler = handler(2, 0);
+      HttpCommand command = new HttpCommand(REQUEST);
+
+      assertTrue(handler.shouldRetryRequest(command, response(500, "backendError")));
+      assertTrue(handler.shouldRetryRequest(command, response(500, "backendError")));
+      assertFalse(handler.shouldRetryRequest(command, response(500, "backendError")));
+   }
+
+   public void testStopsRetryingWhenTheBudgetIsSpent() {
+      GoogleComputeEngineRetryHandler handler = handler(5, 1);
+
+      assertTrue(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(503, "backendError")));
+      assertFalse(handler.shouldRetryRequest(new HttpCommand(REQUEST), response(503, "backendError")));
+
+      assertEquals(handler.getRetryCounts(), ImmutableMap.of("backendError", 1l));
+      assertEquals(handler.getRetriesOverBudget(), 1);
+   }
+
+   public void testDelayIsJitteredBelowAnExponentialCeiling() {
+      GoogleComputeEngineRetryHandler handler = new GoogleComputeEngineRetryHandler(JSON, 100, 50, 1000l, 0d);
+
+      for (int failureCount = 1; failureCount < 100; failureCount++) {
+         long ceiling = Math.min(1000, 50l << Math.min(failureCount - 1, 20));
+         for (int i = 0; i < 100; i++) {
+            long delay = handler.delay(failureCount);
+            assertTrue(delay >= 0 && delay < ceiling, "delay " + delay + " for failure " + failureCount);
+         }
+      }
+   }
+
+   private static GoogleComputeEngineRetryHandler handler(int retryCountLimit, double retryBudget) {
+      return new GoogleComputeEngineRetryHandler(JSON, retryCountLimit, 1, 2l, retryBudget);
+   }
+
+   private static HttpResponse response(int statusCode, String reason) {
+      return HttpResponse.builder().statusCode(statusCode)
+              .payload("{\"error\":{\"errors\":[{\"domain\":\"usageLimits\",\"reason\":\"" + reason + "\","
+                      + "\"message\":\"" + reason + "\"}],\"code\":" + statusCode + ",\"message\":\"" + reason
+                      + "\"}}")
+              .build();
+   }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.predicates;
+
+import static org.jclouds.googlecomputeengine.compute.functions.FirewallToIpPermissionTest.fwForTest;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.equalsIpPermission;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicates.providesIpPermission;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicatesTest.getFwForTestSourceTags;
+import static org.jclouds.googlecomputeengine.predicates.NetworkFirewallPredicatesTest.getFwForTestSourceTagsExact;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.jclouds.googlecomputeengine.domain.Firewall;
+import org.jclouds.net.domain.IpPermission;
+import org.jclouds.net.domain.IpProtocol;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+@Test(groups = "unit")
+public class FirewallRuleIndexTest {
+
+   private static final List<IpProtocol> PROTOCOLS = ImmutableList.of(IpProtocol.TCP, IpProtocol.UDP, IpProtocol.ICMP);
+
+   public void testProvidesIpPermission() {
+      IpPermission perm = IpPermission.builder().groupId("tag-1")
+              .fromPort(1).toPort(10).ipProtocol(IpProtocol.TCP).build();
+
+      assertTrue(new FirewallRuleIndex(ImmutableList.of(fwForTest(), getFwForTestSourceTags())).provides(perm));
+      assertFalse(new FirewallRuleIndex(ImmutableList.of(fwForTest())).provides(perm));
+   }
+
+   public void testEqualTo() {
+      IpPermission perm = IpPermission.builder().groupId("tag-1")
+              .fromPort(1).toPort(10).ipProtocol(IpProtocol.TCP).build();
+
+      assertEquals(new FirewallRuleIndex(ImmutableList.of(fwForTest(), getFwForTestSourceTagsExact())).equalTo(perm),
+              ImmutableSet.of(getFwForTestSourceTagsExact()));
+      assertTrue(new FirewallRuleIndex(ImmutableList.of(getFwForTestSourceTags())).equalTo(perm).isEmpty());
+   }
+
+   public void testIndexIsUpdatedAsFirewallsComeAndGo() {
+      IpPermission perm = IpPermission.builder().groupId("tag-1")
+              .fromPort(1).toPort(10).ipProtocol(IpProtocol.TCP).build();
+      FirewallRuleIndex index = new FirewallRuleIndex();
+
+      assertFalse(index.provides(perm));
+      index.add(firewall("jclouds-test", ImmutableList.of("tag-1"), ImmutableList.<String>of(), IpProtocol.TCP, 1, 10));
+      assertTrue(index.provides(perm));
+
+      // replaced by a firewall of the same name that no longer provides it
+      index.add(firewall("jclouds-test", ImmutableList.of("tag-2"), ImmutableList.<String>of(), IpProtocol.TCP, 1, 10));
+      assertFalse(index.provides(perm));
+      assertEquals(index.getFirewalls().size(), 1);
+
+      assertEquals(index.remove("jclouds-test").getSourceTags(), ImmutableSet.of("tag-2"));
+      assertNull(index.remove("jclouds-test"));
+      assertTrue(index.getFirewalls().isEmpty());
+      assertFalse(index.provides(IpPermission.builder().groupId("tag-2")
+              .fromPort(1).toPort(10).ipProtocol(IpProtocol.TCP).build()));
+   }
+
+   public void testAnswersAreTheSameAsCheckingEveryFirewall() {
+      Random random = new Random(42);
+      List<Firewall> firewalls = Lists.newArrayList();
+      for (int i = 0; i < 1000; i++) {
+         int from = random.nextInt(50);
+         firewalls.add(firewall("fw-" + i, randomSources(random, "tag-"), randomSources(random, "10.0.0.0/"),
+                 PROTOCOLS.get(random.nextInt(PROTOCOLS.size())), from, from + 1 + random.nextInt(10)));
+      }
+      FirewallRuleIndex index = new FirewallRuleIndex(firewalls);
+
+      int provided = 0;
+      for (int i = 0; i < 2000; i++) {
+         IpPermission.Builder perm = IpPermission.builder()
+                 .ipProtocol(PROTOCOLS.get(random.nextInt(PROTOCOLS.size())))
+                 .groupIds(randomSources(random, "tag-"))
+                 .cidrBlocks(randomSources(random, "10.0.0.0/"));
+         int from = random.nextInt(50);
+         IpPermission permission = perm.fromPort(from).toPort(from + random.nextInt(5)).build();
+
+         boolean provides = Iterables.any(firewalls, providesIpPermission(permission));
+         assertEquals(index.provides(permission), provides, permission.toString());
+         assertEquals(index.equalTo(permission), ImmutableSet.copyOf(Iterables.filter(firewalls,
+                 equalsIpPermission(permission))), permission.toString());
+         provided += provides ? 1 : 0;
+      }
+      // make sure both answers were exercised
+      assertTrue(provided > 0 && provided < 2000, "provided " + provided);
+   }
+
+   private static List<String> randomSources(Random random, String prefix) {
+      List<String> sources = Lists.newArrayList();
+      for (int i = random.nextInt(3); i > 0; i--) {
+         sources.add(prefix + random.nextInt(4));
+      }
+      return sources;
+   }
+
+   private static Firewall firewall(String name, Iterable<String> sourceTags, Iterable<String> sourceRanges,
+                                    IpProtocol protocol, int fromPort, int toPort) {
+      Firewall.Builder builder = Firewall.builder()
+              .network(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/networks/" +
+                      "jclouds-test"))
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1/projects/myproject/global/firewalls/" +
+                      name))
+              .id(name)
+              .creationTimestamp(new Date())
+              .name(name);
+      for (String sourceTag : sourceTags) {
+         builder.addSourceTag(sourceTag);
+      }
+      for (String sourceRange : sourceRanges) {
+         builder.addSourceRange(sourceRange);
+      }
+      Firewall.Rule.Builder rule = Firewall.Rule.builder().IpProtocol(protocol);
+      if (protocol != IpProtocol.ICMP) {
+         rule.addPortRange(fromPort, toPort);
+      }
+      return builder.addAllowed(rule.build()).build();
+   }
+}
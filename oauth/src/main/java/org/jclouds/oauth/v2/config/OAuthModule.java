@@ -18,13 +18,14 @@ package org.jclouds.oauth.v2.config;
 
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
+import com.google.common.base.Ticker;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
+import org.jclouds.lifecycle.Closer;
 import org.jclouds.oauth.v2.domain.ClaimSet;
 import org.jclouds.oauth.v2.domain.Header;
 import org.jclouds.oauth.v2.domain.OAuthCredentials;
@@ -40,9 +41,11 @@ import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.Closeable;
 import java.lang.reflect.Type;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 
@@ -66,23 +69,26 @@ public class OAuthModule extends AbstractModule {
    }
 
    /**
-    * Provides a cache for tokens. Cache is time based and by default expires after 59 minutes 
-    * (the maximum time a token is valid is 60 minutes).
-    * This cache and expiry period is system-wide and does not attend to per-instance expiry time
-    * (e.g. "expires_in" from Google Compute -- which is set to the standard 3600 seconds).
+    * Provides a cache for tokens. Each token lives for the "expires_in" returned by the server (by default the
+    * session interval), and is refreshed in the background by a dedicated thread before it expires.
+    *
+    * @see RefreshingTokenLoader
     */
-   // NB: If per-instance expiry time is required, significant refactoring will be needed.
    @Provides
    @Singleton
    public LoadingCache<TokenRequest, Token> provideAccessCache(Function<TokenRequest, Token> getAccess,
                                                                @Named(PROPERTY_SESSION_INTERVAL) long
-                                                                       sessionIntervalInSeconds) {
-      // since the session interval is also the token expiration time requested to the server make the token expire a
-      // bit before the deadline to make sure there aren't session expiration exceptions
-      sessionIntervalInSeconds = sessionIntervalInSeconds > 30 ? sessionIntervalInSeconds - 30 :
-              sessionIntervalInSeconds;
-      return CacheBuilder.newBuilder().expireAfterWrite(sessionIntervalInSeconds, TimeUnit.SECONDS).build(CacheLoader
-              .from(getAccess));
+                                                                       sessionIntervalInSeconds, Closer closer) {
+      final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+              .setNameFormat("oauth-token-refresh-%d").setDaemon(true).build());
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            refreshExecutor.shutdownNow();
+         }
+      });
+      return RefreshingTokenLoader.newCache(getAccess, sessionIntervalInSeconds, refreshExecutor,
+              Ticker.systemTicker());
    }
 
 }
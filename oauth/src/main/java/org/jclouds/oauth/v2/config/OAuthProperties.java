@@ -42,4 +42,12 @@ public class OAuthProperties {
     * Optional list of comma-separated scopes to use when no OAuthScopes annotation is present.
     */
    public static final String SCOPES = "jclouds.oauth.scopes";
+
+   /**
+    * When true, a single token is requested for the union of the scopes declared across the API that made the
+    * request, i.e. the class and method OAuthScopes of the API and of the APIs it delegates to, and that token
+    * serves every request of the API. This saves the token fetches of the APIs that need several scopes, at the
+    * cost of every request carrying a token with all of them. Defaults to false.
+    */
+   public static final String UNION_OF_SCOPES = "jclouds.oauth.union-of-scopes";
 }
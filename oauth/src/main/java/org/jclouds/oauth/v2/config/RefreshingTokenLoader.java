@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.oauth.v2.config;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.ForwardingLoadingCache;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jclouds.oauth.v2.domain.Token;
+import org.jclouds.oauth.v2.domain.TokenRequest;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Loads tokens into the token cache and refreshes them in the background before they expire, so that requests
+ * only wait for a token fetch the first time a token is used, or after it was left unused until it expired.
+ * <p/>
+ * The lifetime of each token is the "expires_in" returned by the server, falling back to the session interval
+ * when the server does not return one. A token is refreshed once three quarters of its lifetime have elapsed,
+ * and is no longer handed out 30 seconds before it expires.
+ * <p/>
+ * There is at most one fetch in flight per token request: a request that finds its token expired waits for the
+ * fetch already in flight, be it a background refresh or another request's fetch, rather than starting its own.
+ */
+@Beta
+public class RefreshingTokenLoader extends CacheLoader<TokenRequest, Token> {
+
+   /**
+    * Builds a token cache that checks at most once every 1/60th of the session interval whether a token is due
+    * for a refresh, and runs the refreshes on the given executor.
+    */
+   public static LoadingCache<TokenRequest, Token> newCache(Function<TokenRequest, Token> fetchToken,
+                                                             long sessionIntervalInSeconds,
+                                                             Executor refreshExecutor,
+                                                             Ticker ticker) {
+      RefreshingTokenLoader loader = new RefreshingTokenLoader(fetchToken, sessionIntervalInSeconds,
+              refreshExecutor, ticker);
+      return new ExpiringTokenCache(CacheBuilder.newBuilder()
+              .ticker(ticker)
+              .refreshAfterWrite(Math.max(1, sessionIntervalInSeconds / 60), SECONDS)
+              .build(loader), loader);
+   }
+
+   private final Function<TokenRequest, Token> fetchToken;
+   private final long sessionIntervalInSeconds;
+   private final Executor refreshExecutor;
+   private final Ticker ticker;
+   private final ConcurrentMap<TokenRequest, Lifetime> lifetimes = Maps.newConcurrentMap();
+   private final ConcurrentMap<TokenRequest, ListenableFuture<Token>> fetchesInFlight = Maps.newConcurrentMap();
+
+   public RefreshingTokenLoader(Function<TokenRequest, Token> fetchToken, long sessionIntervalInSeconds,
+                                Executor refreshExecutor, Ticker ticker) {
+      this.fetchToken = checkNotNull(fetchToken, "fetchToken");
+      this.sessionIntervalInSeconds = sessionIntervalInSeconds;
+      this.refreshExecutor = checkNotNull(refreshExecutor, "refreshExecutor");
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Override
+   public Token load(TokenRequest key) throws Exception {
+      try {
+         return getUninterruptibly(fetch(key, false));
+      } catch (ExecutionException e) {
+         Throwables.propagateIfPossible(e.getCause(), Exception.class);
+         throw e;
+      }
+   }
+
+   @Override
+   public ListenableFuture<Token> reload(TokenRequest key, Token oldValue) {
+      Lifetime lifetime = lifetimes.get(key);
+      if (lifetime != null && ticker.read() < lifetime.refreshAt) {
+         return immediateFuture(oldValue);
+      }
+      return fetch(key, true);
+   }
+
+   /**
+    * Returns the token of the given request if it must no longer be handed out, or null.
+    */
+   private Token expiredToken(TokenRequest key) {
+      Lifetime lifetime = lifetimes.get(key);
+      return lifetime != null && ticker.read() >= lifetime.expiresAt ? lifetime.token : null;
+   }
+
+   /**
+    * Returns the fetch in flight for the given request, or starts one, in the background or in the calling thread.
+    */
+   private ListenableFuture<Token> fetch(final TokenRequest key, boolean inBackground) {
+      final SettableFuture<Token> fetch = SettableFuture.create();
+      ListenableFuture<Token> inFlight = fetchesInFlight.putIfAbsent(key, fetch);
+      if (inFlight != null) {
+         return inFlight;
+      }
+      Runnable runFetch = new Runnable() {
+         @Override
+         public void run() {
+            try {
+               fetch.set(fetchAndRecordLifetime(key));
+            } catch (Throwable t) {
+               fetch.setException(t);
+            } finally {
+               fetchesInFlight.remove(key, fetch);
+            }
+         }
+      };
+      if (inBackground) {
+         refreshExecutor.execute(runFetch);
+      } else {
+         runFetch.run();
+      }
+      return fetch;
+   }
+
+   private Token fetchAndRecordLifetime(TokenRequest key) {
+      long fetchedAt = ticker.read();
+      Token token = fetchToken.apply(key);
+      long lifetimeInSeconds = token.getExpiresIn() > 0 ? token.getExpiresIn() : sessionIntervalInSeconds;
+      long lifetimeInNanos = SECONDS.toNanos(lifetimeInSeconds);
+      long marginInNanos = lifetimeInSeconds > 30 ? SECONDS.toNanos(30) : 0;
+      lifetimes.put(key, new Lifetime(token, fetchedAt + lifetimeInNanos / 4 * 3,
+              fetchedAt + lifetimeInNanos - marginInNanos));
+      return token;
+   }
+
+   private static final class Lifetime {
+      private final Token token;
+      private final long refreshAt;
+      private final long expiresAt;
+
+      private Lifetime(Token token, long refreshAt, long expiresAt) {
+         this.token = token;
+         this.refreshAt = refreshAt;
+         this.expiresAt = expiresAt;
+      }
+   }
+
+   /**
+    * Evicts expired tokens before looking them up, so that the lookup waits for a new token instead of returning
+    * the expired one while it is refreshed.
+    */
+   private static final class ExpiringTokenCache extends
+           ForwardingLoadingCache.SimpleForwardingLoadingCache<TokenRequest, Token> {
+
+      private final RefreshingTokenLoader loader;
+
+      private ExpiringTokenCache(LoadingCache<TokenRequest, Token> delegate, RefreshingTokenLoader loader) {
+         super(delegate);
+         this.loader = loader;
+      }
+
+      @Override
+      public Token get(TokenRequest key) throws ExecutionException {
+         evictIfExpired(key);
+         return super.get(key);
+      }
+
+      @Override
+      public Token getUnchecked(TokenRequest key) {
+         evictIfExpired(key);
+         return super.getUnchecked(key);
+      }
+
+      @Override
+      public Token apply(TokenRequest key) {
+         return getUnchecked(key);
+      }
+
+      private void evictIfExpired(TokenRequest key) {
+         Token expired = loader.expiredToken(key);
+         if (expired != null) {
+            // only the first of the concurrent lookups evicts the token, the others will wait for its load
+            asMap().remove(key, expired);
+         }
+      }
+   }
+}
@@ -118,7 +118,8 @@ public class ClaimSet extends ForwardingMap<String, String> {
       }
 
       public Builder fromClaimSet(ClaimSet claimSet) {
-         return new Builder().addAllClaims(claimSet.claims).expirationTime(expirationTime).emissionTime(emissionTime);
+         return new Builder().addAllClaims(claimSet.claims).expirationTime(claimSet.expirationTime)
+                 .emissionTime(claimSet.emissionTime);
       }
    }
 
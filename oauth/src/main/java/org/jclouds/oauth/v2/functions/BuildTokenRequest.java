@@ -21,24 +21,34 @@ import static org.jclouds.oauth.v2.OAuthConstants.ADDITIONAL_CLAIMS;
 import static org.jclouds.oauth.v2.config.OAuthProperties.AUDIENCE;
 import static org.jclouds.oauth.v2.config.OAuthProperties.SCOPES;
 import static org.jclouds.oauth.v2.config.OAuthProperties.SIGNATURE_OR_MAC_ALGORITHM;
+import static org.jclouds.oauth.v2.config.OAuthProperties.UNION_OF_SCOPES;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Singleton;
 
-import org.jclouds.Constants;
 import org.jclouds.oauth.v2.config.OAuthScopes;
 import org.jclouds.oauth.v2.domain.ClaimSet;
 import org.jclouds.oauth.v2.domain.Header;
 import org.jclouds.oauth.v2.domain.OAuthCredentials;
 import org.jclouds.oauth.v2.domain.TokenRequest;
 import org.jclouds.oauth.v2.domain.TokenRequestFormat;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.annotations.Delegate;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.reflect.Invokable;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
@@ -46,7 +56,8 @@ import com.google.inject.name.Named;
 /**
  * The default authenticator.
  * <p/>
- * Builds the default token request with the following claims: iss,scope,aud,iat,exp.
+ * Builds the default token request with the following claims: iss,scope,aud. The request is used as the key of
+ * the token cache, so the time-varying claims (iat,exp) are only added when a token is fetched.
  * <p/>
  * TODO scopes etc should come from the REST method and not from a global property
  *
@@ -56,10 +67,11 @@ import com.google.inject.name.Named;
 public class BuildTokenRequest implements Function<GeneratedHttpRequest, TokenRequest> {
 
    private final String assertionTargetDescription;
-   private final String signatureAlgorithm;
    private final TokenRequestFormat tokenRequestFormat;
    private final Supplier<OAuthCredentials> credentialsSupplier;
-   private final long tokenDuration;
+   private final Header header;
+   private final ConcurrentMap<Invokable<?, ?>, String> scopesByInvokable = Maps.newConcurrentMap();
+   private final ConcurrentMap<Class<?>, String> unionOfScopesByApi = Maps.newConcurrentMap();
 
    @Inject(optional = true)
    @Named(ADDITIONAL_CLAIMS)
@@ -69,43 +81,29 @@ public class BuildTokenRequest implements Function<GeneratedHttpRequest, TokenRe
    @Named(SCOPES)
    protected String globalScopes = null;
 
-   // injectable so expect tests can override with a predictable value
    @Inject(optional = true)
-   protected Supplier<Long> timeSourceMillisSinceEpoch = new Supplier<Long>() {
-      @Override
-      public Long get() {
-         return System.currentTimeMillis();
-      }
-   };
-   
+   @Named(UNION_OF_SCOPES)
+   protected boolean unionOfScopes = false;
+
    @Inject
    public BuildTokenRequest(@Named(AUDIENCE) String assertionTargetDescription,
                             @Named(SIGNATURE_OR_MAC_ALGORITHM) String signatureAlgorithm,
-                            TokenRequestFormat tokenRequestFormat, Supplier<OAuthCredentials> credentialsSupplier,
-                            @Named(Constants.PROPERTY_SESSION_INTERVAL) long tokenDuration) {
+                            TokenRequestFormat tokenRequestFormat, Supplier<OAuthCredentials> credentialsSupplier) {
       this.assertionTargetDescription = assertionTargetDescription;
-      this.signatureAlgorithm = signatureAlgorithm;
       this.tokenRequestFormat = tokenRequestFormat;
       this.credentialsSupplier = credentialsSupplier;
-      this.tokenDuration = tokenDuration;
-   }
-
-   @Override
-   public TokenRequest apply(GeneratedHttpRequest request) {
-      long now = timeSourceMillisSinceEpoch.get() / 1000;
-
-      // fetch the token
-      Header header = new Header.Builder()
+      this.header = new Header.Builder()
               .signerAlgorithm(signatureAlgorithm)
               .type(tokenRequestFormat.getTypeName())
               .build();
+   }
 
+   @Override
+   public TokenRequest apply(GeneratedHttpRequest request) {
       ClaimSet claimSet = new ClaimSet.Builder(this.tokenRequestFormat.requiredClaims())
               .addClaim("iss", credentialsSupplier.get().identity)
               .addClaim("scope", getOAuthScopes(request))
               .addClaim("aud", assertionTargetDescription)
-              .emissionTime(now)
-              .expirationTime(now + tokenDuration)
               .addAllClaims(additionalClaims)
               .build();
 
@@ -115,9 +113,71 @@ public class BuildTokenRequest implements Function<GeneratedHttpRequest, TokenRe
               .build();
    }
 
+   /**
+    * Returns the scopes of the invoked REST method, or the union of the scopes of its API if
+    * {@link org.jclouds.oauth.v2.config.OAuthProperties#UNION_OF_SCOPES} is set. The scopes are resolved once per
+    * method or API, since resolving them means reflecting on the method and its class.
+    */
    protected String getOAuthScopes(GeneratedHttpRequest request) {
+      if (unionOfScopes) {
+         String union = getUnionOfOAuthScopes(request);
+         // an API without any scopes fails the same way as without the union of scopes
+         if (!union.isEmpty()) {
+            return union;
+         }
+      }
       Invokable<?, ?> invokable = request.getInvocation().getInvokable();
-      
+      String scopes = scopesByInvokable.get(invokable);
+      if (scopes == null) {
+         scopes = resolveOAuthScopes(invokable);
+         scopesByInvokable.putIfAbsent(invokable, scopes);
+      }
+      return scopes;
+   }
+
+   /**
+    * Returns the union of the scopes declared across the API that made the request, which is the API that owns the
+    * delegate method the request was made through, if any.
+    *
+    * @see org.jclouds.oauth.v2.config.OAuthProperties#UNION_OF_SCOPES
+    */
+   private String getUnionOfOAuthScopes(GeneratedHttpRequest request) {
+      Optional<Invocation> caller = request.getCaller();
+      Invocation invocation = caller.isPresent() ? caller.get() : request.getInvocation();
+      Class<?> api = invocation.getInvokable().getOwnerType().getRawType();
+      String scopes = unionOfScopesByApi.get(api);
+      if (scopes == null) {
+         Set<String> union = Sets.newTreeSet();
+         addOAuthScopes(api, union, Sets.<Class<?>>newHashSet());
+         scopes = Joiner.on(",").join(union);
+         unionOfScopesByApi.putIfAbsent(api, scopes);
+      }
+      return scopes;
+   }
+
+   private void addOAuthScopes(Class<?> api, Set<String> union, Set<Class<?>> visited) {
+      if (!visited.add(api)) {
+         return;
+      }
+      OAuthScopes classScopes = api.getAnnotation(OAuthScopes.class);
+      for (Method method : api.getMethods()) {
+         if (method.isAnnotationPresent(Delegate.class)) {
+            if (method.getReturnType().isInterface()) {
+               addOAuthScopes(method.getReturnType(), union, visited);
+            }
+            continue;
+         }
+         OAuthScopes methodScopes = method.getAnnotation(OAuthScopes.class);
+         OAuthScopes scopes = methodScopes != null ? methodScopes : classScopes;
+         if (scopes != null) {
+            Collections.addAll(union, scopes.value());
+         } else if (globalScopes != null) {
+            union.addAll(Splitter.on(",").splitToList(globalScopes));
+         }
+      }
+   }
+
+   private String resolveOAuthScopes(Invokable<?, ?> invokable) {
       OAuthScopes classScopes = invokable.getOwnerType().getRawType().getAnnotation(OAuthScopes.class);
       OAuthScopes methodScopes = invokable.getAnnotation(OAuthScopes.class);
 
@@ -17,28 +17,52 @@
 package org.jclouds.oauth.v2.functions;
 
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import org.jclouds.oauth.v2.OAuthApi;
+import org.jclouds.oauth.v2.domain.ClaimSet;
 import org.jclouds.oauth.v2.domain.Token;
 import org.jclouds.oauth.v2.domain.TokenRequest;
 
-import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+
 /**
+ * Fetches a token for a token request, setting the emission and expiration times (iat,exp) of its claims to the
+ * current time and the current time plus the session interval.
+ *
  * @author David Alves
  */
 @Singleton
 public class FetchToken implements Function<TokenRequest, Token> {
 
    private OAuthApi oAuthApi;
+   private final long tokenDuration;
+
+   // injectable so expect tests can override with a predictable value
+   @Inject(optional = true)
+   protected Supplier<Long> timeSourceMillisSinceEpoch = new Supplier<Long>() {
+      @Override
+      public Long get() {
+         return System.currentTimeMillis();
+      }
+   };
 
    @Inject
-   public FetchToken(OAuthApi oAuthApi) {
+   public FetchToken(OAuthApi oAuthApi, @Named(PROPERTY_SESSION_INTERVAL) long tokenDuration) {
       this.oAuthApi = oAuthApi;
+      this.tokenDuration = tokenDuration;
    }
 
    @Override
    public Token apply(TokenRequest input) {
-      return this.oAuthApi.authenticate(input);
+      long now = timeSourceMillisSinceEpoch.get() / 1000;
+      ClaimSet claimSet = input.getClaimSet().toBuilder()
+              .emissionTime(now)
+              .expirationTime(now + tokenDuration)
+              .build();
+      return this.oAuthApi.authenticate(input.toBuilder().claimSet(claimSet).build());
    }
 }
@@ -25,11 +25,15 @@ import javax.annotation.PostConstruct;
 import javax.crypto.Mac;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.SignatureException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
@@ -40,14 +44,19 @@ import static org.jclouds.oauth.v2.config.OAuthProperties.SIGNATURE_OR_MAC_ALGOR
 /**
  * Function that signs/produces mac's for  OAuth tokens, provided a {@link Signature} or a {@link Mac} algorithm and
  * {@link PrivateKey}
+ * <p/>
+ * Neither {@link Signature} nor {@link Mac} can be used by several threads at once, so each concurrent call borrows
+ * an instance from a pool, creating one if the pool is empty. Instances initialized with a key other than the
+ * current one, e.g. after the credentials were changed, are dropped instead of being returned to the pool.
  *
  * @author David Alves
  */
+@Singleton
 public class SignOrProduceMacForToken implements Function<byte[], byte[]> {
 
    private final Supplier<OAuthCredentials> credentials;
    private final String signatureOrMacAlgorithm;
-   private Function<byte[], byte[]> signatureOrMacFunction;
+   private final Queue<SignatureOrMacGenerator> generators = new ConcurrentLinkedQueue<SignatureOrMacGenerator>();
 
 
    @Inject
@@ -59,34 +68,63 @@ public class SignOrProduceMacForToken implements Function<byte[], byte[]> {
       this.credentials = credentials;
    }
 
+   /**
+    * Checks that the algorithm can be used with the current key, leaving the first generator in the pool.
+    */
    @PostConstruct
    public void loadSignatureOrMacOrNone() throws InvalidKeyException, NoSuchAlgorithmException {
-      if (signatureOrMacAlgorithm.equals(NO_ALGORITHM)) {
-         this.signatureOrMacFunction = new Function<byte[], byte[]>() {
-            @Override
-            public byte[] apply(byte[] input) {
-               return null;
-            }
-         };
-      } else if (signatureOrMacAlgorithm.startsWith("SHA")) {
-         this.signatureOrMacFunction = new SignatureGenerator(signatureOrMacAlgorithm, credentials.get().privateKey);
-      } else {
-         this.signatureOrMacFunction = new MessageAuthenticationCodeGenerator(signatureOrMacAlgorithm,
-                 credentials.get().privateKey);
+      if (!signatureOrMacAlgorithm.equals(NO_ALGORITHM)) {
+         generators.offer(newGenerator(credentials.get().privateKey));
       }
    }
 
    @Override
    public byte[] apply(byte[] input) {
-      return signatureOrMacFunction.apply(input);
+      if (signatureOrMacAlgorithm.equals(NO_ALGORITHM)) {
+         return null;
+      }
+      PrivateKey privateKey = credentials.get().privateKey;
+      SignatureOrMacGenerator generator = generators.poll();
+      while (generator != null && generator.privateKey != privateKey) {
+         generator = generators.poll();
+      }
+      if (generator == null) {
+         try {
+            generator = newGenerator(privateKey);
+         } catch (GeneralSecurityException e) {
+            throw Throwables.propagate(e);
+         }
+      }
+      // a generator that failed may be left in an unknown state, so it only goes back to the pool on success
+      byte[] result = generator.apply(input);
+      generators.offer(generator);
+      return result;
+   }
+
+   private SignatureOrMacGenerator newGenerator(PrivateKey privateKey) throws InvalidKeyException,
+           NoSuchAlgorithmException {
+      if (signatureOrMacAlgorithm.startsWith("SHA")) {
+         return new SignatureGenerator(signatureOrMacAlgorithm, privateKey);
+      }
+      return new MessageAuthenticationCodeGenerator(signatureOrMacAlgorithm, privateKey);
+   }
+
+   private abstract static class SignatureOrMacGenerator implements Function<byte[], byte[]> {
+
+      private final PrivateKey privateKey;
+
+      private SignatureOrMacGenerator(PrivateKey privateKey) {
+         this.privateKey = privateKey;
+      }
    }
 
-   private static class MessageAuthenticationCodeGenerator implements Function<byte[], byte[]> {
+   private static class MessageAuthenticationCodeGenerator extends SignatureOrMacGenerator {
 
-      private Mac mac;
+      private final Mac mac;
 
       private MessageAuthenticationCodeGenerator(String macAlgorithm, PrivateKey privateKey) throws
               NoSuchAlgorithmException, InvalidKeyException {
+         super(privateKey);
          this.mac = Mac.getInstance(macAlgorithm);
          this.mac.init(privateKey);
       }
@@ -98,12 +136,13 @@ public class SignOrProduceMacForToken implements Function<byte[], byte[]> {
       }
    }
 
-   private static class SignatureGenerator implements Function<byte[], byte[]> {
+   private static class SignatureGenerator extends SignatureOrMacGenerator {
 
-      private Signature signature;
+      private final Signature signature;
 
       private SignatureGenerator(String signatureAlgorithm, PrivateKey privateKey) throws NoSuchAlgorithmException,
               InvalidKeyException {
+         super(privateKey);
          this.signature = Signature.getInstance(signatureAlgorithm);
          this.signature.initSign(privateKey);
       }
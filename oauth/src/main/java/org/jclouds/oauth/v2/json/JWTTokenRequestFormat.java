@@ -16,11 +16,12 @@
  */
 package org.jclouds.oauth.v2.json;
 
+import static com.google.common.base.Charsets.US_ASCII;
 import static com.google.common.base.Charsets.UTF_8;
-import static com.google.common.base.Joiner.on;
 import static com.google.common.io.BaseEncoding.base64Url;
 import static org.jclouds.io.Payloads.newUrlEncodedFormPayload;
 
+import java.util.Arrays;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -29,10 +30,14 @@ import javax.inject.Singleton;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.io.Payload;
 import org.jclouds.json.Json;
+import org.jclouds.oauth.v2.domain.ClaimSet;
 import org.jclouds.oauth.v2.domain.TokenRequest;
 import org.jclouds.oauth.v2.domain.TokenRequestFormat;
 
 import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 
@@ -44,6 +49,9 @@ import com.google.common.collect.ImmutableSet;
  * - creates the full url encoded payload as described in:
  * https://developers.google.com/accounts/docs/OAuth2ServiceAccount
  * <p/>
+ * The encoded header and the json of the claims other than the emission and expiration times only depend on the
+ * token request, which doesn't include those times in its identity, so they are computed once per token request
+ * and only the times are written for each assertion.
  *
  * @author David Alves
  */
@@ -55,29 +63,31 @@ public class JWTTokenRequestFormat implements TokenRequestFormat {
    private static final String GRANT_TYPE_JWT_BEARER = "urn:ietf:params:oauth:grant-type:jwt-bearer";
 
    private final Function<byte[], byte[]> signer;
-   private final Json json;
+   private final LoadingCache<TokenRequest, EncodedTokenRequest> encodedTokenRequests;
 
    @Inject
-   public JWTTokenRequestFormat(Function<byte[], byte[]> signer, Json json) {
+   public JWTTokenRequestFormat(Function<byte[], byte[]> signer, final Json json) {
       this.signer = signer;
-      this.json = json;
+      this.encodedTokenRequests = CacheBuilder.newBuilder().maximumSize(100).build(
+              new CacheLoader<TokenRequest, EncodedTokenRequest>() {
+                 @Override
+                 public EncodedTokenRequest load(TokenRequest tokenRequest) {
+                    return new EncodedTokenRequest(json, tokenRequest);
+                 }
+              });
    }
 
    @SuppressWarnings("unchecked")
    @Override
    public <R extends HttpRequest> R formatRequest(R request, TokenRequest tokenRequest) {
+      byte[] signingInput = encodedTokenRequests.getUnchecked(tokenRequest).signingInput(tokenRequest);
 
-      String encodedHeader = json.toJson(tokenRequest.getHeader());
-      String encodedClaimSet = json.toJson(tokenRequest.getClaimSet());
-
-      encodedHeader = base64Url().omitPadding().encode(encodedHeader.getBytes(UTF_8));
-      encodedClaimSet = base64Url().omitPadding().encode(encodedClaimSet.getBytes(UTF_8));
-
-      byte[] signature = signer.apply(on(".").join(encodedHeader, encodedClaimSet).getBytes(UTF_8));
+      byte[] signature = signer.apply(signingInput);
       String encodedSignature = signature != null ?  base64Url().omitPadding().encode(signature) : "";
 
       // the final assertion in base 64 encoded {header}.{claimSet}.{signature} format
-      String assertion = on(".").join(encodedHeader, encodedClaimSet, encodedSignature);
+      String assertion = new StringBuilder(signingInput.length + 1 + encodedSignature.length())
+              .append(new String(signingInput, US_ASCII)).append('.').append(encodedSignature).toString();
       Payload payload = newUrlEncodedFormPayload(ImmutableMultimap.<String, String> builder()
                            .put(GRANT_TYPE_FORM_PARAM, GRANT_TYPE_JWT_BEARER)
                            .put(ASSERTION_FORM_PARAM, assertion).build());
@@ -95,4 +105,40 @@ public class JWTTokenRequestFormat implements TokenRequestFormat {
       // exp and ist (expiration and emission times) are assumed mandatory already
       return ImmutableSet.of("iss", "scope", "aud");
    }
+
+   /**
+    * The parts of the {header}.{claimSet} signing input that don't change between assertions for the same token
+    * request.
+    */
+   private static final class EncodedTokenRequest {
+
+      private static final String EXPIRATION_TIME = "\"exp\":";
+      private static final String EMISSION_TIME = ",\"iat\":";
+
+      private final byte[] encodedHeaderAndSeparator;
+      private final String claimsUpToExpirationTime;
+
+      private EncodedTokenRequest(Json json, TokenRequest tokenRequest) {
+         String header = json.toJson(tokenRequest.getHeader());
+         this.encodedHeaderAndSeparator = (base64Url().omitPadding().encode(header.getBytes(UTF_8)) + ".")
+                 .getBytes(US_ASCII);
+         // the times are written last, see ClaimSetTypeAdapter, so everything up to them can be kept
+         String claimSet = json.toJson(tokenRequest.getClaimSet());
+         this.claimsUpToExpirationTime = claimSet.substring(0,
+                 claimSet.lastIndexOf(EXPIRATION_TIME) + EXPIRATION_TIME.length());
+      }
+
+      private byte[] signingInput(TokenRequest tokenRequest) {
+         ClaimSet claimSet = tokenRequest.getClaimSet();
+         String claims = new StringBuilder(claimsUpToExpirationTime.length() + 48)
+                 .append(claimsUpToExpirationTime).append(claimSet.getExpirationTime())
+                 .append(EMISSION_TIME).append(claimSet.getEmissionTime()).append('}').toString();
+         byte[] encodedClaims = base64Url().omitPadding().encode(claims.getBytes(UTF_8)).getBytes(US_ASCII);
+
+         byte[] signingInput = Arrays.copyOf(encodedHeaderAndSeparator,
+                 encodedHeaderAndSeparator.length + encodedClaims.length);
+         System.arraycopy(encodedClaims, 0, signingInput, encodedHeaderAndSeparator.length, encodedClaims.length);
+         return signingInput;
+      }
+   }
 }
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.oauth.v2.config;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jclouds.oauth.v2.domain.ClaimSet;
+import org.jclouds.oauth.v2.domain.Header;
+import org.jclouds.oauth.v2.domain.Token;
+import org.jclouds.oauth.v2.domain.TokenRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", singleThreaded = true)
+public class RefreshingTokenLoaderTest {
+
+   private static final long SESSION_INTERVAL = 3600;
+
+   private static final TokenRequest TOKEN_REQUEST = new TokenRequest(
+           Header.builder().signerAlgorithm("RS256").type("JWT").build(),
+           ClaimSet.builder().addClaim("iss", "myproject").addClaim("scope", "compute").build());
+
+   private FakeTicker ticker;
+   private ExecutorService refreshExecutor;
+
+   @BeforeMethod
+   public void setUp() {
+      ticker = new FakeTicker();
+      refreshExecutor = Executors.newSingleThreadExecutor();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      refreshExecutor.shutdownNow();
+   }
+
+   public void testRequestsNeverWaitForATokenFetchAfterWarmUp() throws Exception {
+      assertRequestsNeverWaitForATokenFetchAfterWarmUp(SESSION_INTERVAL);
+   }
+
+   public void testTokensAreRefreshedBeforeTheExpiresInReturnedByTheServer() throws Exception {
+      assertRequestsNeverWaitForATokenFetchAfterWarmUp(600);
+   }
+
+   public void testTokenLeftUnusedUntilItExpiredIsFetchedByTheCaller() throws Exception {
+      FetchToken fetchToken = new FetchToken(SESSION_INTERVAL);
+      LoadingCache<TokenRequest, Token> cache = newCache(fetchToken);
+
+      Token first = cache.getUnchecked(TOKEN_REQUEST);
+      ticker.advance(2 * SESSION_INTERVAL);
+      Token second = cache.getUnchecked(TOKEN_REQUEST);
+
+      assertFalse(first.equals(second));
+      assertTrue(fetchToken.isValid(second));
+      assertEquals(fetchToken.callers, Lists.newArrayList(Thread.currentThread(), Thread.currentThread()));
+   }
+
+   public void testRequestForAnExpiredTokenWaitsForTheRefreshInFlight() throws Exception {
+      final CountDownLatch refreshStarted = new CountDownLatch(1);
+      final CountDownLatch releaseRefresh = new CountDownLatch(1);
+      FetchToken fetchToken = new FetchToken(SESSION_INTERVAL) {
+         @Override
+         public Token apply(TokenRequest request) {
+            if (!callers.isEmpty()) {
+               refreshStarted.countDown();
+               awaitUninterruptibly(releaseRefresh);
+            }
+            return super.apply(request);
+         }
+      };
+      final LoadingCache<TokenRequest, Token> cache = newCache(fetchToken);
+
+      cache.getUnchecked(TOKEN_REQUEST);
+      ticker.advance(SESSION_INTERVAL * 3 / 4 + 60);
+      cache.getUnchecked(TOKEN_REQUEST);
+      assertTrue(refreshStarted.await(10, SECONDS), "the token was not refreshed");
+
+      ticker.advance(SESSION_INTERVAL);
+      ExecutorService requestExecutor = Executors.newSingleThreadExecutor();
+      try {
+         Future<Token> request = requestExecutor.submit(new Callable<Token>() {
+            @Override
+            public Token call() {
+               return cache.getUnchecked(TOKEN_REQUEST);
+            }
+         });
+         try {
+            request.get(200, MILLISECONDS);
+            fail("the request did not wait for the refresh in flight");
+         } catch (TimeoutException expected) {
+         }
+         releaseRefresh.countDown();
+
+         assertTrue(fetchToken.isValid(request.get(10, SECONDS)));
+         assertEquals(fetchToken.callers.size(), 2);
+      } finally {
+         releaseRefresh.countDown();
+         requestExecutor.shutdownNow();
+      }
+   }
+
+   private void assertRequestsNeverWaitForATokenFetchAfterWarmUp(long expiresIn) throws Exception {
+      FetchToken fetchToken = new FetchToken(expiresIn);
+      LoadingCache<TokenRequest, Token> cache = newCache(fetchToken);
+
+      cache.getUnchecked(TOKEN_REQUEST);
+      for (long elapsed = 0; elapsed < 10 * SESSION_INTERVAL; elapsed += 10) {
+         ticker.advance(10);
+         Token token = cache.getUnchecked(TOKEN_REQUEST);
+         assertTrue(fetchToken.isValid(token), "expired token returned after " + elapsed + " seconds");
+         drainRefreshExecutor();
+      }
+
+      assertTrue(fetchToken.callers.size() > 10, "tokens were not refreshed: " + fetchToken.callers.size());
+      assertEquals(fetchToken.callers.get(0), Thread.currentThread());
+      for (Thread caller : fetchToken.callers.subList(1, fetchToken.callers.size())) {
+         assertFalse(caller.equals(Thread.currentThread()), "a request waited for a token fetch");
+      }
+   }
+
+   private LoadingCache<TokenRequest, Token> newCache(FetchToken fetchToken) {
+      return RefreshingTokenLoader.newCache(fetchToken, SESSION_INTERVAL, refreshExecutor, ticker);
+   }
+
+   /**
+    * Waits for the refreshes already submitted to complete.
+    */
+   private void drainRefreshExecutor() throws Exception {
+      refreshExecutor.submit(new Callable<Void>() {
+         @Override
+         public Void call() {
+            return null;
+         }
+      }).get();
+   }
+
+   private static class FakeTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      void advance(long seconds) {
+         nanos.addAndGet(SECONDS.toNanos(seconds));
+      }
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+   }
+
+   private class FetchToken implements Function<TokenRequest, Token> {
+      private final long expiresIn;
+      final List<Thread> callers = Lists.newCopyOnWriteArrayList();
+      private final Map<String, Long> expirations = Maps.newConcurrentMap();
+
+      FetchToken(long expiresIn) {
+         this.expiresIn = expiresIn;
+      }
+
+      @Override
+      public Token apply(TokenRequest request) {
+         callers.add(Thread.currentThread());
+         String accessToken = "token-" + callers.size();
+         expirations.put(accessToken, ticker.read() + SECONDS.toNanos(expiresIn));
+         return Token.builder().accessToken(accessToken).tokenType("Bearer").expiresIn(expiresIn).build();
+      }
+
+      boolean isValid(Token token) {
+         return ticker.read() < expirations.get(token.getAccessToken());
+      }
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.oauth.v2.filters;
+
+import com.google.common.base.Function;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.Invokable;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.oauth.v2.config.OAuthScopes;
+import org.jclouds.oauth.v2.config.RefreshingTokenLoader;
+import org.jclouds.oauth.v2.domain.OAuthCredentials;
+import org.jclouds.oauth.v2.domain.Token;
+import org.jclouds.oauth.v2.domain.TokenRequest;
+import org.jclouds.oauth.v2.domain.TokenRequestFormat;
+import org.jclouds.oauth.v2.functions.BuildTokenRequest;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit")
+public class OAuthAuthenticatorTest {
+
+   @OAuthScopes("https://www.googleapis.com/auth/compute")
+   interface ComputeApi {
+      void list();
+   }
+
+   private static final TokenRequestFormat FORMAT = new TokenRequestFormat() {
+      @Override
+      public <R extends HttpRequest> R formatRequest(R httpRequest, TokenRequest tokenRequest) {
+         return httpRequest;
+      }
+
+      @Override
+      public String getTypeName() {
+         return "JWT";
+      }
+
+      @Override
+      public Set<String> requiredClaims() {
+         return ImmutableSet.of("iss", "scope", "aud");
+      }
+   };
+
+   public void testTokenIsFetchedOnceForAllRequestsWithTheSameScopes() throws Exception {
+      final AtomicInteger fetches = new AtomicInteger();
+      LoadingCache<TokenRequest, Token> cache = CacheBuilder.newBuilder().build(CacheLoader.from(
+              new Function<TokenRequest, Token>() {
+                 @Override
+                 public Token apply(TokenRequest input) {
+                    fetches.incrementAndGet();
+                    return Token.builder().accessToken("1/8xbJqaOZXSUZbHLl5EOtu1pxz3fmmetKx9W8CV4t79M")
+                            .tokenType("Bearer").expiresIn(3600).build();
+                 }
+              }));
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      OAuthAuthenticator authenticator = new OAuthAuthenticator(buildTokenRequest, cache);
+
+      GeneratedHttpRequest request = request();
+      TokenRequest first = buildTokenRequest.apply(request);
+      for (int i = 0; i < 1000; i++) {
+         HttpRequest filtered = authenticator.filter(request);
+         assertEquals(filtered.getFirstHeaderOrNull("Authorization"),
+                 "Bearer 1/8xbJqaOZXSUZbHLl5EOtu1pxz3fmmetKx9W8CV4t79M");
+      }
+
+      assertEquals(fetches.get(), 1);
+      assertEquals(cache.size(), 1);
+      TokenRequest key = cache.asMap().keySet().iterator().next();
+      assertEquals(key.getClaimSet().getEmissionTime(), first.getClaimSet().getEmissionTime());
+      assertEquals(key.getClaimSet().getExpirationTime(), first.getClaimSet().getExpirationTime());
+   }
+
+   public void testConcurrentRequestsForAnExpiredTokenShareOneFetch() throws Exception {
+      final AtomicLong nanos = new AtomicLong();
+      Ticker ticker = new Ticker() {
+         @Override
+         public long read() {
+            return nanos.get();
+         }
+      };
+      final AtomicInteger fetches = new AtomicInteger();
+      // stands in for the token endpoint, taking long enough for all requests to pile up behind the fetch
+      Function<TokenRequest, Token> tokenEndpoint = new Function<TokenRequest, Token>() {
+         @Override
+         public Token apply(TokenRequest input) {
+            int fetch = fetches.incrementAndGet();
+            sleepUninterruptibly(200, MILLISECONDS);
+            return Token.builder().accessToken("token-" + fetch).tokenType("Bearer").expiresIn(3600).build();
+         }
+      };
+      ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+      ExecutorService requestExecutor = Executors.newFixedThreadPool(200);
+      try {
+         final OAuthAuthenticator authenticator = new OAuthAuthenticator(newBuildTokenRequest(),
+                 RefreshingTokenLoader.newCache(tokenEndpoint, 3600, refreshExecutor, ticker));
+         final GeneratedHttpRequest request = request();
+         authenticator.filter(request);
+         nanos.addAndGet(SECONDS.toNanos(3600));
+
+         final CountDownLatch start = new CountDownLatch(1);
+         List<Future<String>> authorizations = Lists.newArrayList();
+         for (int i = 0; i < 200; i++) {
+            authorizations.add(requestExecutor.submit(new Callable<String>() {
+               @Override
+               public String call() throws Exception {
+                  start.await();
+                  return authenticator.filter(request).getFirstHeaderOrNull("Authorization");
+               }
+            }));
+         }
+         start.countDown();
+
+         for (Future<String> authorization : authorizations) {
+            assertEquals(authorization.get(10, SECONDS), "Bearer token-2");
+         }
+         assertEquals(fetches.get(), 2);
+      } finally {
+         requestExecutor.shutdownNow();
+         refreshExecutor.shutdownNow();
+      }
+   }
+
+   private static BuildTokenRequest newBuildTokenRequest() {
+      return new BuildTokenRequest("https://accounts.google.com/o/oauth2/token", "RS256", FORMAT,
+              Suppliers.ofInstance(new OAuthCredentials("myproject", "secret", null)));
+   }
+
+   private static GeneratedHttpRequest request() throws NoSuchMethodException {
+      return GeneratedHttpRequest.builder()
+              .method("GET")
+              .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones")
+              .invocation(Invocation.create(Invokable.from(ComputeApi.class.getMethod("list")),
+                      ImmutableList.of()))
+              .build();
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.oauth.v2.functions;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.Invokable;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.oauth.v2.config.OAuthScopes;
+import org.jclouds.oauth.v2.domain.OAuthCredentials;
+import org.jclouds.oauth.v2.domain.TokenRequest;
+import org.jclouds.oauth.v2.domain.TokenRequestFormat;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.annotations.Delegate;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit")
+public class BuildTokenRequestTest {
+
+   @OAuthScopes("https://www.googleapis.com/auth/compute.readonly")
+   interface ComputeApi {
+      void list();
+
+      @OAuthScopes({"https://www.googleapis.com/auth/compute",
+                    "https://www.googleapis.com/auth/devstorage.full_control"})
+      void insert();
+   }
+
+   interface UnannotatedApi {
+      void list();
+   }
+
+   @OAuthScopes("https://www.googleapis.com/auth/ndev.clouddns.readonly")
+   interface DnsApi {
+      void list();
+   }
+
+   interface CloudApi {
+      @Delegate
+      ComputeApi getComputeApi();
+
+      @Delegate
+      DnsApi getDnsApi();
+   }
+
+   private static final TokenRequestFormat FORMAT = new TokenRequestFormat() {
+      @Override
+      public <R extends HttpRequest> R formatRequest(R httpRequest, TokenRequest tokenRequest) {
+         return httpRequest;
+      }
+
+      @Override
+      public String getTypeName() {
+         return "JWT";
+      }
+
+      @Override
+      public Set<String> requiredClaims() {
+         return ImmutableSet.of("iss", "scope", "aud");
+      }
+   };
+
+   public void testScopesOfTheClassAreUsedWhenTheMethodHasNone() throws Exception {
+      assertEquals(scopeOf(newBuildTokenRequest(), request(ComputeApi.class, "list")),
+              "https://www.googleapis.com/auth/compute.readonly");
+   }
+
+   public void testScopesOfTheMethodOverrideTheScopesOfTheClass() throws Exception {
+      assertEquals(scopeOf(newBuildTokenRequest(), request(ComputeApi.class, "insert")),
+              "https://www.googleapis.com/auth/compute,https://www.googleapis.com/auth/devstorage.full_control");
+   }
+
+   public void testGlobalScopesAreUsedWhenNeitherClassNorMethodHaveScopes() throws Exception {
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      buildTokenRequest.globalScopes = "https://www.googleapis.com/auth/compute";
+      assertEquals(scopeOf(buildTokenRequest, request(UnannotatedApi.class, "list")),
+              "https://www.googleapis.com/auth/compute");
+   }
+
+   public void testScopesAreResolvedOncePerMethod() throws Exception {
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      String first = scopeOf(buildTokenRequest, request(ComputeApi.class, "insert"));
+      for (int i = 0; i < 100; i++) {
+         assertSame(scopeOf(buildTokenRequest, request(ComputeApi.class, "insert")), first);
+      }
+   }
+
+   public void testMissingScopesFailEveryRequest() throws Exception {
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      for (int i = 0; i < 2; i++) {
+         try {
+            buildTokenRequest.apply(request(UnannotatedApi.class, "list"));
+            fail("expected an IllegalStateException");
+         } catch (IllegalStateException expected) {
+         }
+      }
+   }
+
+   public void testUnionOfScopesIsUsedForEveryRequestOfTheApi() throws Exception {
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      buildTokenRequest.unionOfScopes = true;
+      String union = "https://www.googleapis.com/auth/compute,https://www.googleapis.com/auth/compute.readonly," +
+              "https://www.googleapis.com/auth/devstorage.full_control," +
+              "https://www.googleapis.com/auth/ndev.clouddns.readonly";
+
+      TokenRequest list = buildTokenRequest.apply(delegatedRequest("getComputeApi", ComputeApi.class, "list"));
+      TokenRequest insert = buildTokenRequest.apply(delegatedRequest("getComputeApi", ComputeApi.class, "insert"));
+      TokenRequest dns = buildTokenRequest.apply(delegatedRequest("getDnsApi", DnsApi.class, "list"));
+
+      assertEquals(list.getClaimSet().get("scope"), union);
+      assertEquals(insert, list);
+      assertEquals(dns, list);
+   }
+
+   public void testUnionOfScopesFallsBackToTheMethodScopesWhenTheApiHasNone() throws Exception {
+      BuildTokenRequest buildTokenRequest = newBuildTokenRequest();
+      buildTokenRequest.unionOfScopes = true;
+      buildTokenRequest.globalScopes = "https://www.googleapis.com/auth/compute";
+      assertEquals(scopeOf(buildTokenRequest, request(UnannotatedApi.class, "list")),
+              "https://www.googleapis.com/auth/compute");
+   }
+
+   private static BuildTokenRequest newBuildTokenRequest() {
+      return new BuildTokenRequest("https://accounts.google.com/o/oauth2/token", "RS256", FORMAT,
+              Suppliers.ofInstance(new OAuthCredentials("myproject", "secret", null)));
+   }
+
+   private static String scopeOf(BuildTokenRequest buildTokenRequest, GeneratedHttpRequest request) {
+      return buildTokenRequest.apply(request).getClaimSet().get("scope");
+   }
+
+   private static GeneratedHttpRequest delegatedRequest(String delegate, Class<?> api, String method)
+           throws NoSuchMethodException {
+      return requestBuilder(api, method)
+              .caller(Invocation.create(Invokable.from(CloudApi.class.getMethod(delegate)), ImmutableList.of()))
+              .build();
+   }
+
+   private static GeneratedHttpRequest request(Class<?> api, String method) throws NoSuchMethodException {
+      return requestBuilder(api, method).build();
+   }
+
+   private static GeneratedHttpRequest.Builder requestBuilder(Class<?> api, String method)
+           throws NoSuchMethodException {
+      return GeneratedHttpRequest.builder()
+              .method("GET")
+              .endpoint("https://www.googleapis.com/compute/v1/projects/myproject/zones")
+              .invocation(Invocation.create(Invokable.from(api.getMethod(method)), ImmutableList.of()));
+   }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.oauth.v2.functions;
+
+import com.google.common.base.Suppliers;
+import org.easymock.Capture;
+import org.jclouds.oauth.v2.OAuthApi;
+import org.jclouds.oauth.v2.domain.ClaimSet;
+import org.jclouds.oauth.v2.domain.Header;
+import org.jclouds.oauth.v2.domain.Token;
+import org.jclouds.oauth.v2.domain.TokenRequest;
+import org.testng.annotations.Test;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit")
+public class FetchTokenTest {
+
+   public void testEmissionAndExpirationTimesAreSetWhenTheTokenIsFetched() {
+      TokenRequest tokenRequest = TokenRequest.builder()
+              .header(Header.builder().signerAlgorithm("RS256").type("JWT").build())
+              .claimSet(ClaimSet.builder()
+                      .addClaim("iss", "myproject")
+                      .addClaim("scope", "https://www.googleapis.com/auth/compute")
+                      .addClaim("aud", "https://accounts.google.com/o/oauth2/token")
+                      .build())
+              .build();
+      Token token = Token.builder().accessToken("1/8xbJqaOZXSUZbHLl5EOtu1pxz3fmmetKx9W8CV4t79M")
+              .tokenType("Bearer").expiresIn(3600).build();
+
+      OAuthApi oAuthApi = createMock(OAuthApi.class);
+      Capture<TokenRequest> authenticated = new Capture<TokenRequest>();
+      expect(oAuthApi.authenticate(capture(authenticated))).andReturn(token);
+      replay(oAuthApi);
+
+      FetchToken fetchToken = new FetchToken(oAuthApi, 3600);
+      fetchToken.timeSourceMillisSinceEpoch = Suppliers.ofInstance(1000000L);
+
+      assertEquals(fetchToken.apply(tokenRequest), token);
+      ClaimSet claimSet = authenticated.getValue().getClaimSet();
+      assertEquals(claimSet, tokenRequest.getClaimSet());
+      assertEquals(claimSet.getEmissionTime(), 1000);
+      assertEquals(claimSet.getExpirationTime(), 4600);
+      assertEquals(authenticated.getValue().getHeader(), tokenRequest.getHeader());
+      verify(oAuthApi);
+   }
+}
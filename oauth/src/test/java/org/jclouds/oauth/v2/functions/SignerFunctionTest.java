@@ -18,17 +18,34 @@ package org.jclouds.oauth.v2.functions;
 import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Suppliers.ofInstance;
 import static com.google.common.io.BaseEncoding.base64Url;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
 import java.security.cert.CertificateException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.jclouds.oauth.v2.domain.OAuthCredentials;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+
 /**
  * Tests the SignOrProduceMacForToken
  *
@@ -60,4 +77,79 @@ public class SignerFunctionTest {
 
       assertEquals(base64Url().omitPadding().encode(payloadSignature), SHA256withRSA_PAYLOAD_SIGNATURE_RESULT);
    }
+
+   public void testConcurrentSignaturesMatchSequentialSignatures() throws Exception {
+      OAuthCredentials credentials = OAuthCredentialsFromPKTest.loadOAuthCredentials();
+      final SignOrProduceMacForToken signer = new SignOrProduceMacForToken("RS256", ofInstance(credentials));
+      signer.loadSignatureOrMacOrNone();
+
+      final List<byte[]> payloads = Lists.newArrayList();
+      final List<String> expected = Lists.newArrayList();
+      Signature signature = Signature.getInstance("SHA256withRSA");
+      for (int i = 0; i < 20; i++) {
+         byte[] payload = (PAYLOAD + i).getBytes(UTF_8);
+         signature.initSign(credentials.privateKey);
+         signature.update(payload);
+         payloads.add(payload);
+         expected.add(base64Url().encode(signature.sign()));
+      }
+
+      int threads = 16;
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<Void>> results = Lists.newArrayList();
+         for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  start.await();
+                  for (int i = 0; i < 10 * payloads.size(); i++) {
+                     int index = (i + offset) % payloads.size();
+                     assertEquals(base64Url().encode(signer.apply(payloads.get(index))), expected.get(index));
+                  }
+                  return null;
+               }
+            }));
+         }
+         start.countDown();
+         for (Future<Void> result : results) {
+            result.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testSignerUsesTheCurrentKeyAfterTheCredentialsChange() throws Exception {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(1024);
+      KeyPair first = generator.generateKeyPair();
+      KeyPair second = generator.generateKeyPair();
+      final AtomicReference<OAuthCredentials> credentials = new AtomicReference<OAuthCredentials>(
+              new OAuthCredentials("foo", "first", first.getPrivate()));
+      SignOrProduceMacForToken signer = new SignOrProduceMacForToken("RS256", new Supplier<OAuthCredentials>() {
+         @Override
+         public OAuthCredentials get() {
+            return credentials.get();
+         }
+      });
+      signer.loadSignatureOrMacOrNone();
+      byte[] payload = PAYLOAD.getBytes(UTF_8);
+
+      assertTrue(verify(first.getPublic(), payload, signer.apply(payload)));
+
+      credentials.set(new OAuthCredentials("foo", "second", second.getPrivate()));
+      byte[] rotated = signer.apply(payload);
+      assertTrue(verify(second.getPublic(), payload, rotated));
+      assertFalse(verify(first.getPublic(), payload, rotated));
+   }
+
+   private static boolean verify(PublicKey publicKey, byte[] payload, byte[] payloadSignature) throws Exception {
+      Signature signature = Signature.getInstance("SHA256withRSA");
+      signature.initVerify(publicKey);
+      signature.update(payload);
+      return signature.verify(payloadSignature);
+   }
 }
@@ -16,14 +16,20 @@
  */
 package org.jclouds.oauth.v2.json;
 
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.io.BaseEncoding.base64Url;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.List;
 
 import org.jclouds.ContextBuilder;
 import org.jclouds.http.HttpRequest;
+import org.jclouds.json.Json;
 import org.jclouds.oauth.v2.OAuthApiMetadata;
 import org.jclouds.oauth.v2.OAuthTestUtils;
 import org.jclouds.oauth.v2.domain.ClaimSet;
@@ -35,6 +41,7 @@ import org.testng.annotations.Test;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.google.inject.Injector;
 
 /**
  * @author David Alves
@@ -69,4 +76,32 @@ public class JWTTokenRequestFormatTest {
       assertTrue(!payload.contains("+"));
       assertTrue(!payload.contains("/"));
    }
+
+   public void testOnlyTheTimesChangeBetweenAssertionsForTheSameTokenRequest() throws IOException {
+      Injector injector = ContextBuilder.newBuilder(new OAuthApiMetadata()).overrides
+              (OAuthTestUtils.defaultProperties(null)).build().utils().injector();
+      TokenRequestFormat tokenRequestFormat = injector.getInstance(TokenRequestFormat.class);
+      Json json = injector.getInstance(Json.class);
+      Header header = new Header.Builder().signerAlgorithm("RS256").type("JWT").build();
+
+      for (long now = 1328550785; now < 1328550785 + 3; now++) {
+         ClaimSet claimSet = new ClaimSet.Builder()
+                 .addClaim("iss", "761326798069-r5mljlln1rd4lrbhg75efgigp36m78j5@developer.gserviceaccount.com")
+                 .addClaim("scope", STRING_THAT_GENERATES_URL_UNSAFE_BASE64_ENCODING)
+                 .addClaim("aud", "https://accounts.google.com/o/oauth2/token")
+                 .emissionTime(now)
+                 .expirationTime(now + 3600)
+                 .build();
+         TokenRequest tokenRequest = new TokenRequest.Builder().claimSet(claimSet).header(header).build();
+         HttpRequest request = tokenRequestFormat.formatRequest(HttpRequest.builder().method("POST").endpoint
+                 ("http://localhost").build(), tokenRequest);
+
+         String payload = Strings2.toStringAndClose(request.getPayload().getInput());
+         String assertion = URLDecoder.decode(payload.substring(payload.indexOf("assertion=") + 10), "UTF-8");
+         List<String> parts = Splitter.on(".").splitToList(assertion);
+
+         assertEquals(new String(base64Url().omitPadding().decode(parts.get(0)), UTF_8), json.toJson(header));
+         assertEquals(new String(base64Url().omitPadding().decode(parts.get(1)), UTF_8), json.toJson(claimSet));
+      }
+   }
 }